@@ -23,6 +23,7 @@ import com.winterhavenmc.savagegraveyards.messages.Macro;
 import com.winterhavenmc.savagegraveyards.messages.MessageId;
 import com.winterhavenmc.savagegraveyards.storage.DataStore;
 import com.winterhavenmc.savagegraveyards.tasks.DiscoveryTask;
+import com.winterhavenmc.savagegraveyards.util.MainThreadExecutor;
 import com.winterhavenmc.savagegraveyards.util.MetricsHandler;
 import com.winterhavenmc.savagegraveyards.util.SafetyManager;
 
@@ -51,6 +52,7 @@ public class PluginMain extends JavaPlugin {
 	public WorldManager worldManager;
 	public SoundConfiguration soundConfig;
 	public SafetyManager safetyManager;
+	public MainThreadExecutor mainThreadExecutor;
 	private BukkitTask discoveryTask;
 
 
@@ -87,6 +89,9 @@ public class PluginMain extends JavaPlugin {
 		// instantiate world manager
 		worldManager = new WorldManager(this);
 
+		// instantiate executor for passing datastore results to main thread
+		mainThreadExecutor = new MainThreadExecutor(this);
+
 		// connect to storage object
 		dataStore = DataStore.connect(this);
 
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.commands;
+
+import com.winterhavenmc.savagegraveyards.PluginMain;
+import com.winterhavenmc.savagegraveyards.messages.Macro;
+import com.winterhavenmc.savagegraveyards.messages.MessageId;
+import com.winterhavenmc.savagegraveyards.sounds.SoundId;
+import com.winterhavenmc.savagegraveyards.storage.DataStoreSnapshot;
+
+import org.bukkit.command.CommandSender;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+
+/**
+ * Export command implementation<br>
+ * Writes all graveyard and discovery records to a snapshot file
+ */
+final class ExportSubcommand extends AbstractSubcommand implements Subcommand {
+
+	private final PluginMain plugin;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to plugin main class instance
+	 */
+	ExportSubcommand(final PluginMain plugin) {
+		this.plugin = Objects.requireNonNull(plugin);
+		this.name = "export";
+		this.usageString = "/graveyard export [snapshot name]";
+		this.description = MessageId.COMMAND_HELP_EXPORT;
+		this.permissionNode = "graveyard.export";
+		this.maxArgs = 1;
+	}
+
+
+	@Override
+	public boolean onCommand(final CommandSender sender, final List<String> args) {
+
+		// if sender does not have permission to export, send error message and return true
+		if (!sender.hasPermission(permissionNode)) {
+			plugin.messageBuilder.compose(sender, MessageId.PERMISSION_DENIED_EXPORT).send();
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		// check maximum arguments
+		if (args.size() > maxArgs) {
+			plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_ARGS_COUNT_OVER).send();
+			displayUsage(sender);
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		// get snapshot name from argument, or name for current time if no argument given
+		String snapshotName = args.isEmpty()
+				? "graveyards-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date())
+				: args.get(0);
+
+		// if snapshot name is not valid, send error message and return true
+		if (!DataStoreSnapshot.isValidName(snapshotName)) {
+			plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_SNAPSHOT_INVALID_NAME)
+					.setMacro(Macro.SNAPSHOT, snapshotName)
+					.send();
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		final DataStoreSnapshot snapshot = new DataStoreSnapshot(plugin, snapshotName);
+
+		// write snapshot asynchronously, and send result message on main thread
+		plugin.mainThreadExecutor.accept(plugin.dataStore.exportSnapshotAsync(snapshot),
+				exported -> {
+					if (exported) {
+						plugin.messageBuilder.compose(sender, MessageId.COMMAND_SUCCESS_EXPORT)
+								.setMacro(Macro.SNAPSHOT, snapshotName)
+								.setMacro(Macro.GRAVEYARD_COUNT, snapshot.getGraveyardCount())
+								.setMacro(Macro.DISCOVERY_COUNT, snapshot.getDiscoveryCount())
+								.send();
+					}
+					else {
+						plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_EXPORT)
+								.setMacro(Macro.SNAPSHOT, snapshotName)
+								.send();
+						plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+					}
+				});
+
+		// return true to suppress bukkit usage message
+		return true;
+	}
+
+}
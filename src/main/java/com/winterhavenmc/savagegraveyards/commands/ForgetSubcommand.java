@@ -135,25 +135,34 @@ final class ForgetSubcommand extends AbstractSubcommand implements Subcommand {
 		// get graveyard search key
 		String searchKey = String.join("_", args);
 
-		// fetch graveyard from datastore
-		Optional<Graveyard> optionalGraveyard = plugin.dataStore.selectGraveyard(searchKey);
+		// get player for use in lambda
+		final OfflinePlayer targetPlayer = player;
+
+		// fetch graveyard and delete discovery record asynchronously, and send messages on main thread
+		plugin.mainThreadExecutor.accept(plugin.dataStore.selectGraveyardAsync(searchKey),
+				optionalGraveyard -> {
+
+					// if no matching graveyard found, send message and return
+					if (optionalGraveyard.isEmpty()) {
+						sendInvalidGraveyardMessage(sender, searchKey);
+						return;
+					}
+
+					// get unwrapped optional graveyard from datastore
+					Graveyard graveyard = optionalGraveyard.get();
+
+					// delete discovery record
+					plugin.mainThreadExecutor.accept(plugin.dataStore.deleteDiscoveryAsync(searchKey, targetPlayer.getUniqueId()),
+							deleted -> {
+								if (deleted) {
+									sendForgetSuccessMessage(sender, targetPlayer, graveyard);
+								}
+								else {
+									sendForgetFailedMessage(sender, targetPlayer, graveyard);
+								}
+							});
+				});
 
-		// if no matching graveyard found, send message and return
-		if (optionalGraveyard.isEmpty()) {
-			sendInvalidGraveyardMessage(sender, searchKey);
-		}
-		else {
-			// get unwrapped optional graveyard from datastore
-			Graveyard graveyard = optionalGraveyard.get();
-
-			// delete discovery record
-			if (plugin.dataStore.deleteDiscovery(searchKey, player.getUniqueId())) {
-				sendForgetSuccessMessage(sender, player, graveyard);
-			}
-			else {
-				sendForgetFailedMessage(sender, player, graveyard);
-			}
-		}
 		return true;
 	}
 
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.commands;
+
+import com.winterhavenmc.savagegraveyards.PluginMain;
+import com.winterhavenmc.savagegraveyards.messages.Macro;
+import com.winterhavenmc.savagegraveyards.messages.MessageId;
+import com.winterhavenmc.savagegraveyards.sounds.SoundId;
+import com.winterhavenmc.savagegraveyards.storage.DataStoreSnapshot;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+
+/**
+ * Import command implementation<br>
+ * Inserts all graveyard and discovery records from a snapshot file
+ */
+final class ImportSubcommand extends AbstractSubcommand implements Subcommand {
+
+	private final PluginMain plugin;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to plugin main class instance
+	 */
+	ImportSubcommand(final PluginMain plugin) {
+		this.plugin = Objects.requireNonNull(plugin);
+		this.name = "import";
+		this.usageString = "/graveyard import <snapshot name>";
+		this.description = MessageId.COMMAND_HELP_IMPORT;
+		this.permissionNode = "graveyard.import";
+		this.minArgs = 1;
+		this.maxArgs = 1;
+	}
+
+
+	@Override
+	public List<String> onTabComplete(final CommandSender sender, final Command command,
+									  final String alias, final String[] args) {
+
+		if (args.length == 2 && sender.hasPermission(permissionNode)) {
+			return DataStoreSnapshot.selectNames(plugin).stream()
+					.filter(name -> name.toLowerCase().startsWith(args[1].toLowerCase()))
+					.collect(Collectors.toList());
+		}
+
+		return Collections.emptyList();
+	}
+
+
+	@Override
+	public boolean onCommand(final CommandSender sender, final List<String> args) {
+
+		// if sender does not have permission to import, send error message and return true
+		if (!sender.hasPermission(permissionNode)) {
+			plugin.messageBuilder.compose(sender, MessageId.PERMISSION_DENIED_IMPORT).send();
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		// check minimum arguments
+		if (args.size() < minArgs) {
+			plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_ARGS_COUNT_UNDER).send();
+			displayUsage(sender);
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		// check maximum arguments
+		if (args.size() > maxArgs) {
+			plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_ARGS_COUNT_OVER).send();
+			displayUsage(sender);
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		String snapshotName = args.get(0);
+
+		// if snapshot name is not valid or snapshot does not exist, send error message and return true
+		if (!DataStoreSnapshot.isValidName(snapshotName) || !new DataStoreSnapshot(plugin, snapshotName).exists()) {
+			plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_SNAPSHOT_NOT_FOUND)
+					.setMacro(Macro.SNAPSHOT, snapshotName)
+					.send();
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		final DataStoreSnapshot snapshot = new DataStoreSnapshot(plugin, snapshotName);
+
+		// read snapshot asynchronously, and send result message on main thread
+		plugin.mainThreadExecutor.accept(plugin.dataStore.importSnapshotAsync(snapshot),
+				imported -> {
+					if (imported) {
+						plugin.messageBuilder.compose(sender, MessageId.COMMAND_SUCCESS_IMPORT)
+								.setMacro(Macro.SNAPSHOT, snapshotName)
+								.setMacro(Macro.GRAVEYARD_COUNT, snapshot.getGraveyardCount())
+								.setMacro(Macro.DISCOVERY_COUNT, snapshot.getDiscoveryCount())
+								.send();
+					}
+					else {
+						plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_IMPORT)
+								.setMacro(Macro.SNAPSHOT, snapshotName)
+								.send();
+						plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+					}
+				});
+
+		// return true to suppress bukkit usage message
+		return true;
+	}
+
+}
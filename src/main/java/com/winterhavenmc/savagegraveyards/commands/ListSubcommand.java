@@ -28,6 +28,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -83,23 +84,46 @@ final class ListSubcommand extends AbstractSubcommand implements Subcommand {
 				// second argument not a page number, let default of 1 stand
 			}
 		}
-		page = Math.max(1, page);
+		final int requestedPage = Math.max(1, page);
 
-		int itemsPerPage = plugin.getConfig().getInt("list-page-size");
+		// get all records from published graveyard snapshot, which requires no query
+		final CompletableFuture<Collection<Graveyard>> allRecordsFuture =
+				CompletableFuture.completedFuture(plugin.dataStore.getSnapshot().getGraveyards());
+
+		// get undiscovered searchKeys for player asynchronously
+		final CompletableFuture<Collection<String>> undiscoveredKeysFuture = (sender instanceof Player)
+				? plugin.dataStore.selectUndiscoveredKeysAsync((Player) sender)
+				: CompletableFuture.completedFuture(Collections.emptySet());
+
+		// display list on main thread when both results are available
+		plugin.mainThreadExecutor.accept(allRecordsFuture, undiscoveredKeysFuture,
+				(allRecords, undiscoveredKeys) -> displayList(sender, allRecords, undiscoveredKeys, requestedPage));
 
-		// get all records from datastore
-		final Collection<Graveyard> allRecords = plugin.dataStore.selectAllGraveyards();
+		return true;
+	}
+
+
+	/**
+	 * Display list of graveyards to command sender
+	 *
+	 * @param sender the command sender
+	 * @param allRecords all graveyard records in datastore
+	 * @param undiscoveredKeys search keys of graveyards undiscovered by sender
+	 * @param requestedPage the requested page number
+	 */
+	private void displayList(final CommandSender sender,
+	                         final Collection<Graveyard> allRecords,
+	                         final Collection<String> undiscoveredKeys,
+	                         final int requestedPage) {
+
+		int page = requestedPage;
+
+		int itemsPerPage = plugin.getConfig().getInt("list-page-size");
 
 		if (plugin.getConfig().getBoolean("debug")) {
 			plugin.getLogger().info("Records fetched from datastore: " + allRecords.size());
 		}
 
-		// get undiscovered searchKeys for player
-		Collection<String> undiscoveredKeys = new HashSet<>();
-		if (sender instanceof Player) {
-			undiscoveredKeys.addAll(plugin.dataStore.selectUndiscoveredKeys((Player) sender));
-		}
-
 		// create empty list of records
 		List<Graveyard> displayRecords = new ArrayList<>();
 
@@ -150,7 +174,7 @@ final class ListSubcommand extends AbstractSubcommand implements Subcommand {
 		// if display list is empty, output list empty message and return
 		if (displayRecords.isEmpty()) {
 			plugin.messageBuilder.compose(sender, MessageId.LIST_EMPTY).send();
-			return true;
+			return;
 		}
 
 		// get page count
@@ -222,8 +246,6 @@ final class ListSubcommand extends AbstractSubcommand implements Subcommand {
 				.setMacro(Macro.PAGE_NUMBER, page)
 				.setMacro(Macro.PAGE_TOTAL, pageCount)
 				.send();
-
-		return true;
 	}
 
 }
@@ -247,6 +247,16 @@ final class SetSubcommand extends AbstractSubcommand implements Subcommand {
 			return true;
 		}
 
+		// if new name is in use by another graveyard, send name exists message
+		Optional<Graveyard> existing = plugin.dataStore.selectGraveyard(newName);
+		if (existing.isPresent() && existing.get().getPrimaryKey() != graveyard.getPrimaryKey()) {
+			plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_SET_NAME_EXISTS)
+					.setMacro(Macro.GRAVEYARD, existing.get())
+					.send();
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
 		// get original name
 		final String oldName = graveyard.getDisplayName();
 
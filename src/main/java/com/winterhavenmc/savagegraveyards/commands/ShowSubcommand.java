@@ -90,8 +90,24 @@ final class ShowSubcommand extends AbstractSubcommand implements Subcommand {
 		// get display name from remaining arguments joined with spaces
 		String displayName = String.join(" ", args).trim();
 
-		// retrieve graveyard from data store
-		Optional<Graveyard> optionalGraveyard = plugin.dataStore.selectGraveyard(displayName);
+		// retrieve graveyard from data store asynchronously, and display on main thread
+		plugin.mainThreadExecutor.accept(plugin.dataStore.selectGraveyardAsync(displayName),
+				optionalGraveyard -> displayGraveyard(sender, displayName, optionalGraveyard));
+
+		return true;
+	}
+
+
+	/**
+	 * Display graveyard settings to command sender
+	 *
+	 * @param sender the command sender
+	 * @param displayName the graveyard name entered by the command sender
+	 * @param optionalGraveyard the graveyard retrieved from the datastore, or empty optional if none found
+	 */
+	private void displayGraveyard(final CommandSender sender,
+	                              final String displayName,
+	                              final Optional<Graveyard> optionalGraveyard) {
 
 		// if graveyard is not in datastore, display error and usage messages and return
 		if (optionalGraveyard.isEmpty()) {
@@ -104,7 +120,7 @@ final class ShowSubcommand extends AbstractSubcommand implements Subcommand {
 
 			// play sound
 			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
-			return true;
+			return;
 		}
 
 		// get unwrapped optional graveyard from datastore
@@ -179,7 +195,5 @@ final class ShowSubcommand extends AbstractSubcommand implements Subcommand {
 				+ ChatColor.RESET + "P: " + ChatColor.GOLD + String.format("%.2f", graveyard.getPitch()) + " "
 				+ ChatColor.RESET + "Y: " + ChatColor.GOLD + String.format("%.2f", graveyard.getYaw());
 		sender.sendMessage(locationString);
-
-		return true;
 	}
 }
@@ -20,12 +20,20 @@ package com.winterhavenmc.savagegraveyards.commands;
 import com.winterhavenmc.savagegraveyards.PluginMain;
 import com.winterhavenmc.savagegraveyards.sounds.SoundId;
 import com.winterhavenmc.savagegraveyards.messages.MessageId;
+import com.winterhavenmc.savagegraveyards.storage.DataStoreStatistics;
+import com.winterhavenmc.savagegraveyards.storage.LatencyHistogram;
 
 import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.World;
 import org.bukkit.command.CommandSender;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
 
 
 /**
@@ -44,9 +52,22 @@ final class StatusSubcommand extends AbstractSubcommand implements Subcommand {
 	StatusSubcommand(final PluginMain plugin) {
 		this.plugin = Objects.requireNonNull(plugin);
 		this.name = "status";
-		this.usageString = "/graveyard status";
+		this.usageString = "/graveyard status [reset]";
 		this.description = MessageId.COMMAND_HELP_STATUS;
 		this.permissionNode = "graveyard.status";
+		this.maxArgs = 1;
+	}
+
+
+	@Override
+	public List<String> onTabComplete(final CommandSender sender, final Command command,
+	                                  final String alias, final String[] args) {
+
+		if (args.length == 2 && "reset".startsWith(args[1].toLowerCase())) {
+			return List.of("reset");
+		}
+
+		return Collections.emptyList();
 	}
 
 
@@ -60,6 +81,21 @@ final class StatusSubcommand extends AbstractSubcommand implements Subcommand {
 			return true;
 		}
 
+		// check maximum arguments
+		if (args.size() > maxArgs || (args.size() == 1 && !args.get(0).equalsIgnoreCase("reset"))) {
+			displayUsage(sender);
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		// if reset argument given, reset datastore latency histograms and return true
+		if (args.size() == 1) {
+			plugin.dataStore.resetLatencyHistograms();
+			sender.sendMessage(ChatColor.DARK_AQUA + "[" + plugin.getName() + "] " + ChatColor.AQUA
+					+ "Datastore latency histograms reset.");
+			return true;
+		}
+
 		// output config settings
 		showPluginVersion(sender);
 		showDebugSetting(sender);
@@ -69,6 +105,9 @@ final class StatusSubcommand extends AbstractSubcommand implements Subcommand {
 		showDiscoveryIntervalSetting(sender);
 		showListItemPageSizeSetting(sender);
 		showEnabledWorlds(sender);
+		showStorageStatus(sender);
+		showStorageStatistics(sender);
+		showStorageLatency(sender);
 
 		// always return true to suppress bukkit usage message
 		return true;
@@ -124,4 +163,50 @@ final class StatusSubcommand extends AbstractSubcommand implements Subcommand {
 	}
 
 
+	private void showStorageStatus(final CommandSender sender) {
+		for (Map.Entry<String, String> entry : plugin.dataStore.getStatus().entrySet()) {
+			sender.sendMessage(ChatColor.GREEN + entry.getKey() + ": "
+					+ ChatColor.RESET + entry.getValue());
+		}
+	}
+
+
+	private void showStorageStatistics(final CommandSender sender) {
+
+		DataStoreStatistics statistics = plugin.dataStore.getStatistics();
+
+		// get graveyard counts by world name, or by world uid if world is not loaded
+		Map<String, Integer> worldCounts = new TreeMap<>();
+		for (Map.Entry<UUID, Integer> entry : statistics.getWorldGraveyardCounts().entrySet()) {
+			World world = plugin.getServer().getWorld(entry.getKey());
+			worldCounts.put((world == null) ? entry.getKey().toString() : world.getName(), entry.getValue());
+		}
+
+		sender.sendMessage(ChatColor.GREEN + "Graveyards: "
+				+ ChatColor.RESET + statistics.getGraveyardCount() + " " + worldCounts);
+		sender.sendMessage(ChatColor.GREEN + "Discoveries: "
+				+ ChatColor.RESET + statistics.getDiscoveryCount());
+	}
+
+
+	private void showStorageLatency(final CommandSender sender) {
+		for (LatencyHistogram histogram : plugin.dataStore.getLatencyHistograms()) {
+
+			// skip operations not called since startup or reset
+			long count = histogram.getCount();
+			if (count == 0) {
+				continue;
+			}
+
+			sender.sendMessage(ChatColor.GREEN + histogram.getOperation() + " [" + histogram.getQueryKey() + "]: "
+					+ ChatColor.RESET + String.format("%d calls, %d errors, p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+					count,
+					histogram.getErrorCount(),
+					histogram.getPercentile(50) / 1_000_000.0,
+					histogram.getPercentile(99) / 1_000_000.0,
+					histogram.getMax() / 1_000_000.0));
+		}
+	}
+
+
 }
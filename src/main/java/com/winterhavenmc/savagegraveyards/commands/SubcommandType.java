@@ -43,6 +43,13 @@ enum SubcommandType {
 		}
 	},
 
+	EXPORT() {
+		@Override
+		Subcommand create(final PluginMain plugin) {
+			return new ExportSubcommand(plugin);
+		}
+	},
+
 	FORGET() {
 		@Override
 		Subcommand create(final PluginMain plugin) {
@@ -50,6 +57,13 @@ enum SubcommandType {
 		}
 	},
 
+	IMPORT() {
+		@Override
+		Subcommand create(final PluginMain plugin) {
+			return new ImportSubcommand(plugin);
+		}
+	},
+
 	LIST() {
 		@Override
 		Subcommand create(final PluginMain plugin) {
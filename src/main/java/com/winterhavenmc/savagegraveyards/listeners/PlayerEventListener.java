@@ -30,6 +30,9 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityTargetEvent.TargetReason;
 import org.bukkit.event.entity.EntityTargetLivingEntityEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
 
 import java.util.Optional;
@@ -77,6 +80,61 @@ public final class PlayerEventListener implements Listener {
 	}
 
 
+	/**
+	 * Async player pre-login event handler; loads player discovery records off the main thread
+	 *
+	 * @param event the event handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onAsyncPlayerPreLogin(final AsyncPlayerPreLoginEvent event) {
+
+		// if login was disallowed, do nothing and return
+		if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+			return;
+		}
+
+		// load player discovery records
+		plugin.dataStore.loadDiscoveries(event.getUniqueId());
+	}
+
+
+	/**
+	 * Player login event handler; unloads player discovery records if login was refused after pre-login,
+	 * since no quit event follows a refused login
+	 *
+	 * @param event the event handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerLogin(final PlayerLoginEvent event) {
+
+		// if login was allowed, do nothing and return
+		if (event.getResult() == PlayerLoginEvent.Result.ALLOWED) {
+			return;
+		}
+
+		// if player with same uid is still online, keep records loaded for that player
+		if (plugin.getServer().getPlayer(event.getPlayer().getUniqueId()) != null) {
+			return;
+		}
+
+		// unload player discovery records
+		plugin.dataStore.unloadDiscoveries(event.getPlayer().getUniqueId());
+	}
+
+
+	/**
+	 * Player quit event handler; unloads player discovery records
+	 *
+	 * @param event the event handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerQuit(final PlayerQuitEvent event) {
+
+		// unload player discovery records
+		plugin.dataStore.unloadDiscoveries(event.getPlayer().getUniqueId());
+	}
+
+
 	/**
 	 * Player death event handler
 	 *
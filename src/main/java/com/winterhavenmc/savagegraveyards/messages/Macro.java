@@ -30,6 +30,9 @@ public enum Macro {
 	ITEM_NUMBER,
 	PAGE_NUMBER,
 	PAGE_TOTAL,
-	INVALID_WORLD
+	INVALID_WORLD,
+	SNAPSHOT,
+	GRAVEYARD_COUNT,
+	DISCOVERY_COUNT
 
 }
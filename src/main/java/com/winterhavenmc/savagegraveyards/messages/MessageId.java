@@ -27,14 +27,19 @@ public enum MessageId {
 	COMMAND_FAIL_CONSOLE,
 	COMMAND_FAIL_CREATE_EXISTS,
 	COMMAND_FAIL_CLOSEST_NO_MATCH,
+	COMMAND_FAIL_EXPORT,
 	COMMAND_FAIL_FORGET,
 	COMMAND_FAIL_FORGET_INVALID_GRAVEYARD,
 	COMMAND_FAIL_FORGET_INVALID_PLAYER,
+	COMMAND_FAIL_IMPORT,
 	COMMAND_FAIL_INVALID_ATTRIBUTE,
 	COMMAND_FAIL_INVALID_COMMAND,
 	COMMAND_FAIL_SET_INVALID_BOOLEAN,
 	COMMAND_FAIL_SET_INVALID_INTEGER,
 	COMMAND_FAIL_SET_INVALID_NAME,
+	COMMAND_FAIL_SET_NAME_EXISTS,
+	COMMAND_FAIL_SNAPSHOT_INVALID_NAME,
+	COMMAND_FAIL_SNAPSHOT_NOT_FOUND,
 	COMMAND_FAIL_NO_RECORD,
 	COMMAND_FAIL_TELEPORT,
 	COMMAND_FAIL_TELEPORT_WORLD_INVALID,
@@ -42,7 +47,9 @@ public enum MessageId {
 	COMMAND_SUCCESS_CLOSEST,
 	COMMAND_SUCCESS_CREATE,
 	COMMAND_SUCCESS_DELETE,
+	COMMAND_SUCCESS_EXPORT,
 	COMMAND_SUCCESS_FORGET,
+	COMMAND_SUCCESS_IMPORT,
 	COMMAND_SUCCESS_RELOAD,
 	COMMAND_SUCCESS_TELEPORT,
 
@@ -63,8 +70,10 @@ public enum MessageId {
 	COMMAND_HELP_CLOSEST,
 	COMMAND_HELP_CREATE,
 	COMMAND_HELP_DELETE,
+	COMMAND_HELP_EXPORT,
 	COMMAND_HELP_FORGET,
 	COMMAND_HELP_HELP,
+	COMMAND_HELP_IMPORT,
 	COMMAND_HELP_LIST,
 	COMMAND_HELP_RELOAD,
 	COMMAND_HELP_SET,
@@ -83,8 +92,10 @@ public enum MessageId {
 	PERMISSION_DENIED_CLOSEST,
 	PERMISSION_DENIED_CREATE,
 	PERMISSION_DENIED_DELETE,
+	PERMISSION_DENIED_EXPORT,
 	PERMISSION_DENIED_FORGET,
 	PERMISSION_DENIED_HELP,
+	PERMISSION_DENIED_IMPORT,
 	PERMISSION_DENIED_LIST,
 	PERMISSION_DENIED_RELOAD,
 	PERMISSION_DENIED_SHOW,
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+
+/**
+ * Takes online backups of the SQLite database at a fixed interval, keeping a number of generations.
+ * Each backup is written with VACUUM INTO on a dedicated connection, which copies a single consistent
+ * snapshot of the database; in write-ahead log mode this does not block the writer. A backup that falls due
+ * while writes are queued is deferred, so that backups run between bursts of discovery writes.
+ */
+final class BackupScheduler {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+	// database url
+	private final String dbUrl;
+
+	// directory backups are written to
+	private final File backupDirectory;
+
+	// interval between backups, in minutes
+	private final long interval;
+
+	// number of backups to keep
+	private final int generations;
+
+	// returns true if writes are waiting to be run
+	private final BooleanSupplier writesPending;
+
+	// thread on which backups run
+	private final ScheduledExecutorService executor;
+
+	// statement of backup in progress, or null if no backup is running
+	private volatile PreparedStatement runningStatement;
+
+	// delay before a deferred backup is attempted again, in seconds
+	private final static long DEFER_DELAY = 5L;
+
+	// number of times a backup is deferred before it runs regardless of pending writes
+	private final static int MAX_DEFERRALS = 12;
+
+	// backup file name prefix and extension
+	private final static String PREFIX = "graveyards-";
+	private final static String EXTENSION = ".db";
+
+	// result of last backup
+	private volatile long lastBackupTime;
+	private volatile long lastDuration;
+	private volatile long lastSize;
+	private volatile int backupCount;
+	private volatile int failureCount;
+	private volatile int deferralCount;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 * @param dbUrl the database url
+	 * @param interval interval between backups, in minutes
+	 * @param generations number of backups to keep
+	 * @param writesPending returns true if writes are waiting to be run
+	 */
+	BackupScheduler(final JavaPlugin plugin,
+	                final String dbUrl,
+	                final long interval,
+	                final int generations,
+	                final BooleanSupplier writesPending) {
+		this.plugin = plugin;
+		this.dbUrl = dbUrl;
+		this.backupDirectory = new File(plugin.getDataFolder(), "backups");
+		this.interval = interval;
+		this.generations = Math.max(1, generations);
+		this.writesPending = writesPending;
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, plugin.getName() + "-backup");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	}
+
+
+	/**
+	 * Schedule backups at the configured interval, starting one interval from now
+	 */
+	void start() {
+		executor.scheduleWithFixedDelay(() -> runWhenIdle(0), interval, interval, TimeUnit.MINUTES);
+	}
+
+
+	/**
+	 * Run a backup if no writes are pending, or defer it until the next attempt
+	 *
+	 * @param deferrals the number of times this backup has been deferred
+	 */
+	private void runWhenIdle(final int deferrals) {
+		if (writesPending.getAsBoolean() && deferrals < MAX_DEFERRALS && !executor.isShutdown()) {
+			deferralCount++;
+			executor.schedule(() -> runWhenIdle(deferrals + 1), DEFER_DELAY, TimeUnit.SECONDS);
+			return;
+		}
+		backup();
+	}
+
+
+	/**
+	 * Write a backup of the database on the calling thread, and delete backups exceeding the number of generations
+	 *
+	 * @return true if the backup was written, false if an error occurred
+	 */
+	boolean backup() {
+
+		long startTime = System.nanoTime();
+		File backupFile = new File(backupDirectory,
+				PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + EXTENSION);
+		File tempFile = new File(backupDirectory, backupFile.getName() + ".tmp");
+
+		try {
+			Files.createDirectories(backupDirectory.toPath());
+			Files.deleteIfExists(tempFile.toPath());
+
+			// write consistent copy of database to temporary file
+			try (Connection connection = DriverManager.getConnection(dbUrl);
+			     PreparedStatement statement = connection.prepareStatement(Queries.getQuery("VacuumInto"))) {
+				statement.setString(1, tempFile.getPath());
+				runningStatement = statement;
+				statement.executeUpdate();
+			}
+			finally {
+				runningStatement = null;
+			}
+
+			// move completed backup into place, so that an interrupted backup never replaces a generation
+			Files.move(tempFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+			lastDuration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+			lastSize = backupFile.length();
+			lastBackupTime = System.currentTimeMillis();
+			backupCount++;
+
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().info("Database backup " + backupFile.getName() + " written in "
+						+ lastDuration + " ms.");
+			}
+
+			deleteOldGenerations();
+			return true;
+		}
+		catch (SQLException | IOException e) {
+			failureCount++;
+			plugin.getLogger().warning("An error occurred while writing database backup " + backupFile.getName() + ".");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+			if (!tempFile.delete()) {
+				tempFile.deleteOnExit();
+			}
+			return false;
+		}
+	}
+
+
+	/**
+	 * Delete oldest backups exceeding the number of generations to keep
+	 */
+	private void deleteOldGenerations() {
+
+		File[] backups = backupDirectory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(EXTENSION));
+		if (backups == null || backups.length <= generations) {
+			return;
+		}
+
+		// timestamped names sort oldest first
+		Arrays.sort(backups);
+		for (int i = 0; i < backups.length - generations; i++) {
+			if (!backups[i].delete()) {
+				plugin.getLogger().warning("Could not delete old database backup " + backups[i].getName() + ".");
+			}
+		}
+	}
+
+
+	/**
+	 * Cancel scheduled backups, interrupting a backup in progress
+	 */
+	void close() {
+
+		executor.shutdownNow();
+
+		PreparedStatement statement = runningStatement;
+		if (statement != null) {
+			try {
+				statement.cancel();
+			}
+			catch (SQLException e) {
+				// backup is abandoned regardless
+			}
+		}
+
+		try {
+			executor.awaitTermination(10L, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Get backup status for display
+	 *
+	 * @return a description of the backup schedule and the last backup
+	 */
+	String getStatus() {
+
+		String status = "every " + interval + " min, " + generations + " kept, " + backupCount + " written, "
+				+ failureCount + " failed, " + deferralCount + " deferred";
+
+		if (lastBackupTime > 0) {
+			status += String.format(", last %s took %d ms, %d KiB",
+					new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(lastBackupTime)),
+					lastDuration, lastSize / 1024);
+		}
+
+		return status;
+	}
+
+}
@@ -23,6 +23,11 @@ import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 
 /**
@@ -66,6 +71,88 @@ public interface DataStore {
 	void sync();
 
 
+	/**
+	 * Get executor on which asynchronous datastore operations are run
+	 *
+	 * @return the executor
+	 */
+	Executor getExecutor();
+
+
+	/**
+	 * Get graveyard record asynchronously
+	 *
+	 * @param displayName the name of the Graveyard to be retrieved
+	 * @return CompletableFuture of Optional Graveyard, completed on the datastore executor
+	 */
+	default CompletableFuture<Optional<Graveyard>> selectGraveyardAsync(final String displayName) {
+		return CompletableFuture.supplyAsync(() -> selectGraveyard(displayName), getExecutor());
+	}
+
+
+	/**
+	 * Get all graveyard records asynchronously
+	 *
+	 * @return CompletableFuture of Collection of Graveyards, completed on the datastore executor
+	 */
+	default CompletableFuture<Collection<Graveyard>> selectAllGraveyardsAsync() {
+		return CompletableFuture.supplyAsync(this::selectAllGraveyards, getExecutor());
+	}
+
+
+	/**
+	 * Get undiscovered graveyard keys for player asynchronously
+	 *
+	 * @param player the player for whom to retrieve undiscovered Graveyard keys
+	 * @return CompletableFuture of Collection of String, completed on the datastore executor
+	 */
+	default CompletableFuture<Collection<String>> selectUndiscoveredKeysAsync(final Player player) {
+		return CompletableFuture.supplyAsync(() -> selectUndiscoveredKeys(player), getExecutor());
+	}
+
+
+	/**
+	 * Delete discovery record asynchronously
+	 *
+	 * @param displayName display name or search key of record to be deleted
+	 * @param playerUid player uuid
+	 * @return CompletableFuture of Boolean - true if record was deleted, completed on the datastore executor
+	 */
+	default CompletableFuture<Boolean> deleteDiscoveryAsync(final String displayName, final UUID playerUid) {
+		return CompletableFuture.supplyAsync(() -> deleteDiscovery(displayName, playerUid), getExecutor());
+	}
+
+
+	/**
+	 * Write all records to a snapshot file asynchronously
+	 *
+	 * @param snapshot the snapshot to write
+	 * @return CompletableFuture of Boolean - true if snapshot was written, completed on the datastore executor
+	 */
+	default CompletableFuture<Boolean> exportSnapshotAsync(final DataStoreSnapshot snapshot) {
+		return CompletableFuture.supplyAsync(() -> snapshot.write(this), getExecutor());
+	}
+
+
+	/**
+	 * Insert all records from a snapshot file asynchronously
+	 *
+	 * @param snapshot the snapshot to read
+	 * @return CompletableFuture of Boolean - true if snapshot was read, completed on the datastore executor
+	 */
+	default CompletableFuture<Boolean> importSnapshotAsync(final DataStoreSnapshot snapshot) {
+		return CompletableFuture.supplyAsync(() -> snapshot.read(this), getExecutor());
+	}
+
+
+	/**
+	 * Get datastore status for display, as ordered label and value pairs
+	 *
+	 * @return Map of String - the status labels and values
+	 */
+	Map<String, String> getStatus();
+
+
 	/**
 	 * Delete datastore
 	 */
@@ -85,8 +172,14 @@ public interface DataStore {
 		// get data store type from config
 		DataStoreType dataStoreType = DataStoreType.match(plugin.getConfig().getString("storage-type"));
 
-		// get new data store of specified type
-		DataStore newDataStore = dataStoreType.connect(plugin);
+		// get new data store of specified type, with operations timed if configured
+		DataStore backingDataStore = dataStoreType.connect(plugin);
+		if (plugin.getConfig().getBoolean("storage-timing")) {
+			backingDataStore = new DataStoreTiming(backingDataStore);
+		}
+
+		// wrap data store in graveyard cache
+		DataStore newDataStore = new DataStoreCache(plugin, backingDataStore);
 
 		// initialize new data store
 		try {
@@ -100,11 +193,9 @@ public interface DataStore {
 			}
 		}
 
-		// convert any existing data stores to new type
-		DataStoreType.convertAll(plugin, newDataStore);
-
-		// return initialized data store
-		return newDataStore;
+		// convert any existing data stores to new type in the background,
+		// serving operations from existing datastore until conversion completes
+		return DataStoreType.convertAllAsync(plugin, newDataStore);
 	}
 
 
@@ -124,6 +215,10 @@ public interface DataStore {
 		// if current datastore type does not match configured datastore type, create new datastore
 		if (!currentType.equals(newType)) {
 
+			// close current datastore, stopping its threads and tasks and releasing its storage,
+			// so that the storage is opened only by the conversion to the new datastore
+			plugin.dataStore.close();
+
 			// create new datastore
 			plugin.dataStore = connect(plugin);
 		}
@@ -138,6 +233,45 @@ public interface DataStore {
 	Collection<Graveyard> selectAllGraveyards();
 
 
+	/**
+	 * Pass all graveyard records to an action in chunks, reading records from the datastore as they are
+	 * consumed. An exception thrown by the action stops reading and is passed to the caller.
+	 *
+	 * @param chunkSize the maximum number of records passed to each invocation of the action
+	 * @param action the action to which each chunk of records is passed
+	 * @return true if all records were read, false if an error occurred while reading
+	 */
+	default boolean streamGraveyards(final int chunkSize, final Consumer<List<Graveyard>> action) {
+
+		List<Graveyard> chunk = new ArrayList<>(chunkSize);
+
+		for (Graveyard graveyard : selectAllGraveyards()) {
+			chunk.add(graveyard);
+			if (chunk.size() >= chunkSize) {
+				action.accept(chunk);
+				chunk = new ArrayList<>(chunkSize);
+			}
+		}
+
+		if (!chunk.isEmpty()) {
+			action.accept(chunk);
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Pass all discovery records to an action in chunks, reading records from the datastore as they are
+	 * consumed. An exception thrown by the action stops reading and is passed to the caller.
+	 *
+	 * @param chunkSize the maximum number of records passed to each invocation of the action
+	 * @param action the action to which each chunk of records is passed
+	 * @return true if all records were read, false if an error occurred while reading
+	 */
+	boolean streamDiscoveries(final int chunkSize, final Consumer<List<Discovery>> action);
+
+
 	/**
 	 * Get record
 	 *
@@ -191,13 +325,41 @@ public interface DataStore {
 	void insertDiscovery(final Discovery record);
 
 
+	/**
+	 * Load discovery records for player into memory, if supported
+	 *
+	 * @param playerUid the player unique id
+	 */
+	void loadDiscoveries(final UUID playerUid);
+
+
+	/**
+	 * Remove discovery records for player from memory, if supported
+	 *
+	 * @param playerUid the player unique id
+	 */
+	void unloadDiscoveries(final UUID playerUid);
+
+
 	/**
 	 * Insert discovery records
 	 *
 	 * @param insertSet set of records to be inserted
 	 * @return number of records successfully inserted
 	 */
-	int insertDiscoveries(final Collection<Discovery> insertSet);
+	default int insertDiscoveries(final Collection<Discovery> insertSet) {
+		return insertDiscoveries(insertSet, false);
+	}
+
+
+	/**
+	 * Insert discovery records in a single transaction
+	 *
+	 * @param insertSet set of records to be inserted
+	 * @param rollbackOnFailure if {@code true}, no records are inserted if any record fails
+	 * @return number of records successfully inserted
+	 */
+	int insertDiscoveries(final Collection<Discovery> insertSet, final boolean rollbackOnFailure);
 
 
 	/**
@@ -206,7 +368,19 @@ public interface DataStore {
 	 * @param graveyards a collection of graveyard records
 	 * @return int - the number of records successfully inserted
 	 */
-	int insertGraveyards(final Collection<Graveyard> graveyards);
+	default int insertGraveyards(final Collection<Graveyard> graveyards) {
+		return insertGraveyards(graveyards, false);
+	}
+
+
+	/**
+	 * Insert a collection of records in a single transaction
+	 *
+	 * @param graveyards a collection of graveyard records
+	 * @param rollbackOnFailure if {@code true}, no records are inserted if any record fails
+	 * @return int - the number of records successfully inserted
+	 */
+	int insertGraveyards(final Collection<Graveyard> graveyards, final boolean rollbackOnFailure);
 
 
 	/**
@@ -260,4 +434,67 @@ public interface DataStore {
 	 */
 	int selectGraveyardCount();
 
+
+	/**
+	 * Select a count of discovery records in the datastore
+	 *
+	 * @return the count of discovery records in the datastore
+	 */
+	default long selectDiscoveryCount() {
+		final AtomicLong count = new AtomicLong();
+		streamDiscoveries(1000, chunk -> count.addAndGet(chunk.size()));
+		return count.get();
+	}
+
+
+	/**
+	 * Get counts of records in the datastore. The datastore in use keeps its counts up to date as records
+	 * are written, so they may be read from any thread; other datastores count their records on each call.
+	 *
+	 * @return DataStoreStatistics - the counts of records in the datastore
+	 */
+	default DataStoreStatistics getStatistics() {
+		return DataStoreStatistics.count(this);
+	}
+
+
+	/**
+	 * Set listener notified of the change in the count of discovery records made by each write, including
+	 * discoveries deleted with their graveyard, as the write is committed. The listener may be called
+	 * from any thread. Datastores that do not report changes ignore the listener.
+	 *
+	 * @param listener consumer of the number of discovery records added, or negative number removed
+	 */
+	default void setDiscoveryCountListener(final LongConsumer listener) {
+	}
+
+
+	/**
+	 * Get an immutable snapshot of all graveyard records. The datastore in use publishes a new snapshot
+	 * on each change, so that it may be read from any thread without a query or lock; other datastores
+	 * build a snapshot on each call.
+	 *
+	 * @return GraveyardSnapshot - a snapshot of all graveyard records
+	 */
+	default GraveyardSnapshot getSnapshot() {
+		return GraveyardSnapshot.of(selectAllGraveyards());
+	}
+
+
+	/**
+	 * Get latency histograms of datastore operations, if operations are timed
+	 *
+	 * @return Collection of LatencyHistogram - the histograms of each timed operation, or an empty collection
+	 */
+	default Collection<LatencyHistogram> getLatencyHistograms() {
+		return Collections.emptyList();
+	}
+
+
+	/**
+	 * Reset latency histograms of datastore operations, if operations are timed
+	 */
+	default void resetLatencyHistograms() {
+	}
+
 }
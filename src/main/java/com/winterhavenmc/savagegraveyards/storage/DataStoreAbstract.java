@@ -17,6 +17,13 @@
 
 package com.winterhavenmc.savagegraveyards.storage;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
 
 /**
  * Abstract datastore class
@@ -29,6 +36,15 @@ public abstract class DataStoreAbstract implements DataStore {
 	// datastore type
 	DataStoreType type;
 
+	// executor for asynchronous datastore operations, created on first use
+	private ExecutorService executor;
+
+	// listener notified of changes in the count of discovery records
+	private volatile LongConsumer discoveryCountListener;
+
+	// number of threads in executor for asynchronous datastore operations
+	private final static int EXECUTOR_THREADS = 2;
+
 
 	/**
 	 * Get datastore initialized field
@@ -62,6 +78,66 @@ public abstract class DataStoreAbstract implements DataStore {
 	}
 
 
+	/**
+	 * Set listener notified of the change in the count of discovery records made by each write
+	 *
+	 * @param listener consumer of the number of discovery records added, or negative number removed
+	 */
+	@Override
+	public void setDiscoveryCountListener(final LongConsumer listener) {
+		this.discoveryCountListener = listener;
+	}
+
+
+	/**
+	 * Notify listener of a change in the count of discovery records, if any
+	 *
+	 * @param change the number of discovery records added, or negative number removed
+	 */
+	void discoveriesChanged(final long change) {
+		LongConsumer listener = discoveryCountListener;
+		if (listener != null && change != 0) {
+			listener.accept(change);
+		}
+	}
+
+
+	/**
+	 * Get executor for asynchronous datastore operations, creating it on first use
+	 *
+	 * @return the executor
+	 */
+	@Override
+	public synchronized Executor getExecutor() {
+		if (executor == null) {
+			final AtomicInteger threadCount = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(EXECUTOR_THREADS, runnable -> {
+				Thread thread = new Thread(runnable, "SavageGraveyards-storage-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return executor;
+	}
+
+
+	/**
+	 * Shut down executor for asynchronous datastore operations, waiting for submitted operations to complete
+	 */
+	synchronized void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(10L, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			executor = null;
+		}
+	}
+
+
 	/**
 	 * Override toString method to return the datastore type name
 	 *
@@ -0,0 +1,718 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+
+/**
+ * Caching datastore class. Wraps a backing datastore, holding all graveyard records in memory,
+ * along with the discovered graveyard keys of online players.
+ * Reads are served from memory; writes are passed through to the backing datastore.
+ * Discovered graveyards of each player and enabled hidden graveyards of each world are held as bitmaps
+ * of primary keys, so that the undiscovered graveyards of a player are found without a query.
+ * After each change to the graveyard records, an immutable snapshot of all records is published,
+ * from which all graveyards and graveyards by name are read.
+ */
+final class DataStoreCache extends DataStoreAbstract implements DataStore {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+	// backing datastore
+	private final DataStore dataStore;
+
+	// map of graveyards keyed by lower case search key
+	private final Map<String, Graveyard> graveyardMap = new ConcurrentHashMap<>();
+
+	// map of graveyards keyed by primary key
+	private final Map<Integer, Graveyard> primaryKeyMap = new ConcurrentHashMap<>();
+
+	// spatial index of graveyard locations
+	private final GraveyardIndex graveyardIndex = new GraveyardIndex();
+
+	// prefix trie of graveyard search keys
+	private final GraveyardNameTrie nameTrie = new GraveyardNameTrie();
+
+	// bitmaps of discovered graveyard primary keys keyed by player uid
+	private final Map<UUID, DiscoveryBitmap> discoveryMap = new ConcurrentHashMap<>();
+
+	// uids of players whose discoveries are being loaded asynchronously; guards completion of loads against unloads
+	private final Set<UUID> loadingPlayers = new HashSet<>();
+
+	// bitmaps of enabled hidden graveyard primary keys keyed by world uid
+	private final Map<UUID, DiscoveryBitmap> hiddenMap = new ConcurrentHashMap<>();
+
+	// counts of graveyard and discovery records, updated on each write
+	private final DataStoreStatistics statistics = new DataStoreStatistics();
+
+	// immutable snapshot of all graveyard records, replaced on each change
+	private volatile GraveyardSnapshot snapshot = GraveyardSnapshot.EMPTY;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 * @param dataStore the backing datastore
+	 */
+	DataStoreCache(final JavaPlugin plugin, final DataStore dataStore) {
+
+		// reference to main class
+		this.plugin = plugin;
+
+		// set backing datastore
+		this.dataStore = dataStore;
+
+		// set datastore type to type of backing datastore
+		this.type = dataStore.getType();
+	}
+
+
+	@Override
+	public void initialize() throws Exception {
+
+		// if cache is already initialized, do nothing and return
+		if (this.isInitialized()) {
+			return;
+		}
+
+		// initialize backing datastore if necessary
+		if (!dataStore.isInitialized()) {
+			dataStore.initialize();
+		}
+
+		// count discovery records as they are written by backing datastore
+		dataStore.setDiscoveryCountListener(statistics::discoveriesChanged);
+
+		// load all graveyard records into cache
+		load();
+
+		// load discoveries of players already online, as after a reload, since they will not log in again
+		plugin.getServer().getOnlinePlayers().forEach(player -> loadDiscoveriesAsync(player.getUniqueId()));
+
+		// set initialized true
+		setInitialized(true);
+	}
+
+
+	/**
+	 * Load all graveyard records from backing datastore into cache
+	 */
+	private void load() {
+
+		// clear any existing records
+		graveyardMap.clear();
+		primaryKeyMap.clear();
+		graveyardIndex.clear();
+		nameTrie.clear();
+		discoveryMap.clear();
+		hiddenMap.clear();
+		statistics.clear();
+
+		// put all graveyard records from backing datastore in maps, spatial index and name trie
+		for (Graveyard graveyard : dataStore.selectAllGraveyards()) {
+			graveyardMap.put(createMapKey(graveyard.getSearchKey()), graveyard);
+			primaryKeyMap.put(graveyard.getPrimaryKey(), graveyard);
+			graveyardIndex.add(graveyard);
+			nameTrie.add(graveyard.getSearchKey());
+			addHidden(graveyard);
+			statistics.graveyardAdded(graveyard);
+		}
+
+		// count discovery records in backing datastore once; counts are then updated as records are written
+		statistics.setDiscoveryCount(dataStore.selectDiscoveryCount());
+
+		publishSnapshot();
+
+		if (plugin.getConfig().getBoolean("debug")) {
+			plugin.getLogger().info(graveyardMap.size() + " graveyard records loaded into cache.");
+		}
+	}
+
+
+	/**
+	 * Put a graveyard record in the cache, replacing any record with the same primary key
+	 *
+	 * @param graveyard the graveyard record to put in the cache
+	 */
+	private void put(final Graveyard graveyard) {
+
+		// get copy of record with current world name
+		Graveyard current = withCurrentWorldName(graveyard);
+
+		// remove any existing record with same primary key, in case search key has changed
+		Graveyard existing = primaryKeyMap.put(graveyard.getPrimaryKey(), current);
+		if (existing != null) {
+			graveyardMap.remove(createMapKey(existing.getSearchKey()));
+			nameTrie.remove(existing.getSearchKey());
+			removeHidden(existing);
+			statistics.graveyardRemoved(existing);
+		}
+
+		// put record in map and name trie
+		graveyardMap.put(createMapKey(graveyard.getSearchKey()), current);
+		nameTrie.add(graveyard.getSearchKey());
+
+		// put record in spatial index, replacing any existing record with same primary key
+		graveyardIndex.add(current);
+
+		// put record in hidden graveyard bitmap of world, if enabled and hidden
+		addHidden(current);
+
+		// count record, in its current world
+		statistics.graveyardAdded(current);
+	}
+
+
+	/**
+	 * Publish a snapshot of the cached graveyard records. Synchronized so that a snapshot built
+	 * from older records is never published after one built from newer records.
+	 */
+	private synchronized void publishSnapshot() {
+		snapshot = GraveyardSnapshot.of(primaryKeyMap.values());
+	}
+
+
+	/**
+	 * Add a graveyard to the hidden graveyard bitmap of its world, if it is enabled and hidden
+	 *
+	 * @param graveyard the graveyard record
+	 */
+	private void addHidden(final Graveyard graveyard) {
+		if (graveyard.isEnabled() && graveyard.isHidden() && graveyard.getWorldUid() != null) {
+			hiddenMap.computeIfAbsent(graveyard.getWorldUid(), k -> new DiscoveryBitmap())
+					.add(graveyard.getPrimaryKey());
+		}
+	}
+
+
+	/**
+	 * Remove a graveyard from the hidden graveyard bitmap of its world
+	 *
+	 * @param graveyard the graveyard record
+	 */
+	private void removeHidden(final Graveyard graveyard) {
+		if (graveyard.getWorldUid() != null) {
+			DiscoveryBitmap hidden = hiddenMap.get(graveyard.getWorldUid());
+			if (hidden != null) {
+				hidden.remove(graveyard.getPrimaryKey());
+			}
+		}
+	}
+
+
+	/**
+	 * Get a copy of a graveyard record with world name set to the current name of the world, if loaded
+	 *
+	 * @param graveyard the graveyard record
+	 * @return Graveyard - a graveyard record with current world name
+	 */
+	private Graveyard withCurrentWorldName(final Graveyard graveyard) {
+
+		// if world uid is null, return unchanged record
+		if (graveyard.getWorldUid() == null) {
+			return graveyard;
+		}
+
+		// get world by uid
+		World world = plugin.getServer().getWorld(graveyard.getWorldUid());
+
+		// if world is null or name is unchanged, return unchanged record
+		if (world == null || world.getName().equals(graveyard.getWorldName())) {
+			return graveyard;
+		}
+
+		// return copy of record with current world name
+		return new Graveyard.Builder(graveyard)
+				.worldName(world.getName())
+				.build();
+	}
+
+
+	/**
+	 * Get discovered graveyard primary keys for player. If not cached, discoveries are loaded from the backing
+	 * datastore asynchronously, and the player is treated as having no discoveries until they are loaded,
+	 * so that the calling thread never waits on the backing datastore.
+	 *
+	 * @param playerUid the player unique id
+	 * @return DiscoveryBitmap - primary keys of graveyards discovered by player
+	 */
+	private DiscoveryBitmap getDiscoveries(final UUID playerUid) {
+
+		DiscoveryBitmap discoveries = discoveryMap.get(playerUid);
+
+		if (discoveries == null) {
+			loadDiscoveriesAsync(playerUid);
+			return new DiscoveryBitmap();
+		}
+
+		return discoveries;
+	}
+
+
+	/**
+	 * Load discoveries of player into cache asynchronously, unless already being loaded.
+	 * Discoveries are not cached if the player is unloaded before the load completes.
+	 *
+	 * @param playerUid the player unique id
+	 */
+	private void loadDiscoveriesAsync(final UUID playerUid) {
+
+		synchronized (loadingPlayers) {
+			if (!loadingPlayers.add(playerUid)) {
+				return;
+			}
+		}
+
+		try {
+			getExecutor().execute(() -> {
+				DiscoveryBitmap discoveries = null;
+				try {
+					dataStore.loadDiscoveries(playerUid);
+					discoveries = fetchDiscoveries(playerUid);
+				}
+				finally {
+					synchronized (loadingPlayers) {
+						if (loadingPlayers.remove(playerUid) && discoveries != null) {
+							discoveryMap.putIfAbsent(playerUid, discoveries);
+						}
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			synchronized (loadingPlayers) {
+				loadingPlayers.remove(playerUid);
+			}
+		}
+	}
+
+
+	/**
+	 * Fetch discovered graveyard primary keys for player from backing datastore
+	 *
+	 * @param playerUid the player unique id
+	 * @return DiscoveryBitmap - primary keys of graveyards discovered by player
+	 */
+	private DiscoveryBitmap fetchDiscoveries(final UUID playerUid) {
+
+		DiscoveryBitmap discoveries = new DiscoveryBitmap();
+
+		// translate discovered search keys to primary keys of cached graveyards
+		for (String searchKey : dataStore.selectDiscoveredKeys(playerUid)) {
+			Graveyard graveyard = graveyardMap.get(createMapKey(searchKey));
+			if (graveyard != null) {
+				discoveries.add(graveyard.getPrimaryKey());
+			}
+		}
+
+		return discoveries;
+	}
+
+
+	/**
+	 * Create a map key from a graveyard display name or search key
+	 *
+	 * @param displayName the display name or search key
+	 * @return String - the lower case search key
+	 */
+	private static String createMapKey(final String displayName) {
+		return Graveyard.createSearchKey(displayName).toLowerCase();
+	}
+
+
+	@Override
+	public void close() {
+
+		// wait for submitted asynchronous operations to complete
+		shutdownExecutor();
+
+		// close backing datastore
+		dataStore.close();
+
+		// clear cache
+		graveyardMap.clear();
+		primaryKeyMap.clear();
+		graveyardIndex.clear();
+		nameTrie.clear();
+		discoveryMap.clear();
+		hiddenMap.clear();
+		statistics.clear();
+		snapshot = GraveyardSnapshot.EMPTY;
+
+		setInitialized(false);
+	}
+
+
+	@Override
+	public void sync() {
+		dataStore.sync();
+	}
+
+
+	@Override
+	public Map<String, String> getStatus() {
+		return dataStore.getStatus();
+	}
+
+
+	@Override
+	public boolean delete() {
+		return dataStore.delete();
+	}
+
+
+	@Override
+	public Collection<Graveyard> selectAllGraveyards() {
+
+		// return list of all records in snapshot, in alphabetical order
+		return snapshot.getGraveyards();
+	}
+
+
+	@Override
+	public GraveyardSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+
+	@Override
+	public boolean streamDiscoveries(final int chunkSize, final Consumer<List<Discovery>> action) {
+
+		// discoveries are read from backing datastore, since only those of online players are cached
+		return dataStore.streamDiscoveries(chunkSize, action);
+	}
+
+
+	@Override
+	public Optional<Graveyard> selectGraveyard(final String displayName) {
+		return snapshot.getGraveyard(displayName);
+	}
+
+
+	@Override
+	public Collection<Graveyard> selectUndiscoveredGraveyards(final Player player) {
+
+		// if player is null, return empty set
+		if (player == null) {
+			return Collections.emptySet();
+		}
+
+		// get enabled hidden graveyards in player world
+		final DiscoveryBitmap hidden = hiddenMap.get(player.getWorld().getUID());
+		if (hidden == null) {
+			return Collections.emptySet();
+		}
+
+		// return enabled hidden graveyards in player world that player has not discovered
+		return hidden.andNot(getDiscoveries(player.getUniqueId())).keys()
+				.mapToObj(primaryKeyMap::get)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toSet());
+	}
+
+
+	@Override
+	public Collection<String> selectUndiscoveredKeys(final Player player) {
+		return selectUndiscoveredGraveyards(player).stream()
+				.map(Graveyard::getSearchKey)
+				.collect(Collectors.toSet());
+	}
+
+
+	@Override
+	public Optional<Graveyard> selectNearestGraveyard(final Player player) {
+
+		// if player is null, return empty optional
+		if (player == null) {
+			return Optional.empty();
+		}
+
+		// get primary keys of graveyards discovered by player
+		final DiscoveryBitmap discoveries = getDiscoveries(player.getUniqueId());
+
+		// search spatial index for nearest graveyard valid for player
+		return graveyardIndex.nearest(player.getLocation(), graveyard -> graveyard.isEnabled()
+				&& (!graveyard.isHidden() || discoveries.contains(graveyard.getPrimaryKey()))
+				&& isGroupMember(player, graveyard));
+	}
+
+
+	/**
+	 * Check if player has permission for graveyard group
+	 *
+	 * @param player the player
+	 * @param graveyard the graveyard
+	 * @return boolean - {@code true} if graveyard has no group or player has group permission, {@code false} if not
+	 */
+	private static boolean isGroupMember(final Player player, final Graveyard graveyard) {
+		String groupName = graveyard.getGroup();
+		return groupName == null || groupName.isEmpty() || player.hasPermission("group." + groupName);
+	}
+
+
+	@Override
+	public List<String> selectMatchingGraveyardNames(final String match) {
+
+		// if match is null, return empty list
+		if (match == null) {
+			return Collections.emptyList();
+		}
+
+		// return search keys with matching prefix from name trie, in ranked order
+		return nameTrie.match(match);
+	}
+
+
+	@Override
+	public void insertDiscovery(final Discovery record) {
+
+		// if record is null, do nothing and return
+		if (record == null) {
+			return;
+		}
+
+		// insert record in backing datastore
+		dataStore.insertDiscovery(record);
+
+		// add discovery to cache, if discoveries of player are cached
+		cacheDiscovery(record);
+	}
+
+
+	@Override
+	public int insertDiscoveries(final Collection<Discovery> insertSet, final boolean rollbackOnFailure) {
+
+		// insert records in backing datastore
+		int count = dataStore.insertDiscoveries(insertSet, rollbackOnFailure);
+
+		// reload cached discoveries for affected players, as committed by backing datastore
+		if (insertSet != null) {
+			insertSet.stream()
+					.map(Discovery::getPlayerUid)
+					.distinct()
+					.filter(discoveryMap::containsKey)
+					.forEach(this::loadDiscoveries);
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Add a discovery to the cache, if discoveries for the player are cached
+	 *
+	 * @param record the discovery record
+	 */
+	private void cacheDiscovery(final Discovery record) {
+
+		DiscoveryBitmap discoveries = discoveryMap.get(record.getPlayerUid());
+		Graveyard graveyard = graveyardMap.get(createMapKey(record.getSearchKey()));
+
+		if (discoveries != null && graveyard != null) {
+			discoveries.add(graveyard.getPrimaryKey());
+		}
+	}
+
+
+	@Override
+	public void loadDiscoveries(final UUID playerUid) {
+		if (playerUid != null) {
+			dataStore.loadDiscoveries(playerUid);
+			discoveryMap.put(playerUid, fetchDiscoveries(playerUid));
+		}
+	}
+
+
+	@Override
+	public void unloadDiscoveries(final UUID playerUid) {
+		if (playerUid != null) {
+			synchronized (loadingPlayers) {
+				loadingPlayers.remove(playerUid);
+				discoveryMap.remove(playerUid);
+			}
+			dataStore.unloadDiscoveries(playerUid);
+		}
+	}
+
+
+	@Override
+	public int insertGraveyards(final Collection<Graveyard> graveyards, final boolean rollbackOnFailure) {
+
+		// insert records in backing datastore
+		int count = dataStore.insertGraveyards(graveyards, rollbackOnFailure);
+
+		// if graveyard collection is null, return count
+		if (graveyards == null) {
+			return count;
+		}
+
+		// put inserted records in cache, as stored with assigned primary keys
+		for (Graveyard graveyard : graveyards) {
+			dataStore.selectGraveyard(graveyard.getSearchKey()).ifPresent(this::put);
+		}
+
+		publishSnapshot();
+
+		return count;
+	}
+
+
+	@Override
+	public void updateGraveyard(final Graveyard graveyard) {
+
+		// if graveyard is null do nothing and return
+		if (graveyard == null) {
+			return;
+		}
+
+		// if search key is in use by another graveyard, do nothing and return
+		Graveyard existing = graveyardMap.get(createMapKey(graveyard.getSearchKey()));
+		if (existing != null && existing.getPrimaryKey() != graveyard.getPrimaryKey()) {
+			plugin.getLogger().warning("Could not update graveyard record '" + graveyard.getDisplayName()
+					+ "' in the " + this + " datastore because the name is already in use.");
+			return;
+		}
+
+		// update record in backing datastore
+		dataStore.updateGraveyard(graveyard);
+
+		// update record in cache
+		put(graveyard);
+		publishSnapshot();
+	}
+
+
+	@Override
+	public Optional<Graveyard> deleteGraveyard(final String displayName) {
+
+		// if displayName is null, return empty optional
+		if (displayName == null) {
+			return Optional.empty();
+		}
+
+		// remove record from cache
+		Graveyard cached = graveyardMap.remove(createMapKey(displayName));
+		if (cached != null) {
+			primaryKeyMap.remove(cached.getPrimaryKey());
+			graveyardIndex.remove(cached.getPrimaryKey());
+			nameTrie.remove(cached.getSearchKey());
+			removeHidden(cached);
+			statistics.graveyardRemoved(cached);
+
+			// remove discoveries of deleted graveyard, as cascaded in backing datastore
+			discoveryMap.values().forEach(discoveries -> discoveries.remove(cached.getPrimaryKey()));
+
+			publishSnapshot();
+		}
+
+		// delete record from backing datastore; discoveries deleted with it are counted by the backing datastore
+		Optional<Graveyard> deleted = dataStore.deleteGraveyard(displayName);
+
+		// return deleted record
+		return deleted.isPresent() ? deleted : Optional.ofNullable(cached);
+	}
+
+
+	@Override
+	public boolean deleteDiscovery(final String displayName, final UUID playerUid) {
+
+		// delete record from backing datastore
+		boolean result = dataStore.deleteDiscovery(displayName, playerUid);
+
+		// remove discovery from cache
+		if (result) {
+			DiscoveryBitmap discoveries = discoveryMap.get(playerUid);
+			Graveyard graveyard = graveyardMap.get(createMapKey(displayName));
+			if (discoveries != null && graveyard != null) {
+				discoveries.remove(graveyard.getPrimaryKey());
+			}
+		}
+
+		return result;
+	}
+
+
+	@Override
+	public Collection<String> selectDiscoveredKeys(final UUID playerUid) {
+
+		// if playerUid is null, return empty set
+		if (playerUid == null) {
+			return Collections.emptySet();
+		}
+
+		// if discoveries for player are not cached, select from backing datastore
+		DiscoveryBitmap discoveries = discoveryMap.get(playerUid);
+		if (discoveries == null) {
+			return dataStore.selectDiscoveredKeys(playerUid);
+		}
+
+		// return search keys of discovered graveyards
+		return discoveries.keys()
+				.mapToObj(primaryKeyMap::get)
+				.filter(Objects::nonNull)
+				.map(Graveyard::getSearchKey)
+				.collect(Collectors.toSet());
+	}
+
+
+	@Override
+	public Collection<String> selectPlayersWithDiscoveries() {
+		return dataStore.selectPlayersWithDiscoveries();
+	}
+
+
+	@Override
+	public int selectGraveyardCount() {
+		return statistics.getGraveyardCount();
+	}
+
+
+	@Override
+	public long selectDiscoveryCount() {
+		return statistics.getDiscoveryCount();
+	}
+
+
+	@Override
+	public DataStoreStatistics getStatistics() {
+		return statistics;
+	}
+
+
+	@Override
+	public Collection<LatencyHistogram> getLatencyHistograms() {
+		return dataStore.getLatencyHistograms();
+	}
+
+
+	@Override
+	public void resetLatencyHistograms() {
+		dataStore.resetLatencyHistograms();
+	}
+
+}
@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+
+/**
+ * Datastore that converts existing datastores to a new datastore in the background. Until the conversion
+ * is complete, all operations are served by the first existing datastore. Writes are also recorded in a journal,
+ * which is replayed on the new datastore when all records have been copied, before operations switch to it.
+ * If the conversion does not complete, the existing datastore remains in use and is converted at next startup.
+ */
+final class DataStoreConversion extends DataStoreAbstract implements DataStore {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+	// existing datastores to convert; the first serves operations until the conversion is complete
+	private final List<DataStore> oldDataStores;
+
+	// datastore that records are converted to
+	private final DataStore newDataStore;
+
+	// datastore currently serving operations
+	private volatile DataStore current;
+
+	// writes to be replayed on new datastore, or null if writes are not being recorded; guarded by writeLock
+	private List<Consumer<DataStore>> journal;
+
+	// lock ordering writes with the switch to the new datastore
+	private final Object writeLock = new Object();
+
+	// converter for the datastore being copied
+	private volatile DataStoreConverter converter;
+
+	// true if the conversion should stop
+	private volatile boolean cancelled;
+
+	// conversion state, for status display
+	private volatile String state = "pending";
+
+	// released when background conversion has finished
+	private final CountDownLatch finished = new CountDownLatch(1);
+
+	// time to wait for background conversion to stop when closing, in seconds
+	private final static long CLOSE_TIMEOUT = 60L;
+
+	// number of recorded writes at or below which the rest of the journal is replayed while switching datastores
+	private final static int FINAL_REPLAY_SIZE = 16;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 * @param oldDataStores the existing datastores to convert, in order; the first serves operations until
+	 *                      the conversion is complete, and must be initialized by this datastore
+	 * @param newDataStore the initialized datastore to convert to
+	 */
+	DataStoreConversion(final JavaPlugin plugin, final List<DataStore> oldDataStores, final DataStore newDataStore) {
+		this.plugin = plugin;
+		this.oldDataStores = List.copyOf(oldDataStores);
+		this.newDataStore = newDataStore;
+		this.current = oldDataStores.get(0);
+
+		// report type of new datastore, so that a reload does not restart the conversion
+		this.type = newDataStore.getType();
+	}
+
+
+	/**
+	 * Initialize the serving datastore and start the conversion in the background
+	 *
+	 * @throws Exception if the serving datastore cannot be initialized
+	 */
+	@Override
+	public void initialize() throws Exception {
+
+		// if data store is already initialized, do nothing and return
+		if (this.isInitialized()) {
+			return;
+		}
+
+		current.initialize();
+
+		// record writes from now on
+		synchronized (writeLock) {
+			journal = new ArrayList<>();
+		}
+
+		state = "in progress";
+		plugin.getServer().getScheduler().runTaskAsynchronously(plugin, this::convert);
+
+		setInitialized(true);
+	}
+
+
+	/**
+	 * Copy records from each existing datastore, then replay recorded writes and switch to the new datastore
+	 */
+	private void convert() {
+
+		try {
+			boolean complete = true;
+
+			for (DataStore oldDataStore : oldDataStores) {
+				converter = new DataStoreConverter(plugin, oldDataStore, newDataStore, () -> cancelled);
+				if (!converter.copy()) {
+					complete = false;
+					break;
+				}
+			}
+
+			if (!complete) {
+
+				// stop recording writes; existing datastore remains in use
+				synchronized (writeLock) {
+					journal = null;
+				}
+
+				// close existing datastores that are not serving operations
+				oldDataStores.stream().skip(1).forEach(DataStore::close);
+				state = "incomplete";
+				return;
+			}
+
+			// replay writes made during conversion in batches outside the write lock, so that writes are not
+			// blocked by the replay, then replay the last few writes and switch to new datastore under the lock
+			int replayed = 0;
+			while (true) {
+				List<Consumer<DataStore>> batch;
+				synchronized (writeLock) {
+					if (journal.size() <= FINAL_REPLAY_SIZE) {
+						for (Consumer<DataStore> write : journal) {
+							write.accept(newDataStore);
+						}
+						replayed += journal.size();
+						journal = null;
+						current = newDataStore;
+						break;
+					}
+					batch = journal;
+					journal = new ArrayList<>();
+				}
+				for (Consumer<DataStore> write : batch) {
+					write.accept(newDataStore);
+				}
+				replayed += batch.size();
+			}
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().info(replayed + " writes made during conversion replayed.");
+			}
+
+			// close and delete existing datastores
+			for (DataStore oldDataStore : oldDataStores) {
+				oldDataStore.close();
+				oldDataStore.delete();
+			}
+
+			state = "complete";
+			plugin.getLogger().info("Conversion complete; now using " + newDataStore + " datastore.");
+		}
+		catch (RuntimeException e) {
+
+			synchronized (writeLock) {
+				journal = null;
+			}
+			state = "failed";
+
+			plugin.getLogger().warning("An error occurred while converting to the " + newDataStore + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			finished.countDown();
+		}
+	}
+
+
+	/**
+	 * Perform a write on the serving datastore, recording it for replay on the new datastore
+	 * if the conversion is in progress
+	 *
+	 * @param write the write, as applied to a datastore
+	 * @param replay the write, as replayed on the new datastore
+	 * @param <T> the result type of the write
+	 * @return the result of the write on the serving datastore
+	 */
+	private <T> T write(final Function<DataStore, T> write, final Supplier<Consumer<DataStore>> replay) {
+		synchronized (writeLock) {
+			if (journal != null) {
+				journal.add(replay.get());
+			}
+			return write.apply(current);
+		}
+	}
+
+
+	@Override
+	public void close() {
+
+		// wait for submitted asynchronous operations to complete
+		shutdownExecutor();
+
+		// stop conversion and wait for it to finish
+		cancelled = true;
+		if (isInitialized()) {
+			try {
+				if (!finished.await(CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+					plugin.getLogger().warning("Conversion to " + newDataStore + " datastore did not stop within "
+							+ CLOSE_TIMEOUT + " seconds.");
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		// close serving datastore, and new datastore if it is not serving
+		current.close();
+		if (current != newDataStore) {
+			newDataStore.close();
+		}
+
+		setInitialized(false);
+	}
+
+
+	@Override
+	public void sync() {
+		current.sync();
+	}
+
+
+	@Override
+	public Map<String, String> getStatus() {
+
+		Map<String, String> status = new LinkedHashMap<>(current.getStatus());
+
+		String conversion = "to " + newDataStore + " " + state;
+		DataStoreConverter activeConverter = converter;
+		if (activeConverter != null) {
+			conversion += ", " + activeConverter.getGraveyardCount() + " graveyards and "
+					+ activeConverter.getDiscoveryCount() + " discoveries copied";
+		}
+		status.put("Conversion", conversion);
+
+		return status;
+	}
+
+
+	@Override
+	public boolean delete() {
+		return current.delete();
+	}
+
+
+	@Override
+	public Collection<Graveyard> selectAllGraveyards() {
+		return current.selectAllGraveyards();
+	}
+
+
+	@Override
+	public boolean streamGraveyards(final int chunkSize, final Consumer<List<Graveyard>> action) {
+		return current.streamGraveyards(chunkSize, action);
+	}
+
+
+	@Override
+	public boolean streamDiscoveries(final int chunkSize, final Consumer<List<Discovery>> action) {
+		return current.streamDiscoveries(chunkSize, action);
+	}
+
+
+	@Override
+	public Optional<Graveyard> selectGraveyard(final String displayName) {
+		return current.selectGraveyard(displayName);
+	}
+
+
+	@Override
+	public Collection<Graveyard> selectUndiscoveredGraveyards(final Player player) {
+		return current.selectUndiscoveredGraveyards(player);
+	}
+
+
+	@Override
+	public Collection<String> selectUndiscoveredKeys(final Player player) {
+		return current.selectUndiscoveredKeys(player);
+	}
+
+
+	@Override
+	public Optional<Graveyard> selectNearestGraveyard(final Player player) {
+		return current.selectNearestGraveyard(player);
+	}
+
+
+	@Override
+	public List<String> selectMatchingGraveyardNames(final String match) {
+		return current.selectMatchingGraveyardNames(match);
+	}
+
+
+	@Override
+	public Collection<String> selectDiscoveredKeys(final UUID playerUid) {
+		return current.selectDiscoveredKeys(playerUid);
+	}
+
+
+	@Override
+	public Collection<String> selectPlayersWithDiscoveries() {
+		return current.selectPlayersWithDiscoveries();
+	}
+
+
+	@Override
+	public int selectGraveyardCount() {
+		return current.selectGraveyardCount();
+	}
+
+
+	@Override
+	public long selectDiscoveryCount() {
+		return current.selectDiscoveryCount();
+	}
+
+
+	@Override
+	public DataStoreStatistics getStatistics() {
+		return current.getStatistics();
+	}
+
+
+	@Override
+	public GraveyardSnapshot getSnapshot() {
+		return current.getSnapshot();
+	}
+
+
+	@Override
+	public Collection<LatencyHistogram> getLatencyHistograms() {
+		return current.getLatencyHistograms();
+	}
+
+
+	@Override
+	public void resetLatencyHistograms() {
+		current.resetLatencyHistograms();
+	}
+
+
+	@Override
+	public void loadDiscoveries(final UUID playerUid) {
+		synchronized (writeLock) {
+			current.loadDiscoveries(playerUid);
+
+			// also load into new datastore, so that its cache is kept current as discoveries are copied
+			if (current != newDataStore) {
+				newDataStore.loadDiscoveries(playerUid);
+			}
+		}
+	}
+
+
+	@Override
+	public void unloadDiscoveries(final UUID playerUid) {
+		synchronized (writeLock) {
+			current.unloadDiscoveries(playerUid);
+			if (current != newDataStore) {
+				newDataStore.unloadDiscoveries(playerUid);
+			}
+		}
+	}
+
+
+	@Override
+	public void insertDiscovery(final Discovery record) {
+		write(dataStore -> {
+			dataStore.insertDiscovery(record);
+			return null;
+		}, () -> dataStore -> dataStore.insertDiscovery(record));
+	}
+
+
+	@Override
+	public int insertDiscoveries(final Collection<Discovery> insertSet, final boolean rollbackOnFailure) {
+		return write(dataStore -> dataStore.insertDiscoveries(insertSet, rollbackOnFailure),
+				() -> dataStore -> dataStore.insertDiscoveries(insertSet, rollbackOnFailure));
+	}
+
+
+	@Override
+	public int insertGraveyards(final Collection<Graveyard> graveyards, final boolean rollbackOnFailure) {
+		return write(dataStore -> dataStore.insertGraveyards(graveyards, rollbackOnFailure),
+				() -> dataStore -> {
+					// skip graveyards already copied to new datastore
+					if (graveyards != null) {
+						dataStore.insertGraveyards(graveyards.stream()
+								.filter(graveyard -> dataStore.selectGraveyard(graveyard.getSearchKey()).isEmpty())
+								.collect(Collectors.toList()), rollbackOnFailure);
+					}
+				});
+	}
+
+
+	@Override
+	public void updateGraveyard(final Graveyard graveyard) {
+
+		// if graveyard is null do nothing and return
+		if (graveyard == null) {
+			return;
+		}
+
+		write(dataStore -> {
+			dataStore.updateGraveyard(graveyard);
+			return null;
+		}, () -> {
+			// primary keys differ between datastores; find record in new datastore by search key before update
+			String previousKey = current.getSnapshot().getGraveyard(graveyard.getPrimaryKey())
+					.map(Graveyard::getSearchKey)
+					.orElse(graveyard.getSearchKey());
+
+			return dataStore -> dataStore.selectGraveyard(previousKey)
+					.or(() -> dataStore.selectGraveyard(graveyard.getSearchKey()))
+					.ifPresent(existing -> dataStore.updateGraveyard(new Graveyard.Builder(graveyard)
+							.primaryKey(existing.getPrimaryKey())
+							.build()));
+		});
+	}
+
+
+	@Override
+	public Optional<Graveyard> deleteGraveyard(final String displayName) {
+		return write(dataStore -> dataStore.deleteGraveyard(displayName),
+				() -> dataStore -> dataStore.deleteGraveyard(displayName));
+	}
+
+
+	@Override
+	public boolean deleteDiscovery(final String displayName, final UUID playerUid) {
+		return write(dataStore -> dataStore.deleteDiscovery(displayName, playerUid),
+				() -> dataStore -> dataStore.deleteDiscovery(displayName, playerUid));
+	}
+
+}
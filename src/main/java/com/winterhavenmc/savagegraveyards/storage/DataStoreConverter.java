@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+
+/**
+ * Copies all graveyard and discovery records from one datastore to another. Records are read from the
+ * old datastore through a cursor and written to the new datastore in fixed-size chunks with batched inserts,
+ * so that memory use does not grow with the number of records. Progress is logged at a fixed interval.
+ */
+final class DataStoreConverter {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+	// datastore records are copied from
+	private final DataStore oldDataStore;
+
+	// datastore records are copied to
+	private final DataStore newDataStore;
+
+	// returns true if the conversion should stop
+	private final BooleanSupplier cancelled;
+
+	// number of records read and written in each chunk
+	private final static int CHUNK_SIZE = 1000;
+
+	// interval between progress log messages, in milliseconds
+	private final static long PROGRESS_INTERVAL = 5000L;
+
+	// count of records written to new datastore
+	private final AtomicLong graveyardCount = new AtomicLong();
+	private final AtomicLong discoveryCount = new AtomicLong();
+
+	// time of last progress message, in nanoseconds
+	private long lastProgressTime;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 * @param oldDataStore the datastore to copy records from
+	 * @param newDataStore the datastore to copy records to
+	 * @param cancelled returns true if the conversion should stop before the next chunk
+	 */
+	DataStoreConverter(final JavaPlugin plugin,
+	                   final DataStore oldDataStore,
+	                   final DataStore newDataStore,
+	                   final BooleanSupplier cancelled) {
+		this.plugin = plugin;
+		this.oldDataStore = oldDataStore;
+		this.newDataStore = newDataStore;
+		this.cancelled = cancelled;
+	}
+
+
+	/**
+	 * Copy all records from old datastore to new datastore on the calling thread
+	 *
+	 * @return true if all records were copied, false if the conversion failed or was cancelled
+	 */
+	boolean copy() {
+
+		plugin.getLogger().info("Converting existing " + oldDataStore + " datastore to "
+				+ newDataStore + " datastore...");
+
+		// initialize old datastore if necessary
+		if (!oldDataStore.isInitialized()) {
+			try {
+				oldDataStore.initialize();
+			}
+			catch (Exception e) {
+				plugin.getLogger().warning("Could not initialize "
+						+ oldDataStore + " datastore for conversion.");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+				return false;
+			}
+		}
+
+		long startTime = System.nanoTime();
+		lastProgressTime = startTime;
+
+		try {
+			// copy graveyards before discoveries, which refer to them
+			if (!oldDataStore.streamGraveyards(CHUNK_SIZE, this::copyGraveyards)
+					|| !oldDataStore.streamDiscoveries(CHUNK_SIZE, this::copyDiscoveries)) {
+				plugin.getLogger().warning("Conversion of " + oldDataStore + " datastore is incomplete; "
+						+ "it will be retried at next startup.");
+				return false;
+			}
+		}
+		catch (CancellationException e) {
+			plugin.getLogger().info("Conversion of " + oldDataStore + " datastore was stopped; "
+					+ "it will be resumed at next startup.");
+			return false;
+		}
+
+		// flush new datastore to disk if applicable
+		newDataStore.sync();
+
+		// log record count message
+		plugin.getLogger().info(graveyardCount + " graveyard records and " + discoveryCount
+				+ " discovery records converted to " + newDataStore + " datastore in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms.");
+
+		return true;
+	}
+
+
+	/**
+	 * Write a chunk of graveyard records to new datastore, skipping records it already contains,
+	 * as when a previous conversion was interrupted
+	 *
+	 * @param chunk the graveyard records read from old datastore
+	 */
+	private void copyGraveyards(final List<Graveyard> chunk) {
+
+		checkCancelled();
+
+		List<Graveyard> graveyards = chunk.stream()
+				.filter(graveyard -> newDataStore.selectGraveyard(graveyard.getSearchKey()).isEmpty())
+				.collect(Collectors.toList());
+
+		graveyardCount.addAndGet(newDataStore.insertGraveyards(graveyards));
+		logProgress();
+	}
+
+
+	/**
+	 * Write a chunk of discovery records to new datastore. Records it already contains are ignored by the insert.
+	 *
+	 * @param chunk the discovery records read from old datastore
+	 */
+	private void copyDiscoveries(final List<Discovery> chunk) {
+
+		checkCancelled();
+
+		discoveryCount.addAndGet(newDataStore.insertDiscoveries(chunk));
+		logProgress();
+	}
+
+
+	/**
+	 * Stop reading from the old datastore if the conversion has been cancelled
+	 *
+	 * @throws CancellationException if the conversion has been cancelled
+	 */
+	private void checkCancelled() {
+		if (cancelled.getAsBoolean()) {
+			throw new CancellationException();
+		}
+	}
+
+
+	/**
+	 * Log record counts if the progress interval has elapsed since the last message
+	 */
+	private void logProgress() {
+		long now = System.nanoTime();
+		if (TimeUnit.NANOSECONDS.toMillis(now - lastProgressTime) >= PROGRESS_INTERVAL) {
+			lastProgressTime = now;
+			plugin.getLogger().info("Converting " + oldDataStore + " datastore: " + graveyardCount
+					+ " graveyard records and " + discoveryCount + " discovery records converted so far...");
+		}
+	}
+
+
+	/**
+	 * Get number of graveyard records written to new datastore
+	 *
+	 * @return the graveyard record count
+	 */
+	long getGraveyardCount() {
+		return graveyardCount.get();
+	}
+
+
+	/**
+	 * Get number of discovery records written to new datastore
+	 *
+	 * @return the discovery record count
+	 */
+	long getDiscoveryCount() {
+		return discoveryCount.get();
+	}
+
+}
@@ -0,0 +1,1336 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.sql.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+
+/**
+ * Concrete datastore class for a database server or embedded database reached through a JDBC url,
+ * allowing several servers to share one database. Each server caches graveyard records when the datastore
+ * is initialized and does not see graveyards created, changed or deleted by another server until it restarts,
+ * so graveyards are to be edited on one server only; discoveries are read for each player at login.
+ * Queries are read from queries-jdbc.properties, with overrides for the database dialect named by the url subprotocol.
+ */
+final class DataStoreJDBC extends DataStoreAbstract implements DataStore {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+	// pool of database connections
+	private JdbcConnectionPool connectionPool;
+
+	// query dialect, from jdbc url subprotocol
+	private String dialect;
+
+	// write-behind queue for discovery records
+	private DiscoveryWriteQueue discoveryWriteQueue;
+
+	// single-threaded executor on which all writes are run
+	private StorageWriteExecutor writeExecutor;
+
+	// maximum number of writes waiting for the writer thread
+	private final static int WRITE_QUEUE_CAPACITY = 1000;
+
+	// interval between discovery queue flushes, in milliseconds
+	private final static long DISCOVERY_FLUSH_INTERVAL = 1000L;
+
+	// number of queued discovery records that triggers an immediate flush
+	private final static int DISCOVERY_FLUSH_THRESHOLD = 100;
+
+	// default number of connections in pool
+	private final static int DEFAULT_POOL_SIZE = 4;
+
+	// maximum number of rows sent to the database in one batch
+	private final static int BATCH_SIZE = 500;
+
+	// number of records read from a cursor before they are passed on
+	private final static int STREAM_CHUNK_SIZE = 1000;
+
+	// schema creation queries, in order of execution
+	private final static List<String> SCHEMA_QUERIES = List.of(
+			"CreateGraveyardsTable",
+			"CreateDiscoveredTable",
+			"CreateGraveyardsWorldIndex",
+			"CreateDiscoveredGraveyardIndex");
+
+	// subprotocols that share the queries of another dialect
+	private final static Map<String, String> DIALECT_ALIASES = Map.of("mariadb", "mysql");
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	DataStoreJDBC(final JavaPlugin plugin) {
+
+		// reference to main class
+		this.plugin = plugin;
+
+		// set datastore type
+		this.type = DataStoreType.JDBC;
+	}
+
+
+	@Override
+	public void initialize() throws SQLException {
+
+		// if data store is already initialized, do nothing and return
+		if (this.isInitialized()) {
+			plugin.getLogger().info(this + " datastore already initialized.");
+			return;
+		}
+
+		// get database url from config
+		String url = plugin.getConfig().getString("jdbc-url");
+		if (url == null || url.isBlank()) {
+			throw new SQLException("No jdbc-url is configured for the " + this + " datastore.");
+		}
+
+		dialect = getDialect(url);
+
+		// create connection pool
+		int poolSize = Math.max(1, plugin.getConfig().getInt("jdbc-pool-size", DEFAULT_POOL_SIZE));
+		connectionPool = new JdbcConnectionPool(url,
+				plugin.getConfig().getString("jdbc-username"),
+				plugin.getConfig().getString("jdbc-password"),
+				poolSize);
+
+		// create tables and indexes if they do not exist
+		try {
+			createSchema();
+		}
+		catch (SQLException e) {
+			connectionPool.close();
+			throw e;
+		}
+
+		// start writer thread
+		writeExecutor = new StorageWriteExecutor(plugin, WRITE_QUEUE_CAPACITY);
+
+		// start discovery write queue
+		discoveryWriteQueue = new DiscoveryWriteQueue(plugin, batch -> insertDiscoveries(batch, false),
+				writeExecutor, DISCOVERY_FLUSH_INTERVAL, DISCOVERY_FLUSH_THRESHOLD);
+		discoveryWriteQueue.start();
+
+		// set initialized true
+		setInitialized(true);
+		plugin.getLogger().info(this + " datastore initialized with " + dialect + " queries, "
+				+ poolSize + " pooled connections.");
+	}
+
+
+	/**
+	 * Get query dialect from the subprotocol of a jdbc url, as in jdbc:subprotocol:subname
+	 *
+	 * @param url the jdbc url
+	 * @return String - the query dialect
+	 */
+	static String getDialect(final String url) {
+
+		String[] parts = url.split(":", 3);
+
+		// if url is not a jdbc url, use generic queries
+		if (parts.length < 3 || !parts[0].equalsIgnoreCase("jdbc")) {
+			return "jdbc";
+		}
+
+		String subprotocol = parts[1].toLowerCase(Locale.ROOT);
+		return DIALECT_ALIASES.getOrDefault(subprotocol, subprotocol);
+	}
+
+
+	/**
+	 * Create tables and indexes if they do not exist. Queries left empty for the dialect are skipped.
+	 *
+	 * @throws SQLException on sql error
+	 */
+	private void createSchema() throws SQLException {
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     Statement statement = lease.getConnection().createStatement()) {
+
+			for (String queryName : SCHEMA_QUERIES) {
+
+				String query = Queries.getQuery(dialect, queryName);
+				if (query == null) {
+					throw new SQLException("Query not found: " + queryName);
+				}
+
+				if (!query.isBlank()) {
+					statement.executeUpdate(query);
+				}
+			}
+		}
+
+		if (plugin.getConfig().getBoolean("debug")) {
+			plugin.getLogger().info("Graveyards and Discovered tables created.");
+		}
+	}
+
+
+	/**
+	 * Prepare a statement for a named query on a connection
+	 *
+	 * @param connection the connection on which to prepare the statement
+	 * @param queryName the name of the query in the queries properties files
+	 * @return PreparedStatement - the prepared statement
+	 * @throws SQLException if the query does not exist or the statement could not be prepared
+	 */
+	private PreparedStatement prepare(final Connection connection, final String queryName) throws SQLException {
+
+		String query = Queries.getQuery(dialect, queryName);
+		if (query == null) {
+			throw new SQLException("Query not found: " + queryName);
+		}
+
+		return connection.prepareStatement(query);
+	}
+
+
+	@Override
+	public void close() {
+
+		// wait for submitted asynchronous operations to complete
+		shutdownExecutor();
+
+		// write any queued discovery records
+		if (discoveryWriteQueue != null) {
+			discoveryWriteQueue.close();
+		}
+
+		// wait for pending writes to complete
+		if (writeExecutor != null) {
+			writeExecutor.close();
+		}
+
+		// close pooled connections
+		if (connectionPool != null) {
+			connectionPool.close();
+			plugin.getLogger().info(this + " datastore connections closed.");
+		}
+
+		setInitialized(false);
+	}
+
+
+	@Override
+	public void sync() {
+		// no action necessary for this storage type
+	}
+
+
+	@Override
+	public Map<String, String> getStatus() {
+
+		Map<String, String> status = new LinkedHashMap<>();
+
+		status.put("Storage type", this.toString());
+		status.put("Query dialect", dialect);
+
+		// read database product from connection metadata
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire()) {
+			DatabaseMetaData metaData = lease.getConnection().getMetaData();
+			status.put("Database", metaData.getDatabaseProductName() + " " + metaData.getDatabaseProductVersion());
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("Could not read " + this + " datastore metadata.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+		}
+
+		// connection pool metrics
+		status.put("Connection pool", connectionPool.getOpenCount() + " / " + connectionPool.size() + " open, "
+				+ connectionPool.getActiveCount() + " in use");
+		status.put("Connections", connectionPool.getAcquireCount() + " acquired, "
+				+ connectionPool.getWaitCount() + " waits, "
+				+ connectionPool.getCreateCount() + " opened, "
+				+ connectionPool.getDiscardCount() + " closed");
+
+		// writer thread metrics
+		status.put("Write queue", writeExecutor.getQueueDepth() + " / " + writeExecutor.getCapacity()
+				+ " pending, " + writeExecutor.getStallCount() + " stalls");
+		status.put("Writes", String.format("%d completed, wait avg %.2f ms max %.2f ms, run avg %.2f ms max %.2f ms",
+				writeExecutor.getCompletedCount(),
+				writeExecutor.getMeanWaitMillis(), writeExecutor.getMaxWaitMillis(),
+				writeExecutor.getMeanRunMillis(), writeExecutor.getMaxRunMillis()));
+
+		return status;
+	}
+
+
+	@Override
+	public boolean delete() {
+		// a shared database is never deleted
+		return false;
+	}
+
+
+	/**
+	 * Create graveyard object from the current row of a result set
+	 *
+	 * @param rs the result set
+	 * @param worldName the world name to assign to the graveyard
+	 * @param worldUid the world uid to assign to the graveyard
+	 * @return Graveyard - the graveyard object
+	 * @throws SQLException on sql error
+	 */
+	private Graveyard readGraveyard(final ResultSet rs, final String worldName, final UUID worldUid) throws SQLException {
+		return new Graveyard.Builder(plugin)
+				.primaryKey(rs.getInt("Id"))
+				.searchKey(rs.getString("SearchKey"))
+				.displayName(rs.getString("DisplayName"))
+				.enabled(rs.getBoolean("Enabled"))
+				.hidden(rs.getBoolean("Hidden"))
+				.discoveryRange(rs.getInt("DiscoveryRange"))
+				.discoveryMessage(rs.getString("DiscoveryMessage"))
+				.respawnMessage(rs.getString("RespawnMessage"))
+				.group(rs.getString("GroupName"))
+				.safetyRange(rs.getInt("SafetyRange"))
+				.safetyTime(rs.getInt("SafetyTime"))
+				.worldName(worldName)
+				.worldUid(worldUid)
+				.x(rs.getDouble("X"))
+				.y(rs.getDouble("Y"))
+				.z(rs.getDouble("Z"))
+				.yaw(rs.getFloat("Yaw"))
+				.pitch(rs.getFloat("Pitch"))
+				.build();
+	}
+
+
+	/**
+	 * Get world uid from the current row of a result set
+	 *
+	 * @param rs the result set
+	 * @return UUID - the world uid
+	 * @throws SQLException on sql error
+	 */
+	private static UUID readWorldUid(final ResultSet rs) throws SQLException {
+		return new UUID(rs.getLong("WorldUidMsb"), rs.getLong("WorldUidLsb"));
+	}
+
+
+	/**
+	 * Bind the fields of a graveyard to the first nineteen parameters of an insert or update statement
+	 *
+	 * @param preparedStatement the statement
+	 * @param graveyard the graveyard
+	 * @param worldName the world name to store
+	 * @throws SQLException on sql error
+	 */
+	private static void bindGraveyard(final PreparedStatement preparedStatement,
+	                                  final Graveyard graveyard,
+	                                  final String worldName) throws SQLException {
+		preparedStatement.setString(1, graveyard.getSearchKey());
+		preparedStatement.setString(2, graveyard.getSearchKey().toLowerCase());
+		preparedStatement.setString(3, graveyard.getDisplayName());
+		preparedStatement.setBoolean(4, graveyard.isEnabled());
+		preparedStatement.setBoolean(5, graveyard.isHidden());
+		preparedStatement.setInt(6, graveyard.getDiscoveryRange());
+		preparedStatement.setString(7, graveyard.getDiscoveryMessage());
+		preparedStatement.setString(8, graveyard.getRespawnMessage());
+		preparedStatement.setString(9, graveyard.getGroup());
+		preparedStatement.setInt(10, graveyard.getSafetyRange());
+		preparedStatement.setLong(11, graveyard.getSafetyTime());
+		preparedStatement.setString(12, worldName);
+		preparedStatement.setLong(13, graveyard.getWorldUid().getMostSignificantBits());
+		preparedStatement.setLong(14, graveyard.getWorldUid().getLeastSignificantBits());
+		preparedStatement.setDouble(15, graveyard.getX());
+		preparedStatement.setDouble(16, graveyard.getY());
+		preparedStatement.setDouble(17, graveyard.getZ());
+		preparedStatement.setFloat(18, graveyard.getYaw());
+		preparedStatement.setFloat(19, graveyard.getPitch());
+	}
+
+
+	/**
+	 * Get lower case search key for a display name, used for case-insensitive lookups
+	 *
+	 * @param displayName the display name or search key
+	 * @return String - the lower case search key
+	 */
+	private static String createLowerKey(final String displayName) {
+		return Graveyard.createSearchKey(displayName).toLowerCase();
+	}
+
+
+	@Override
+	public Collection<Graveyard> selectAllGraveyards() {
+
+		// create empty set for return collection
+		final Collection<Graveyard> returnSet = new HashSet<>();
+
+		// read all records into return collection
+		streamGraveyards(STREAM_CHUNK_SIZE, returnSet::addAll);
+
+		// return record collection
+		return returnSet;
+	}
+
+
+	@Override
+	public boolean streamGraveyards(final int chunkSize, final Consumer<List<Graveyard>> action) {
+
+		List<Graveyard> chunk = new ArrayList<>(chunkSize);
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     PreparedStatement preparedStatement = prepare(lease.getConnection(), "SelectAllGraveyards")) {
+
+			// ask driver to fetch rows from the server in chunks
+			preparedStatement.setFetchSize(chunkSize);
+
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				while (rs.next()) {
+
+
+					// get stored world name and uid
+					String worldName = rs.getString("WorldName");
+					UUID worldUid = readWorldUid(rs);
+
+					// get world by uid
+					World world = plugin.getServer().getWorld(worldUid);
+
+					// if world is null, log warning
+					if (world == null) {
+						plugin.getLogger().warning("Stored record has invalid world: " + worldName);
+					}
+					else {
+						worldName = world.getName();
+					}
+
+					// add graveyard to chunk, passing chunk to action when full
+					chunk.add(readGraveyard(rs, worldName, worldUid));
+					if (chunk.size() >= chunkSize) {
+						action.accept(chunk);
+						chunk = new ArrayList<>(chunkSize);
+					}
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "select all graveyard records from the " + this + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+			return false;
+		}
+
+		// pass final partial chunk to action
+		if (!chunk.isEmpty()) {
+			action.accept(chunk);
+		}
+
+		return true;
+	}
+
+
+	@Override
+	public boolean streamDiscoveries(final int chunkSize, final Consumer<List<Discovery>> action) {
+
+		// write queued discovery records so stream includes them
+		discoveryWriteQueue.flush();
+
+		List<Discovery> chunk = new ArrayList<>(chunkSize);
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     PreparedStatement preparedStatement = prepare(lease.getConnection(), "SelectAllDiscoveryRecords")) {
+
+			// ask driver to fetch rows from the server in chunks
+			preparedStatement.setFetchSize(chunkSize);
+
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				while (rs.next()) {
+
+					// reconstitute player uid from components
+					UUID playerUid = new UUID(rs.getLong("PlayerUidMsb"), rs.getLong("PlayerUidLsb"));
+
+					// add discovery to chunk, passing chunk to action when full
+					chunk.add(new Discovery(rs.getString("SearchKey"), playerUid));
+					if (chunk.size() >= chunkSize) {
+						action.accept(chunk);
+						chunk = new ArrayList<>(chunkSize);
+					}
+				}
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occurred while trying to " +
+					"select all discovery records from the " + this + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+			return false;
+		}
+
+		// pass final partial chunk to action
+		if (!chunk.isEmpty()) {
+			action.accept(chunk);
+		}
+
+		return true;
+	}
+
+
+	@Override
+	public Optional<Graveyard> selectGraveyard(final String displayName) {
+
+		if (displayName == null) {
+			return Optional.empty();
+		}
+
+		// derive lower case search key from displayName
+		String lowerKey = createLowerKey(displayName);
+
+		// if key is empty, return empty optional record
+		if (lowerKey.isEmpty()) {
+			return Optional.empty();
+		}
+
+		Graveyard graveyard = null;
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     PreparedStatement preparedStatement = prepare(lease.getConnection(), "SelectGraveyard")) {
+
+			preparedStatement.setString(1, lowerKey);
+
+			// execute sql query
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+
+				// only zero or one record can match the unique search key
+				if (rs.next()) {
+
+					// get stored world name and uid
+					String worldName = rs.getString("WorldName");
+					UUID worldUid = readWorldUid(rs);
+
+					// get world by uid
+					World world = plugin.getServer().getWorld(worldUid);
+
+					// if world is null, log warning
+					if (world == null) {
+						plugin.getLogger().warning("Stored record has invalid world: " + worldName);
+					}
+					// else if world is not null, get current world name
+					else {
+						worldName = world.getName();
+					}
+
+					graveyard = readGraveyard(rs, worldName, worldUid);
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to " +
+					"select a Graveyard record from the " + this + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+			return Optional.empty();
+		}
+		return Optional.ofNullable(graveyard);
+	}
+
+
+	@Override
+	public Optional<Graveyard> selectNearestGraveyard(final Player player) {
+
+		// if player is null, return empty optional graveyard record
+		if (player == null) {
+			return Optional.empty();
+		}
+
+		Location playerLocation = player.getLocation();
+
+		Graveyard closest = null;
+
+		// write queued discovery records so query reflects them
+		discoveryWriteQueue.flush();
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     PreparedStatement preparedStatement = prepare(lease.getConnection(), "SelectNearestGraveyards")) {
+
+			preparedStatement.setLong(1, player.getWorld().getUID().getMostSignificantBits());
+			preparedStatement.setLong(2, player.getWorld().getUID().getLeastSignificantBits());
+			preparedStatement.setLong(3, player.getUniqueId().getMostSignificantBits());
+			preparedStatement.setLong(4, player.getUniqueId().getLeastSignificantBits());
+
+			// execute sql query
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+
+				while (rs.next()) {
+
+					UUID worldUid = readWorldUid(rs);
+					World world = plugin.getServer().getWorld(worldUid);
+
+					if (world == null) {
+						plugin.getLogger().warning("Stored record has invalid world: "
+								+ rs.getString("WorldName") + ". Skipping record.");
+						continue;
+					}
+
+					Graveyard graveyard = readGraveyard(rs, world.getName(), worldUid);
+
+					// if graveyard optional location has no value, skip to next graveyard
+					if (graveyard.getLocation().isEmpty()) {
+						continue;
+					}
+
+					// unwrap graveyard optional location
+					Location location = graveyard.getLocation().get();
+
+					// check if graveyard has group and player is in group
+					String groupName = graveyard.getGroup();
+					if (groupName == null || groupName.isEmpty() || player.hasPermission("group." + groupName)) {
+
+						// if closest is null, set to this graveyard (first pass through loop)
+						if (closest == null) {
+							closest = graveyard;
+						}
+
+						// else if closest graveyard has valid location, check if graveyard is closer than current closest
+						else if (closest.getLocation().isPresent()) {
+							if (location.distanceSquared(playerLocation) < closest.getLocation().get().distanceSquared(playerLocation)) {
+								closest = graveyard;
+							}
+						}
+					}
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "fetch the nearest Graveyard from the " + this + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+
+		// return closest result
+		return Optional.ofNullable(closest);
+	}
+
+
+	@Override
+	public List<String> selectMatchingGraveyardNames(final String match) {
+
+		// if match is null, return empty list
+		if (match == null) {
+			return Collections.emptyList();
+		}
+
+		// create empty return list
+		List<String> returnList = new ArrayList<>();
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     PreparedStatement preparedStatement = prepare(lease.getConnection(), "SelectMatchingGraveyardNames")) {
+
+			// match lower case search keys beginning with match, escaping like pattern characters
+			String pattern = match.toLowerCase()
+					.replace("!", "!!")
+					.replace("%", "!%")
+					.replace("_", "!_");
+			preparedStatement.setString(1, pattern + "%");
+
+			// execute sql query
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+
+				while (rs.next()) {
+					returnList.add(rs.getString("SearchKey"));
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "fetch matching Graveyard records from the " + this + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+
+		// return list of search key strings
+		return returnList;
+	}
+
+
+	@Override
+	public Collection<Graveyard> selectUndiscoveredGraveyards(final Player player) {
+
+		// if player is null, return empty set
+		if (player == null) {
+			return Collections.emptySet();
+		}
+
+		// create empty set of Graveyard for return
+		Collection<Graveyard> returnSet = new HashSet<>();
+
+		// write queued discovery records so query reflects them
+		discoveryWriteQueue.flush();
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     PreparedStatement preparedStatement = prepare(lease.getConnection(), "SelectUndiscoveredGraveyards")) {
+
+			preparedStatement.setLong(1, player.getWorld().getUID().getMostSignificantBits());
+			preparedStatement.setLong(2, player.getWorld().getUID().getLeastSignificantBits());
+			preparedStatement.setLong(3, player.getUniqueId().getMostSignificantBits());
+			preparedStatement.setLong(4, player.getUniqueId().getLeastSignificantBits());
+
+			// execute sql query
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+
+				while (rs.next()) {
+
+					UUID worldUid = readWorldUid(rs);
+					World world = plugin.getServer().getWorld(worldUid);
+
+					// if world is null, log error and skip to next record
+					if (world == null) {
+						plugin.getLogger().warning("Stored record has unloaded world: "
+								+ rs.getString("WorldName") + ". Skipping record.");
+						continue;
+					}
+
+					returnSet.add(readGraveyard(rs, world.getName(), worldUid));
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "select undiscovered Graveyard records from the " + this + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+
+		// return results
+		return returnSet;
+	}
+
+
+	@Override
+	public Collection<String> selectDiscoveredKeys(final UUID playerUid) {
+
+		// if playerUid is null, return empty set
+		if (playerUid == null) {
+			return Collections.emptySet();
+		}
+
+		// create empty set of search keys for return
+		Collection<String> returnSet = new HashSet<>();
+
+		// write queued discovery records so query reflects them
+		discoveryWriteQueue.flush();
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     PreparedStatement preparedStatement = prepare(lease.getConnection(), "SelectGraveyardsKnownByPlayer")) {
+
+			preparedStatement.setLong(1, playerUid.getMostSignificantBits());
+			preparedStatement.setLong(2, playerUid.getLeastSignificantBits());
+
+			// execute sql query
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				while (rs.next()) {
+					returnSet.add(rs.getString("SearchKey"));
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "select discovered Graveyard records from the " + this + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+
+		// return results
+		return returnSet;
+	}
+
+
+	@Override
+	public Collection<String> selectUndiscoveredKeys(final Player player) {
+
+		// if player is null, return empty set
+		if (player == null) {
+			return Collections.emptySet();
+		}
+
+		// create empty set for return
+		Collection<String> returnSet = new HashSet<>();
+
+		// write queued discovery records so query reflects them
+		discoveryWriteQueue.flush();
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     PreparedStatement preparedStatement = prepare(lease.getConnection(), "SelectUndiscoveredGraveyardKeys")) {
+
+			preparedStatement.setLong(1, player.getWorld().getUID().getMostSignificantBits());
+			preparedStatement.setLong(2, player.getWorld().getUID().getLeastSignificantBits());
+			preparedStatement.setLong(3, player.getUniqueId().getMostSignificantBits());
+			preparedStatement.setLong(4, player.getUniqueId().getLeastSignificantBits());
+
+			// execute sql query
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				while (rs.next()) {
+					returnSet.add(rs.getString("SearchKey"));
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "select undiscovered Graveyard keys from the " + this + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+
+		// return results
+		return returnSet;
+	}
+
+
+	@Override
+	public void insertDiscovery(final Discovery discovery) {
+
+		// if discovery is null, do nothing and return
+		if (discovery == null) {
+			return;
+		}
+
+		// add discovery to write queue
+		discoveryWriteQueue.add(discovery);
+	}
+
+
+	@Override
+	public void loadDiscoveries(final UUID playerUid) {
+		// no action necessary for this storage type
+	}
+
+
+	@Override
+	public void unloadDiscoveries(final UUID playerUid) {
+		// no action necessary for this storage type
+	}
+
+
+	@Override
+	public int insertDiscoveries(final Collection<Discovery> discoveries, final boolean rollbackOnFailure) {
+
+		// if discoveries is null, return int 0
+		if (discoveries == null) {
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().warning("Could not insert discovery records in data store "
+						+ "because collection is null!");
+			}
+			return 0;
+		}
+
+		int count = insertRecords("InsertDiscovery", "discovery", discoveries, rollbackOnFailure,
+				(preparedStatement, record) -> {
+					// an unknown graveyard selects a null graveyard id, failing the insert
+					preparedStatement.setString(1, createLowerKey(record.getSearchKey()));
+					preparedStatement.setLong(2, record.getPlayerUid().getMostSignificantBits());
+					preparedStatement.setLong(3, record.getPlayerUid().getLeastSignificantBits());
+					preparedStatement.setString(4, createLowerKey(record.getSearchKey()));
+					preparedStatement.setLong(5, record.getPlayerUid().getMostSignificantBits());
+					preparedStatement.setLong(6, record.getPlayerUid().getLeastSignificantBits());
+				},
+				record -> record.getSearchKey() + " for player " + record.getPlayerUid());
+
+		// report committed records
+		discoveriesChanged(count);
+
+		return count;
+	}
+
+
+	@Override
+	public int insertGraveyards(final Collection<Graveyard> graveyards, final boolean rollbackOnFailure) {
+
+		// if graveyard collection is null, do nothing and return
+		if (graveyards == null) {
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().warning("Could not insert graveyard records in data store "
+						+ "because collection is null!");
+			}
+			return 0;
+		}
+
+		return insertRecords("InsertGraveyard", "graveyard", graveyards, rollbackOnFailure,
+				(preparedStatement, graveyard) -> {
+
+					// get world name from record
+					String worldName = graveyard.getWorldName();
+
+					// get world by uid
+					final World world = plugin.getServer().getWorld(graveyard.getWorldUid());
+
+					// if world is null, log warning
+					if (world == null) {
+						plugin.getLogger().warning("Record has invalid world: " + worldName);
+					}
+					// else get current world name
+					else {
+						worldName = world.getName();
+					}
+
+					bindGraveyard(preparedStatement, graveyard, worldName);
+				},
+				Graveyard::getDisplayName);
+	}
+
+
+	/**
+	 * Binds the fields of a record to the parameters of a prepared statement
+	 *
+	 * @param <T> the record type
+	 */
+	@FunctionalInterface
+	private interface RecordBinder<T> {
+		void bind(final PreparedStatement preparedStatement, final T record) throws SQLException;
+	}
+
+
+	/**
+	 * Insert a collection of records on the writer thread, sending rows to the database in batches within
+	 * a single transaction. If the transaction fails, it is rolled back; unless rollbackOnFailure is {@code true},
+	 * records are then inserted one at a time, and each record that cannot be inserted is reported in the log.
+	 *
+	 * @param queryName the name of the insert query
+	 * @param recordType the record type name, for log messages
+	 * @param records the records to be inserted
+	 * @param rollbackOnFailure if {@code true}, no records are inserted if any record fails
+	 * @param binder binds a record to the insert statement parameters
+	 * @param describer describes a record, for log messages
+	 * @param <T> the record type
+	 * @return int - the number of records successfully inserted
+	 */
+	private <T> int insertRecords(final String queryName,
+	                              final String recordType,
+	                              final Collection<T> records,
+	                              final boolean rollbackOnFailure,
+	                              final RecordBinder<T> binder,
+	                              final Function<T, String> describer) {
+
+		// run transaction on writer thread and wait for result
+		return writeExecutor.call(() -> {
+
+			int count = 0;
+			int failures = 0;
+
+			try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+			     PreparedStatement preparedStatement = prepare(lease.getConnection(), queryName)) {
+
+				Connection connection = lease.getConnection();
+				connection.setAutoCommit(false);
+
+				try {
+					count = executeBatches(preparedStatement, records, binder);
+					connection.commit();
+				}
+				catch (SQLException | RuntimeException e) {
+
+					connection.rollback();
+					preparedStatement.clearBatch();
+					count = 0;
+
+					plugin.getLogger().warning("Batch insert of " + records.size() + " " + recordType
+							+ " records into the " + this + " datastore failed.");
+					plugin.getLogger().warning(e.getLocalizedMessage());
+
+					if (rollbackOnFailure) {
+						failures = records.size();
+						plugin.getLogger().warning("Insert of " + records.size() + " " + recordType
+								+ " records rolled back.");
+					}
+					else {
+						// insert records one at a time, so that only failed records are lost
+						connection.setAutoCommit(true);
+						for (T record : records) {
+							try {
+								binder.bind(preparedStatement, record);
+								count += preparedStatement.executeUpdate();
+							}
+							catch (SQLException | RuntimeException recordException) {
+
+								// report failed record
+								failures++;
+								plugin.getLogger().warning("Could not insert " + recordType + " record '"
+										+ describer.apply(record) + "' into the " + this + " datastore.");
+								plugin.getLogger().warning(recordException.getLocalizedMessage());
+							}
+						}
+					}
+				}
+			}
+			catch (SQLException e) {
+
+				// output simple error message
+				plugin.getLogger().warning("An error occurred while trying to insert "
+						+ recordType + " records into the " + this + " datastore.");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.getConfig().getBoolean("debug")) {
+					e.printStackTrace();
+				}
+			}
+
+			// output debugging information
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().info(count + " " + recordType + " records inserted, " + failures + " failed.");
+			}
+
+			return count;
+		});
+	}
+
+
+	/**
+	 * Bind records to a prepared statement and execute them in batches of at most {@code BATCH_SIZE} rows
+	 *
+	 * @param preparedStatement the insert statement
+	 * @param records the records to be inserted
+	 * @param binder binds a record to the insert statement parameters
+	 * @param <T> the record type
+	 * @return int - the number of rows inserted
+	 * @throws SQLException on sql error
+	 */
+	private static <T> int executeBatches(final PreparedStatement preparedStatement,
+	                                      final Collection<T> records,
+	                                      final RecordBinder<T> binder) throws SQLException {
+
+		int count = 0;
+		int batchCount = 0;
+
+		for (T record : records) {
+			binder.bind(preparedStatement, record);
+			preparedStatement.addBatch();
+
+			if (++batchCount == BATCH_SIZE) {
+				count += countRows(preparedStatement.executeBatch());
+				batchCount = 0;
+			}
+		}
+
+		if (batchCount > 0) {
+			count += countRows(preparedStatement.executeBatch());
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Sum the update counts of an executed batch. Statements that succeeded
+	 * without reporting a row count are counted as one row.
+	 *
+	 * @param updateCounts the update counts returned by the batch
+	 * @return int - the number of rows affected
+	 */
+	private static int countRows(final int[] updateCounts) {
+		int count = 0;
+		for (int updateCount : updateCounts) {
+			if (updateCount > 0) {
+				count += updateCount;
+			}
+			else if (updateCount == Statement.SUCCESS_NO_INFO) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+
+	@Override
+	public void updateGraveyard(final Graveyard graveyard) {
+
+		// if graveyard is null do nothing and return
+		if (graveyard == null) {
+			return;
+		}
+
+		writeExecutor.execute(() -> {
+
+			try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+			     PreparedStatement preparedStatement = prepare(lease.getConnection(), "UpdateGraveyard")) {
+
+				bindGraveyard(preparedStatement, graveyard, graveyard.getWorldName());
+				preparedStatement.setInt(20, graveyard.getPrimaryKey());
+
+				// execute prepared statement
+				preparedStatement.executeUpdate();
+			}
+			catch (SQLException e) {
+
+				// output simple error message
+				plugin.getLogger().warning("An error occurred while trying to " +
+						"update a Graveyard record in the " + this + " datastore.");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.getConfig().getBoolean("debug")) {
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+
+
+	@Override
+	public Optional<Graveyard> deleteGraveyard(final String displayName) {
+
+		// if displayName is null, return empty optional
+		if (displayName == null) {
+			return Optional.empty();
+		}
+
+		// get destination record to be deleted, for return
+		final Optional<Graveyard> graveyard = this.selectGraveyard(displayName);
+
+		writeExecutor.execute(() -> {
+
+			// write queued discovery records, so that those of the deleted graveyard are deleted with it
+			discoveryWriteQueue.flush();
+
+			try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+			     PreparedStatement countStatement = prepare(lease.getConnection(), "SelectGraveyardDiscoveryCount");
+			     PreparedStatement preparedStatement = prepare(lease.getConnection(), "DeleteGraveyard")) {
+
+				// count discovery records to be deleted by cascade
+				countStatement.setString(1, createLowerKey(displayName));
+				long discoveryCount = 0;
+				try (ResultSet rs = countStatement.executeQuery()) {
+					if (rs.next()) {
+						discoveryCount = rs.getLong("DiscoveryCount");
+					}
+				}
+
+				preparedStatement.setString(1, createLowerKey(displayName));
+
+				// execute prepared statement; discovery records are removed by cascade
+				int rowsAffected = preparedStatement.executeUpdate();
+
+				if (rowsAffected > 0) {
+					discoveriesChanged(-discoveryCount);
+				}
+
+				// output debugging information
+				if (plugin.getConfig().getBoolean("debug")) {
+					plugin.getLogger().info(rowsAffected + " graveyards deleted.");
+				}
+			}
+			catch (SQLException e) {
+
+				// output simple error message
+				plugin.getLogger().warning("An error occurred while attempting to "
+						+ "delete a Graveyard record from the " + this + " datastore.");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.getConfig().getBoolean("debug")) {
+					e.printStackTrace();
+				}
+			}
+		});
+
+		return graveyard;
+	}
+
+
+	@Override
+	public Collection<String> selectPlayersWithDiscoveries() {
+
+		Collection<String> returnSet = new HashSet<>();
+
+		// write queued discovery records so query reflects them
+		discoveryWriteQueue.flush();
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     PreparedStatement preparedStatement = prepare(lease.getConnection(), "SelectPlayersWithDiscovery");
+		     ResultSet rs = preparedStatement.executeQuery()) {
+
+			while (rs.next()) {
+
+				// reconstitute player uid from components
+				UUID playerUid = new UUID(rs.getLong("PlayerUidMsb"), rs.getLong("PlayerUidLsb"));
+
+				// get offline player from uid
+				OfflinePlayer offlinePlayer = plugin.getServer().getOfflinePlayer(playerUid);
+
+				// if offline player name is not null, add to return set
+				if (offlinePlayer.getName() != null) {
+					returnSet.add(offlinePlayer.getName());
+				}
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occurred while trying to " +
+					"select players with discoveries from the " + this + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+
+		return returnSet;
+	}
+
+
+	@Override
+	public boolean deleteDiscovery(final String displayName, final UUID playerUid) {
+
+		// if parameter is null, return false
+		if (displayName == null || playerUid == null) {
+			return false;
+		}
+
+		// run delete on writer thread and wait for result
+		return writeExecutor.call(() -> {
+
+			boolean result = false;
+
+			// write queued discovery records so delete reflects them
+			discoveryWriteQueue.flush();
+
+			try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+			     PreparedStatement preparedStatement = prepare(lease.getConnection(), "DeleteDiscovery")) {
+
+				preparedStatement.setLong(1, playerUid.getMostSignificantBits());
+				preparedStatement.setLong(2, playerUid.getLeastSignificantBits());
+				preparedStatement.setString(3, createLowerKey(displayName));
+
+				// execute prepared statement
+				int rowsAffected = preparedStatement.executeUpdate();
+				result = rowsAffected > 0;
+				discoveriesChanged(-rowsAffected);
+
+				// output debugging information
+				if (plugin.getConfig().getBoolean("debug")) {
+					plugin.getLogger().info(rowsAffected + " discoveries deleted.");
+				}
+			}
+			catch (SQLException e) {
+
+				// output simple error message
+				plugin.getLogger().warning("An error occurred while attempting to "
+						+ "delete a Discovery record from the " + this + " datastore.");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.getConfig().getBoolean("debug")) {
+					e.printStackTrace();
+				}
+			}
+			return result;
+		});
+	}
+
+
+	@Override
+	public int selectGraveyardCount() {
+
+		int count = 0;
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     PreparedStatement preparedStatement = prepare(lease.getConnection(), "SelectGraveyardCount");
+		     ResultSet rs = preparedStatement.executeQuery()) {
+
+			if (rs.next()) {
+				count = rs.getInt("GraveyardCount");
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occurred while attempting to retrieve a count of all graveyard records.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+		}
+		return count;
+	}
+
+
+	@Override
+	public long selectDiscoveryCount() {
+
+		long count = 0;
+
+		// write queued discovery records so count includes them
+		discoveryWriteQueue.flush();
+
+		try (JdbcConnectionPool.Lease lease = connectionPool.acquire();
+		     PreparedStatement preparedStatement = prepare(lease.getConnection(), "SelectDiscoveryCount");
+		     ResultSet rs = preparedStatement.executeQuery()) {
+
+			if (rs.next()) {
+				count = rs.getLong("DiscoveryCount");
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occurred while attempting to retrieve a count of all discovery records.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,1301 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+
+/**
+ * Append-only log datastore. All records are held in memory; every change is appended to a log file
+ * through a memory-mapped file channel. On startup the log is replayed to rebuild the in-memory records.
+ * When superseded entries outnumber live records, the log is compacted by rewriting it with only the
+ * current records.
+ * <p>
+ * Each log entry is framed as a length, a type byte, a payload and a CRC32 checksum of the type and payload.
+ * Replay stops at the first empty, truncated or corrupt entry, so a torn write at the end of the log is
+ * discarded and overwritten by the next append.
+ */
+final class DataStoreLog extends DataStoreAbstract implements DataStore {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+	// log file
+	private final File logFile;
+
+	// log file channel
+	private FileChannel channel;
+
+	// memory-mapped region of log file; replaced only while holding both the write lock and the map lock
+	private volatile MappedByteBuffer buffer;
+
+	// lock held while the mapped region is forced or replaced, so that a region is never forced once unmapped
+	private final Object mapLock = new Object();
+
+	// true if the log file has an earlier format, to be upgraded by compaction
+	private boolean upgradeDue;
+
+	// position at which next entry is written
+	private int writePosition;
+
+	// true if entries have been written since last sync
+	private boolean dirty;
+
+	// repeating sync and compaction task
+	private BukkitTask maintenanceTask;
+
+	// map of graveyards keyed by primary key
+	private final Map<Integer, Graveyard> graveyardMap = new HashMap<>();
+
+	// map of graveyard primary keys keyed by lower case search key
+	private final Map<String, Integer> keyMap = new HashMap<>();
+
+	// map of discovered graveyard primary keys keyed by player uid
+	private final Map<UUID, Set<Integer>> discoveryMap = new HashMap<>();
+
+	// next primary key to assign
+	private int nextPrimaryKey = 1;
+
+	// number of entries in log
+	private int entryCount;
+
+	// number of compactions since datastore was initialized
+	private int compactionCount;
+
+	// lock guarding records and log
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// log file header: magic number, format version, and next primary key to assign
+	private final static int MAGIC = 0x53474C47;
+	private final static int FORMAT_VERSION = 2;
+	private final static int HEADER_SIZE = 12;
+	private final static int NEXT_KEY_OFFSET = 8;
+
+	// header size of format version 1, which has no next primary key
+	private final static int V1_HEADER_SIZE = 8;
+
+	// entry framing: length, type byte, checksum
+	private final static int FRAME_OVERHEAD = 4 + 1 + 4;
+
+	// entry types
+	private final static byte PUT_GRAVEYARD = 1;
+	private final static byte DELETE_GRAVEYARD = 2;
+	private final static byte PUT_DISCOVERY = 3;
+	private final static byte DELETE_DISCOVERY = 4;
+
+	// initial size of mapped region, in bytes
+	private final static int INITIAL_MAP_SIZE = 1 << 20;
+
+	// maximum growth of mapped region at a time, in bytes
+	private final static int MAX_MAP_GROWTH = 64 << 20;
+
+	// minimum number of log entries before compaction is considered
+	private final static int COMPACTION_MIN_ENTRIES = 1000;
+
+	// ratio of log entries to live records at which log is compacted
+	private final static int COMPACTION_RATIO = 2;
+
+	// interval between sync and compaction checks, in server ticks
+	private final static long MAINTENANCE_INTERVAL = 20L;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	DataStoreLog(final JavaPlugin plugin) {
+
+		// reference to main class
+		this.plugin = plugin;
+
+		// set datastore type
+		this.type = DataStoreType.LOG;
+
+		// set log file
+		this.logFile = new File(plugin.getDataFolder(), type.getStorageName());
+	}
+
+
+	@Override
+	public void initialize() throws IOException {
+
+		// if data store is already initialized, do nothing and return
+		if (this.isInitialized()) {
+			plugin.getLogger().info(this + " datastore already initialized.");
+			return;
+		}
+
+		// create data folder if necessary
+		//noinspection ResultOfMethodCallIgnored
+		plugin.getDataFolder().mkdirs();
+
+		lock.writeLock().lock();
+		try {
+			// open log and replay entries
+			long startTime = System.nanoTime();
+			openLog();
+			plugin.getLogger().info(this + " datastore replayed " + entryCount + " log entries in "
+					+ (System.nanoTime() - startTime) / 1_000_000 + " ms.");
+
+			// compact log if warranted, or to upgrade log of earlier format
+			if (upgradeDue || isCompactionDue()) {
+				compact();
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+
+		// start sync and compaction task
+		maintenanceTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin,
+				this::maintain, MAINTENANCE_INTERVAL, MAINTENANCE_INTERVAL);
+
+		// set initialized true
+		setInitialized(true);
+		plugin.getLogger().info(this + " datastore initialized.");
+	}
+
+
+	/**
+	 * Open log file, map it into memory and replay its entries. A torn or corrupt final entry is discarded;
+	 * a corrupt entry followed by further entries is not, so that the log is not opened and no later entry is lost.
+	 * Caller must hold write lock.
+	 *
+	 * @throws IOException if the log file cannot be opened or mapped, has an invalid header, or is corrupt
+	 */
+	private void openLog() throws IOException {
+
+		graveyardMap.clear();
+		keyMap.clear();
+		discoveryMap.clear();
+		nextPrimaryKey = 1;
+		entryCount = 0;
+
+		channel = FileChannel.open(logFile.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		boolean newFile = channel.size() == 0;
+
+		replaceBuffer(channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_MAP_SIZE, channel.size())));
+
+		// write header to new file, or check header of existing file
+		if (newFile) {
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, FORMAT_VERSION);
+			buffer.putInt(NEXT_KEY_OFFSET, nextPrimaryKey);
+		}
+		else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) < 1 || buffer.getInt(4) > FORMAT_VERSION) {
+			replaceBuffer(null);
+			channel.close();
+			throw new IOException("Log file " + logFile.getName() + " has an unrecognized format.");
+		}
+
+		// read next primary key from header, so that keys of deleted graveyards are not reused after compaction
+		upgradeDue = buffer.getInt(4) < FORMAT_VERSION;
+		if (!upgradeDue) {
+			nextPrimaryKey = Math.max(1, buffer.getInt(NEXT_KEY_OFFSET));
+		}
+
+		// replay entries
+		int position = upgradeDue ? V1_HEADER_SIZE : HEADER_SIZE;
+		while (position + FRAME_OVERHEAD <= buffer.capacity()) {
+
+			int length = buffer.getInt(position);
+
+			// stop at end of written entries
+			if (length == 0) {
+				break;
+			}
+
+			// stop at entry with invalid length, if it is the final entry
+			if (length < 0 || (long) position + 4 + length + 4 > buffer.capacity()) {
+				if (!isClear(position + 4)) {
+					throw corruptLog(position);
+				}
+				plugin.getLogger().warning("Discarding torn entry at offset " + position + " of "
+						+ logFile.getName() + ".");
+				break;
+			}
+
+			byte[] data = new byte[length];
+			buffer.get(position + 4, data);
+			int checksum = buffer.getInt(position + 4 + length);
+
+			// stop at entry with invalid checksum, if it is the final entry
+			if (checksum != checksum(data)) {
+				if (!isClear(position + 4 + length + 4)) {
+					throw corruptLog(position);
+				}
+				plugin.getLogger().warning("Discarding torn entry at offset " + position + " of "
+						+ logFile.getName() + ".");
+				break;
+			}
+
+			apply(data);
+			entryCount++;
+			position += 4 + length + 4;
+		}
+
+		writePosition = position;
+
+		// clear remainder of mapped region, so that discarded bytes are not mistaken for entries
+		for (int i = writePosition; i < buffer.capacity(); i++) {
+			if (buffer.get(i) != 0) {
+				buffer.put(i, (byte) 0);
+			}
+		}
+	}
+
+
+	/**
+	 * Check if mapped region is clear of written bytes from an offset to its end
+	 *
+	 * @param offset the offset
+	 * @return true if all bytes from the offset are zero
+	 */
+	private boolean isClear(final int offset) {
+		for (int i = offset; i < buffer.capacity(); i++) {
+			if (buffer.get(i) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Unmap and close a log file found to be corrupt before its final entry, leaving the file unchanged
+	 *
+	 * @param position the offset of the corrupt entry
+	 * @return IOException - the exception to throw
+	 * @throws IOException if the log file cannot be closed
+	 */
+	private IOException corruptLog(final int position) throws IOException {
+		replaceBuffer(null);
+		channel.close();
+		return new IOException("Log file " + logFile.getName() + " has a corrupt entry at offset " + position
+				+ " followed by further entries. Restore the log file from a backup, or remove it to start a new log.");
+	}
+
+
+	/**
+	 * Apply a log entry to the in-memory records
+	 *
+	 * @param data the entry type and payload
+	 * @throws IOException if the entry cannot be decoded
+	 */
+	private void apply(final byte[] data) throws IOException {
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+		switch (in.readByte()) {
+			case PUT_GRAVEYARD -> putGraveyard(readGraveyard(in));
+			case DELETE_GRAVEYARD -> removeGraveyard(in.readInt());
+			case PUT_DISCOVERY -> discoveryMap.computeIfAbsent(readUuid(in), k -> new HashSet<>()).add(in.readInt());
+			case DELETE_DISCOVERY -> {
+				UUID playerUid = readUuid(in);
+				removeDiscovery(playerUid, in.readInt());
+			}
+			default -> throw new IOException("Unknown log entry type.");
+		}
+	}
+
+
+	/**
+	 * Put graveyard in in-memory records, replacing any graveyard with the same primary key
+	 *
+	 * @param graveyard the graveyard
+	 */
+	private void putGraveyard(final Graveyard graveyard) {
+
+		Graveyard existing = graveyardMap.put(graveyard.getPrimaryKey(), graveyard);
+		if (existing != null) {
+			keyMap.remove(existing.getSearchKey().toLowerCase());
+		}
+		keyMap.put(graveyard.getSearchKey().toLowerCase(), graveyard.getPrimaryKey());
+
+		nextPrimaryKey = Math.max(nextPrimaryKey, graveyard.getPrimaryKey() + 1);
+	}
+
+
+	/**
+	 * Remove graveyard and its discoveries from in-memory records
+	 *
+	 * @param primaryKey the graveyard primary key
+	 * @return the removed graveyard, or null if none
+	 */
+	private Graveyard removeGraveyard(final int primaryKey) {
+
+		Graveyard removed = graveyardMap.remove(primaryKey);
+		if (removed != null) {
+			keyMap.remove(removed.getSearchKey().toLowerCase());
+			discoveryMap.values().forEach(discoveries -> discoveries.remove(primaryKey));
+			discoveryMap.values().removeIf(Set::isEmpty);
+		}
+		return removed;
+	}
+
+
+	/**
+	 * Remove discovery from in-memory records
+	 *
+	 * @param playerUid the player uid
+	 * @param primaryKey the graveyard primary key
+	 * @return boolean - {@code true} if discovery was removed, {@code false} if not present
+	 */
+	private boolean removeDiscovery(final UUID playerUid, final int primaryKey) {
+
+		Set<Integer> discoveries = discoveryMap.get(playerUid);
+		if (discoveries == null || !discoveries.remove(primaryKey)) {
+			return false;
+		}
+		if (discoveries.isEmpty()) {
+			discoveryMap.remove(playerUid);
+		}
+		return true;
+	}
+
+
+	/**
+	 * Get primary key of graveyard by display name or search key, ignoring case
+	 *
+	 * @param displayName the display name or search key
+	 * @return Integer - the primary key, or null if no graveyard matches
+	 */
+	private Integer findPrimaryKey(final String displayName) {
+		return keyMap.get(Graveyard.createSearchKey(displayName).toLowerCase());
+	}
+
+
+	/**
+	 * Append an entry to the log, growing the mapped region if necessary. Caller must hold write lock.
+	 *
+	 * @param data the entry type and payload
+	 * @throws IOException if the mapped region cannot be grown
+	 */
+	private void append(final byte[] data) throws IOException {
+
+		if (buffer == null) {
+			throw new IOException("Log file " + logFile.getName() + " is not open.");
+		}
+
+		int frameSize = 4 + data.length + 4;
+
+		// grow mapped region if necessary
+		if (writePosition + frameSize > buffer.capacity()) {
+			long required = (long) writePosition + frameSize;
+			long newSize = buffer.capacity() + Math.min(buffer.capacity(), MAX_MAP_GROWTH);
+			while (newSize < required) {
+				newSize += Math.min(newSize, MAX_MAP_GROWTH);
+			}
+			if (newSize > Integer.MAX_VALUE) {
+				throw new IOException("Log file " + logFile.getName() + " has reached its maximum size.");
+			}
+
+			// written pages remain dirty in the new region, and are forced by the next sync
+			replaceBuffer(channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize));
+		}
+
+		// write entry body and checksum, then length, so that a partly written entry is not replayed
+		buffer.put(writePosition + 4, data);
+		buffer.putInt(writePosition + 4 + data.length, checksum(data));
+		buffer.putInt(writePosition, data.length);
+
+		writePosition += frameSize;
+		entryCount++;
+		dirty = true;
+	}
+
+
+	/**
+	 * Append an entry to the log, logging any failure. Caller must hold write lock.
+	 *
+	 * @param data the entry type and payload
+	 * @return boolean - {@code true} if the entry was appended, {@code false} if not
+	 */
+	private boolean tryAppend(final byte[] data) {
+		try {
+			append(data);
+			return true;
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("An error occurred while writing to the " + this + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+			return false;
+		}
+	}
+
+
+	/**
+	 * Replace the mapped region, unmapping the region it replaces. Caller must hold write lock.
+	 *
+	 * @param mapped the new mapped region, or null to unmap the current region
+	 */
+	private void replaceBuffer(final MappedByteBuffer mapped) {
+		synchronized (mapLock) {
+			MappedByteBuffer previous = buffer;
+			buffer = mapped;
+			if (previous != null) {
+				unmap(previous);
+			}
+		}
+	}
+
+
+	/**
+	 * Force changes in the mapped region to disk. The write lock need not be held, so that appends
+	 * are not stalled by the sync.
+	 */
+	private void forceBuffer() {
+		synchronized (mapLock) {
+			MappedByteBuffer mapped = buffer;
+			if (mapped != null) {
+				mapped.force();
+			}
+		}
+	}
+
+
+	/**
+	 * Release a mapped region without waiting for it to be garbage collected, so that the file may be
+	 * replaced on platforms that do not allow a mapped file to be replaced. If the region cannot be
+	 * released directly, it is released when garbage collected. The region must not be accessed afterwards.
+	 *
+	 * @param mapped the mapped region
+	 */
+	private static void unmap(final MappedByteBuffer mapped) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), mapped);
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			// region is released when garbage collected
+		}
+	}
+
+
+	private static int checksum(final byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		return (int) crc.getValue();
+	}
+
+
+	/**
+	 * Sync log to disk if changed, and compact log if warranted
+	 */
+	private void maintain() {
+
+		boolean syncDue = false;
+
+		lock.writeLock().lock();
+		try {
+			if (buffer == null) {
+				return;
+			}
+			if (isCompactionDue()) {
+				compact();
+			}
+			else if (dirty) {
+				dirty = false;
+				syncDue = true;
+			}
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("An error occurred while compacting the " + this + " datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+
+		// force changes to disk after releasing write lock
+		if (syncDue) {
+			forceBuffer();
+		}
+	}
+
+
+	/**
+	 * Check if log entries outnumber live records enough to warrant compaction
+	 *
+	 * @return boolean - {@code true} if log should be compacted
+	 */
+	private boolean isCompactionDue() {
+		return entryCount >= COMPACTION_MIN_ENTRIES && entryCount > COMPACTION_RATIO * liveRecordCount();
+	}
+
+
+	private int liveRecordCount() {
+		return graveyardMap.size() + discoveryMap.values().stream().mapToInt(Set::size).sum();
+	}
+
+
+	/**
+	 * Rewrite log with only current records. The new log is written to a temporary file, then moved
+	 * over the existing log; if the move fails, the existing log remains in use. Caller must hold write lock.
+	 *
+	 * @throws IOException if the log could not be compacted
+	 */
+	private void compact() throws IOException {
+
+		long startTime = System.nanoTime();
+		int oldEntryCount = entryCount;
+
+		File compactFile = new File(logFile.getPath() + ".compact");
+
+		// write header and current records to temporary file
+		try (FileChannel out = FileChannel.open(compactFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).putInt(nextPrimaryKey);
+			header.flip();
+			out.write(header);
+
+			for (Graveyard graveyard : graveyardMap.values()) {
+				writeFrame(out, encodeGraveyard(graveyard));
+			}
+			for (Map.Entry<UUID, Set<Integer>> entry : discoveryMap.entrySet()) {
+				for (int primaryKey : entry.getValue()) {
+					writeFrame(out, encodeDiscovery(PUT_DISCOVERY, entry.getKey(), primaryKey));
+				}
+			}
+			out.force(true);
+		}
+
+		// unmap and close current log, then replace it with compacted log
+		replaceBuffer(null);
+		channel.close();
+
+		try {
+			Files.move(compactFile.toPath(), logFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			// reopen log, whether compacted or not
+			openLog();
+		}
+
+		dirty = false;
+		compactionCount++;
+
+		if (plugin.getConfig().getBoolean("debug")) {
+			plugin.getLogger().info(this + " log compacted from " + oldEntryCount + " to " + entryCount
+					+ " entries in " + (System.nanoTime() - startTime) / 1_000_000 + " ms.");
+		}
+	}
+
+
+	private static void writeFrame(final FileChannel out, final byte[] data) throws IOException {
+		ByteBuffer frame = ByteBuffer.allocate(4 + data.length + 4);
+		frame.putInt(data.length).put(data).putInt(checksum(data));
+		frame.flip();
+		while (frame.hasRemaining()) {
+			out.write(frame);
+		}
+	}
+
+
+	private static byte[] encodeGraveyard(final Graveyard graveyard) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(PUT_GRAVEYARD);
+			out.writeInt(graveyard.getPrimaryKey());
+			writeString(out, graveyard.getSearchKey());
+			writeString(out, graveyard.getDisplayName());
+			out.writeBoolean(graveyard.isEnabled());
+			out.writeBoolean(graveyard.isHidden());
+			out.writeInt(graveyard.getDiscoveryRange());
+			writeString(out, graveyard.getDiscoveryMessage());
+			writeString(out, graveyard.getRespawnMessage());
+			writeString(out, graveyard.getGroup());
+			out.writeInt(graveyard.getSafetyRange());
+			out.writeLong(graveyard.getSafetyTime());
+			writeString(out, graveyard.getWorldName());
+			out.writeBoolean(graveyard.getWorldUid() != null);
+			if (graveyard.getWorldUid() != null) {
+				writeUuid(out, graveyard.getWorldUid());
+			}
+			out.writeDouble(graveyard.getX());
+			out.writeDouble(graveyard.getY());
+			out.writeDouble(graveyard.getZ());
+			out.writeFloat(graveyard.getYaw());
+			out.writeFloat(graveyard.getPitch());
+			return bytes.toByteArray();
+		}
+		catch (IOException e) {
+			// not thrown by byte array output stream
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	private Graveyard readGraveyard(final DataInputStream in) throws IOException {
+
+		int primaryKey = in.readInt();
+		String searchKey = readString(in);
+		String displayName = readString(in);
+
+		return new Graveyard.Builder(plugin)
+				.primaryKey(primaryKey)
+				.displayName(displayName)
+				.searchKey(searchKey)
+				.enabled(in.readBoolean())
+				.hidden(in.readBoolean())
+				.discoveryRange(in.readInt())
+				.discoveryMessage(readString(in))
+				.respawnMessage(readString(in))
+				.group(readString(in))
+				.safetyRange(in.readInt())
+				.safetyTime((int) in.readLong())
+				.worldName(readString(in))
+				.worldUid(in.readBoolean() ? readUuid(in) : null)
+				.x(in.readDouble())
+				.y(in.readDouble())
+				.z(in.readDouble())
+				.yaw(in.readFloat())
+				.pitch(in.readFloat())
+				.build();
+	}
+
+
+	private static byte[] encodeDiscovery(final byte entryType, final UUID playerUid, final int primaryKey) {
+		ByteBuffer data = ByteBuffer.allocate(1 + 16 + 4);
+		data.put(entryType);
+		data.putLong(playerUid.getMostSignificantBits());
+		data.putLong(playerUid.getLeastSignificantBits());
+		data.putInt(primaryKey);
+		return data.array();
+	}
+
+
+	private static byte[] encodeDeleteGraveyard(final int primaryKey) {
+		return ByteBuffer.allocate(1 + 4).put(DELETE_GRAVEYARD).putInt(primaryKey).array();
+	}
+
+
+	private static void writeString(final DataOutputStream out, final String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+
+	private static String readString(final DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+
+	private static void writeUuid(final DataOutputStream out, final UUID uuid) throws IOException {
+		out.writeLong(uuid.getMostSignificantBits());
+		out.writeLong(uuid.getLeastSignificantBits());
+	}
+
+
+	private static UUID readUuid(final DataInputStream in) throws IOException {
+		return new UUID(in.readLong(), in.readLong());
+	}
+
+
+	@Override
+	public void close() {
+
+		// wait for submitted asynchronous operations to complete
+		shutdownExecutor();
+
+		// cancel sync and compaction task
+		if (maintenanceTask != null) {
+			maintenanceTask.cancel();
+			maintenanceTask = null;
+		}
+
+		lock.writeLock().lock();
+		try {
+			forceBuffer();
+			replaceBuffer(null);
+			if (channel != null) {
+				channel.close();
+				channel = null;
+			}
+			plugin.getLogger().info(this + " datastore closed.");
+		}
+		catch (IOException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while closing the " + this + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			graveyardMap.clear();
+			keyMap.clear();
+			discoveryMap.clear();
+			lock.writeLock().unlock();
+		}
+
+		setInitialized(false);
+	}
+
+
+	@Override
+	public void sync() {
+		lock.writeLock().lock();
+		try {
+			dirty = false;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		forceBuffer();
+	}
+
+
+	@Override
+	public Map<String, String> getStatus() {
+
+		Map<String, String> status = new LinkedHashMap<>();
+
+		lock.readLock().lock();
+		try {
+			status.put("Storage type", this.toString());
+			status.put("Log size", writePosition / 1024 + " KiB written, "
+					+ (buffer == null ? 0 : buffer.capacity() / 1024) + " KiB mapped");
+			status.put("Log entries", entryCount + " entries, " + liveRecordCount() + " live records");
+			status.put("Log compactions", String.valueOf(compactionCount));
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+
+		return status;
+	}
+
+
+	@Override
+	public boolean delete() {
+
+		// delete log file and any leftover temporary compaction file
+		//noinspection ResultOfMethodCallIgnored
+		new File(logFile.getPath() + ".compact").delete();
+
+		return logFile.exists() && logFile.delete();
+	}
+
+
+	@Override
+	public Collection<Graveyard> selectAllGraveyards() {
+		lock.readLock().lock();
+		try {
+			return new ArrayList<>(graveyardMap.values());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	@Override
+	public boolean streamDiscoveries(final int chunkSize, final Consumer<List<Discovery>> action) {
+
+		// copy records under lock, so that the action does not run while holding the lock
+		List<Discovery> discoveries = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			for (Map.Entry<UUID, Set<Integer>> entry : discoveryMap.entrySet()) {
+				for (int primaryKey : entry.getValue()) {
+					Graveyard graveyard = graveyardMap.get(primaryKey);
+					if (graveyard != null) {
+						discoveries.add(new Discovery(graveyard.getSearchKey(), entry.getKey()));
+					}
+				}
+			}
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+
+		// pass records to action in chunks
+		for (int i = 0; i < discoveries.size(); i += chunkSize) {
+			action.accept(discoveries.subList(i, Math.min(i + chunkSize, discoveries.size())));
+		}
+
+		return true;
+	}
+
+
+	@Override
+	public Optional<Graveyard> selectGraveyard(final String displayName) {
+
+		// if display name is null, return empty optional
+		if (displayName == null) {
+			return Optional.empty();
+		}
+
+		lock.readLock().lock();
+		try {
+			Integer primaryKey = findPrimaryKey(displayName);
+			return primaryKey == null ? Optional.empty() : Optional.ofNullable(graveyardMap.get(primaryKey));
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	@Override
+	public Collection<Graveyard> selectUndiscoveredGraveyards(final Player player) {
+
+		// if player is null, return empty set
+		if (player == null) {
+			return Collections.emptySet();
+		}
+
+		final UUID worldUid = player.getWorld().getUID();
+
+		lock.readLock().lock();
+		try {
+			final Set<Integer> discoveries = discoveryMap.getOrDefault(player.getUniqueId(), Collections.emptySet());
+
+			// return enabled hidden graveyards in player world that player has not discovered
+			return graveyardMap.values().stream()
+					.filter(graveyard -> graveyard.isEnabled() && graveyard.isHidden())
+					.filter(graveyard -> worldUid.equals(graveyard.getWorldUid()))
+					.filter(graveyard -> !discoveries.contains(graveyard.getPrimaryKey()))
+					.collect(Collectors.toSet());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	@Override
+	public Collection<String> selectUndiscoveredKeys(final Player player) {
+		return selectUndiscoveredGraveyards(player).stream()
+				.map(Graveyard::getSearchKey)
+				.collect(Collectors.toSet());
+	}
+
+
+	@Override
+	public Optional<Graveyard> selectNearestGraveyard(final Player player) {
+
+		// if player is null, return empty optional
+		if (player == null) {
+			return Optional.empty();
+		}
+
+		final Location playerLocation = player.getLocation();
+		final UUID worldUid = player.getWorld().getUID();
+
+		lock.readLock().lock();
+		try {
+			final Set<Integer> discoveries = discoveryMap.getOrDefault(player.getUniqueId(), Collections.emptySet());
+
+			Graveyard closest = null;
+			double closestDistance = Double.MAX_VALUE;
+
+			for (Graveyard graveyard : graveyardMap.values()) {
+
+				// skip graveyards that are disabled, in another world, or hidden and undiscovered
+				if (!graveyard.isEnabled()
+						|| !worldUid.equals(graveyard.getWorldUid())
+						|| (graveyard.isHidden() && !discoveries.contains(graveyard.getPrimaryKey()))) {
+					continue;
+				}
+
+				// skip graveyards with group for which player does not have permission
+				String group = graveyard.getGroup();
+				if (group != null && !group.isEmpty() && !player.hasPermission("group." + group)) {
+					continue;
+				}
+
+				double dx = graveyard.getX() - playerLocation.getX();
+				double dy = graveyard.getY() - playerLocation.getY();
+				double dz = graveyard.getZ() - playerLocation.getZ();
+				double distance = dx * dx + dy * dy + dz * dz;
+
+				if (distance < closestDistance) {
+					closest = graveyard;
+					closestDistance = distance;
+				}
+			}
+
+			return Optional.ofNullable(closest);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	@Override
+	public List<String> selectMatchingGraveyardNames(final String match) {
+
+		// if match is null, return empty list
+		if (match == null) {
+			return Collections.emptyList();
+		}
+
+		String prefix = match.toLowerCase();
+
+		lock.readLock().lock();
+		try {
+			// return search keys with matching prefix, in primary key order
+			return graveyardMap.values().stream()
+					.filter(graveyard -> graveyard.getSearchKey().toLowerCase().startsWith(prefix))
+					.sorted(Comparator.comparingInt(Graveyard::getPrimaryKey))
+					.map(Graveyard::getSearchKey)
+					.collect(Collectors.toList());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	@Override
+	public void insertDiscovery(final Discovery record) {
+
+		// if record is null, do nothing and return
+		if (record == null) {
+			return;
+		}
+
+		insertDiscoveries(List.of(record), false);
+	}
+
+
+	@Override
+	public void loadDiscoveries(final UUID playerUid) {
+		// no action necessary for this storage type
+	}
+
+
+	@Override
+	public void unloadDiscoveries(final UUID playerUid) {
+		// no action necessary for this storage type
+	}
+
+
+	@Override
+	public int insertDiscoveries(final Collection<Discovery> discoveries, final boolean rollbackOnFailure) {
+
+		// if discoveries is null, return int 0
+		if (discoveries == null) {
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().warning("Could not insert discovery records in data store "
+						+ "because collection is null!");
+			}
+			return 0;
+		}
+
+		int count = 0;
+
+		lock.writeLock().lock();
+		try {
+			// resolve graveyard primary keys, reporting discoveries of nonexistent graveyards
+			Map<Discovery, Integer> resolved = new LinkedHashMap<>();
+			for (Discovery discovery : discoveries) {
+				Integer primaryKey = findPrimaryKey(discovery.getSearchKey());
+				if (primaryKey == null) {
+					plugin.getLogger().warning("Could not insert discovery record '" + discovery.getSearchKey()
+							+ " for player " + discovery.getPlayerUid() + "' into the " + this
+							+ " datastore because the graveyard does not exist.");
+					if (rollbackOnFailure) {
+						plugin.getLogger().warning("Insert of " + discoveries.size() + " discovery records rolled back.");
+						return 0;
+					}
+					continue;
+				}
+				resolved.put(discovery, primaryKey);
+			}
+
+			// append and apply discoveries not already present
+			for (Map.Entry<Discovery, Integer> entry : resolved.entrySet()) {
+				UUID playerUid = entry.getKey().getPlayerUid();
+				int primaryKey = entry.getValue();
+				if (!discoveryMap.getOrDefault(playerUid, Collections.emptySet()).contains(primaryKey)
+						&& tryAppend(encodeDiscovery(PUT_DISCOVERY, playerUid, primaryKey))) {
+					discoveryMap.computeIfAbsent(playerUid, k -> new HashSet<>()).add(primaryKey);
+					count++;
+				}
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+
+		discoveriesChanged(count);
+
+		// output debugging information
+		if (plugin.getConfig().getBoolean("debug")) {
+			plugin.getLogger().info(count + " discovery records inserted.");
+		}
+
+		return count;
+	}
+
+
+	@Override
+	public int insertGraveyards(final Collection<Graveyard> graveyards, final boolean rollbackOnFailure) {
+
+		// if graveyard collection is null, do nothing and return
+		if (graveyards == null) {
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().warning("Could not insert graveyard records in data store "
+						+ "because collection is null!");
+			}
+			return 0;
+		}
+
+		int count = 0;
+
+		lock.writeLock().lock();
+		try {
+			// select graveyards whose search keys are not already in use
+			Set<String> newKeys = new HashSet<>();
+			List<Graveyard> accepted = new ArrayList<>();
+			for (Graveyard graveyard : graveyards) {
+				String lowerKey = graveyard.getSearchKey().toLowerCase();
+				if (keyMap.containsKey(lowerKey) || !newKeys.add(lowerKey)) {
+					plugin.getLogger().warning("Could not insert graveyard record '" + graveyard.getDisplayName()
+							+ "' into the " + this + " datastore because the name is already in use.");
+					if (rollbackOnFailure) {
+						plugin.getLogger().warning("Insert of " + graveyards.size() + " graveyard records rolled back.");
+						return 0;
+					}
+					continue;
+				}
+				accepted.add(graveyard);
+			}
+
+			// assign primary keys, then append and apply graveyards
+			for (Graveyard graveyard : accepted) {
+				Graveyard keyed = new Graveyard.Builder(graveyard)
+						.primaryKey(nextPrimaryKey)
+						.build();
+				if (tryAppend(encodeGraveyard(keyed))) {
+					putGraveyard(keyed);
+					buffer.putInt(NEXT_KEY_OFFSET, nextPrimaryKey);
+					count++;
+				}
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+
+		// output debugging information
+		if (plugin.getConfig().getBoolean("debug")) {
+			plugin.getLogger().info(count + " graveyard records inserted.");
+		}
+
+		return count;
+	}
+
+
+	@Override
+	public void updateGraveyard(final Graveyard graveyard) {
+
+		// if graveyard is null do nothing and return
+		if (graveyard == null) {
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			// if graveyard does not exist, do nothing and return
+			if (!graveyardMap.containsKey(graveyard.getPrimaryKey())) {
+				return;
+			}
+
+			// if search key is in use by another graveyard, do nothing and return
+			Integer existingKey = keyMap.get(graveyard.getSearchKey().toLowerCase());
+			if (existingKey != null && existingKey != graveyard.getPrimaryKey()) {
+				plugin.getLogger().warning("Could not update graveyard record '" + graveyard.getDisplayName()
+						+ "' in the " + this + " datastore because the name is already in use.");
+				return;
+			}
+
+			if (tryAppend(encodeGraveyard(graveyard))) {
+				putGraveyard(graveyard);
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	@Override
+	public Optional<Graveyard> deleteGraveyard(final String displayName) {
+
+		// if displayName is null, return empty optional
+		if (displayName == null) {
+			return Optional.empty();
+		}
+
+		lock.writeLock().lock();
+		try {
+			Integer primaryKey = findPrimaryKey(displayName);
+			if (primaryKey == null || !tryAppend(encodeDeleteGraveyard(primaryKey))) {
+				return Optional.empty();
+			}
+
+			// count discoveries removed with graveyard
+			long discoveryCount = discoveryMap.values().stream()
+					.filter(discoveries -> discoveries.contains(primaryKey))
+					.count();
+
+			Optional<Graveyard> removed = Optional.ofNullable(removeGraveyard(primaryKey));
+			discoveriesChanged(-discoveryCount);
+			return removed;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	@Override
+	public boolean deleteDiscovery(final String displayName, final UUID playerUid) {
+
+		// if parameter is null, return false
+		if (displayName == null || playerUid == null) {
+			return false;
+		}
+
+		lock.writeLock().lock();
+		try {
+			Integer primaryKey = findPrimaryKey(displayName);
+			Set<Integer> discoveries = discoveryMap.get(playerUid);
+			if (primaryKey == null || discoveries == null || !discoveries.contains(primaryKey)) {
+				return false;
+			}
+			if (tryAppend(encodeDiscovery(DELETE_DISCOVERY, playerUid, primaryKey))
+					&& removeDiscovery(playerUid, primaryKey)) {
+				discoveriesChanged(-1);
+				return true;
+			}
+			return false;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	@Override
+	public Collection<String> selectDiscoveredKeys(final UUID playerUid) {
+
+		// if playerUid is null, return empty set
+		if (playerUid == null) {
+			return Collections.emptySet();
+		}
+
+		lock.readLock().lock();
+		try {
+			return discoveryMap.getOrDefault(playerUid, Collections.emptySet()).stream()
+					.map(graveyardMap::get)
+					.filter(Objects::nonNull)
+					.map(Graveyard::getSearchKey)
+					.collect(Collectors.toSet());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	@Override
+	public Collection<String> selectPlayersWithDiscoveries() {
+
+		Collection<UUID> playerUids;
+
+		lock.readLock().lock();
+		try {
+			playerUids = new ArrayList<>(discoveryMap.keySet());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+
+		Collection<String> returnSet = new HashSet<>();
+
+		for (UUID playerUid : playerUids) {
+
+			// get offline player from uid
+			OfflinePlayer offlinePlayer = plugin.getServer().getOfflinePlayer(playerUid);
+
+			// if offline player name is not null, add to return set
+			if (offlinePlayer.getName() != null) {
+				returnSet.add(offlinePlayer.getName());
+			}
+		}
+
+		return returnSet;
+	}
+
+
+	@Override
+	public int selectGraveyardCount() {
+		lock.readLock().lock();
+		try {
+			return graveyardMap.size();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+}
@@ -22,11 +22,13 @@ import org.bukkit.OfflinePlayer;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 
 /**
@@ -37,9 +39,71 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 	// reference to main class
 	private final JavaPlugin plugin;
 
-	// database connection object
+	// database connection used for all writes
 	private Connection connection;
 
+	// cache of prepared statements for write connection
+	private StatementCache statementCache;
+
+	// pool of read-only database connections
+	private ReaderPool readerPool;
+
+	// connection pragma profile
+	private StorageProfile profile;
+
+	// write-behind queue for discovery records
+	private DiscoveryWriteQueue discoveryWriteQueue;
+
+	// single-threaded executor on which all writes are run
+	private StorageWriteExecutor writeExecutor;
+
+	// scheduler for online backups, or null if backups are disabled
+	private BackupScheduler backupScheduler;
+
+	// log of slow statement executions, or null if disabled
+	private SlowQueryLog slowQueryLog;
+
+	// discovery storage mode
+	private DiscoveryStorage discoveryStorage = DiscoveryStorage.ROWS;
+
+	// ids of players in the players table keyed by player uid, least recently used first
+	private final Map<UUID, Integer> playerIdCache = Collections.synchronizedMap(
+			new LinkedHashMap<>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<UUID, Integer> eldest) {
+					return size() > PLAYER_ID_CACHE_SIZE;
+				}
+			});
+
+	// maximum number of cached player ids
+	private final static int PLAYER_ID_CACHE_SIZE = 10000;
+
+	// player id matching no records, for players not in the players table
+	private final static int NO_PLAYER_ID = -1;
+
+	// maximum number of writes waiting for the writer thread
+	private final static int WRITE_QUEUE_CAPACITY = 1000;
+
+	// interval between discovery queue flushes, in milliseconds
+	private final static long DISCOVERY_FLUSH_INTERVAL = 1000L;
+
+	// number of queued discovery records that triggers an immediate flush
+	private final static int DISCOVERY_FLUSH_THRESHOLD = 100;
+
+	// number of read-only connections in reader pool
+	private final static int READER_POOL_SIZE = 3;
+
+	// number of records read from a cursor before they are passed on
+	private final static int STREAM_CHUNK_SIZE = 1000;
+
+	// names of synchronous pragma values
+	private final static Map<String, String> SYNCHRONOUS_NAMES =
+			Map.of("0", "OFF", "1", "NORMAL", "2", "FULL", "3", "EXTRA");
+
+	// names of temp_store pragma values
+	private final static Map<String, String> TEMP_STORE_NAMES =
+			Map.of("0", "DEFAULT", "1", "FILE", "2", "MEMORY");
+
 	// file path for datastore file
 	private final String dataFilePath;
 
@@ -86,12 +150,60 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 		// create a database connection
 		connection = DriverManager.getConnection(dbUrl);
 
+		// apply connection pragma profile
+		profile = StorageProfile.match(plugin.getConfig().getString("storage-profile"));
+		profile.apply(connection);
+		plugin.getLogger().info(this + " storage profile: " + profile);
+
+		// open slow query log if enabled
+		long slowQueryThreshold = plugin.getConfig().getLong("slow-query-threshold");
+		if (slowQueryThreshold > 0) {
+			try {
+				slowQueryLog = new SlowQueryLog(plugin, dbUrl, slowQueryThreshold);
+			}
+			catch (IOException e) {
+				plugin.getLogger().warning("Could not open slow query log file; slow queries will not be logged.");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+			}
+		}
+
+		// create prepared statement cache for connection
+		statementCache = new StatementCache(connection, slowQueryLog);
+
 		// enable foreign keys
 		enableForeignKeys();
 
+		// open read-only connections
+		readerPool = new ReaderPool(dbUrl, profile, READER_POOL_SIZE, slowQueryLog);
+
 		// update schema if necessary
 		updateSchema();
 
+		// convert stored discoveries if discovery storage mode has changed
+		discoveryStorage = DiscoveryStorage.match(plugin.getConfig().getString("discovery-storage"));
+		convertDiscoveryStorage();
+
+		// run storage benchmark if enabled
+		if (plugin.getConfig().getBoolean("storage-benchmark")) {
+			new StorageBenchmark(plugin).runAsync();
+		}
+
+		// start writer thread
+		writeExecutor = new StorageWriteExecutor(plugin, WRITE_QUEUE_CAPACITY);
+
+		// start discovery write queue
+		discoveryWriteQueue = new DiscoveryWriteQueue(plugin, batch -> insertDiscoveryRecords(batch, false),
+				writeExecutor, DISCOVERY_FLUSH_INTERVAL, DISCOVERY_FLUSH_THRESHOLD);
+		discoveryWriteQueue.start();
+
+		// start backup scheduler if enabled
+		long backupInterval = plugin.getConfig().getLong("backup-interval");
+		if (backupInterval > 0) {
+			backupScheduler = new BackupScheduler(plugin, dbUrl, backupInterval,
+					plugin.getConfig().getInt("backup-generations"), () -> writeExecutor.getQueueDepth() > 0);
+			backupScheduler.start();
+		}
+
 		// set initialized true
 		setInitialized(true);
 		plugin.getLogger().info(this + " datastore initialized.");
@@ -115,161 +227,269 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 	}
 
 
-	private int getSchemaVersion() {
+	/**
+	 * Run any schema migrations newer than the schema version of the database
+	 *
+	 * @throws SQLException if a migration failed
+	 */
+	private void updateSchema() throws SQLException {
+		schemaVersion = SchemaMigration.migrateAll(plugin, connection);
+	}
 
-		int version = -1;
 
-		try {
-			// create statement
-			final Statement statement = connection.createStatement();
+	/**
+	 * Move any discoveries stored in the storage mode that is not configured to the configured storage mode,
+	 * in a single transaction
+	 *
+	 * @throws SQLException if the discoveries could not be converted; no discoveries are moved
+	 */
+	private void convertDiscoveryStorage() throws SQLException {
 
-			// execute query
-			ResultSet rs = statement.executeQuery(Queries.getQuery("GetUserVersion"));
+		int count = 0;
 
-			// get user version
-			while (rs.next()) {
-				version = rs.getInt(1);
+		connection.setAutoCommit(false);
+		try (Statement statement = connection.createStatement();
+		     PreparedStatement selectBitmap = connection.prepareStatement(Queries.getQuery("SelectDiscoveryBitmap"));
+		     PreparedStatement upsertBitmap = connection.prepareStatement(Queries.getQuery("UpsertDiscoveryBitmap"));
+		     PreparedStatement insertRow = connection.prepareStatement(Queries.getQuery("InsertDiscoveryByKey"))) {
+
+			if (discoveryStorage == DiscoveryStorage.BITMAP) {
+
+				// collect rows of each player into a bitmap, rows being ordered by player
+				int playerId = NO_PLAYER_ID;
+				DiscoveryBitmap bitmap = null;
+				try (ResultSet rs = statement.executeQuery(Queries.getQuery("SelectAllDiscoveredRows"))) {
+					while (rs.next()) {
+						int rowPlayerId = rs.getInt("PlayerId");
+						if (rowPlayerId != playerId) {
+							if (bitmap != null) {
+								writeDiscoveryBitmap(upsertBitmap, null, playerId, bitmap);
+							}
+							playerId = rowPlayerId;
+							bitmap = readDiscoveryBitmap(selectBitmap, playerId);
+						}
+						bitmap.add(rs.getInt("Key"));
+						count++;
+					}
+				}
+				if (bitmap != null) {
+					writeDiscoveryBitmap(upsertBitmap, null, playerId, bitmap);
+				}
+				statement.executeUpdate(Queries.getQuery("DeleteAllDiscovered"));
+			}
+			else {
 
-				if (plugin.getConfig().getBoolean("debug")) {
-					plugin.getLogger().info("Read schema version: " + version);
+				// expand each bitmap into rows, skipping keys of deleted graveyards
+				try (ResultSet rs = statement.executeQuery(Queries.getQuery("SelectAllDiscoveryBitmaps"))) {
+					while (rs.next()) {
+						int playerId = rs.getInt("PlayerId");
+						for (int key : decodeDiscoveryBitmap(rs.getBytes("Bitmap"), playerId).keys().toArray()) {
+							insertRow.setInt(1, playerId);
+							insertRow.setInt(2, key);
+							count += insertRow.executeUpdate();
+						}
+					}
 				}
+				statement.executeUpdate(Queries.getQuery("DeleteAllDiscoveryBitmaps"));
 			}
 
-			// close statement
-			statement.close();
+			connection.commit();
+		}
+		catch (SQLException | RuntimeException e) {
+			connection.rollback();
+			plugin.getLogger().warning("Discoveries could not be converted to " + discoveryStorage + " storage.");
+			throw e;
+		}
+		finally {
+			connection.setAutoCommit(true);
 		}
 
-		catch (SQLException e) {
-			plugin.getLogger().warning("Could not read schema version!");
+		if (count > 0) {
+			plugin.getLogger().info(count + " discovery records converted to " + discoveryStorage + " storage.");
 		}
-		return version;
 	}
 
 
-	@SuppressWarnings("SameParameterValue")
-	private void setSchemaVersion(final int version) {
-
+	/**
+	 * Decode a stored discovery bitmap
+	 *
+	 * @param encoded the stored bitmap
+	 * @param playerId the player id, for error messages
+	 * @return the decoded bitmap
+	 * @throws SQLException if the stored bitmap is not valid
+	 */
+	private static DiscoveryBitmap decodeDiscoveryBitmap(final byte[] encoded, final int playerId) throws SQLException {
 		try {
-			Statement statement = connection.createStatement();
+			return DiscoveryBitmap.fromByteArray(encoded);
+		}
+		catch (IllegalArgumentException e) {
+			throw new SQLException("Invalid discovery bitmap for player id " + playerId + ": " + e.getMessage(), e);
+		}
+	}
 
-			// update schema version in database
-			statement.executeUpdate("PRAGMA user_version = " + version);
 
-			// update schema version field
-			schemaVersion = 1;
+	/**
+	 * Read the discovery bitmap of a player
+	 *
+	 * @param preparedStatement the SelectDiscoveryBitmap statement
+	 * @param playerId the player id
+	 * @return the bitmap of graveyard primary keys discovered by player; empty if none are stored
+	 * @throws SQLException on sql error, or if the stored bitmap is not valid
+	 */
+	private static DiscoveryBitmap readDiscoveryBitmap(final PreparedStatement preparedStatement,
+	                                                   final int playerId) throws SQLException {
 
-			// close statement
-			statement.close();
-		}
-		catch (SQLException e) {
-			plugin.getLogger().warning("Could not set schema user version!");
-			plugin.getLogger().warning(e.getLocalizedMessage());
-			if (plugin.getConfig().getBoolean("debug")) {
-				e.printStackTrace();
-			}
+		preparedStatement.setInt(1, playerId);
+
+		try (ResultSet rs = preparedStatement.executeQuery()) {
+			return rs.next() ? decodeDiscoveryBitmap(rs.getBytes("Bitmap"), playerId) : new DiscoveryBitmap();
 		}
 	}
 
 
 	/**
-	 * Test for existence of graveyards table
+	 * Write the discovery bitmap of a player, deleting the stored bitmap if it is empty
 	 *
-	 * @return boolean {@code true} if table exists, {@code false} if not
+	 * @param upsertStatement the UpsertDiscoveryBitmap statement
+	 * @param deleteStatement the DeleteDiscoveryBitmap statement, or null if the bitmap is not empty
+	 * @param playerId the player id
+	 * @param bitmap the bitmap of graveyard primary keys discovered by player
 	 * @throws SQLException on sql error
 	 */
-	private boolean tableExists() throws SQLException {
-
-		boolean returnValue = false;
-
-		final Statement statement = connection.createStatement();
-		ResultSet rs = statement.executeQuery(Queries.getQuery("SelectGraveyardsTable"));
-		if (rs.next()) {
-			returnValue = true;
+	private static void writeDiscoveryBitmap(final PreparedStatement upsertStatement,
+	                                         final PreparedStatement deleteStatement,
+	                                         final int playerId,
+	                                         final DiscoveryBitmap bitmap) throws SQLException {
+
+		if (bitmap.isEmpty() && deleteStatement != null) {
+			deleteStatement.setInt(1, playerId);
+			deleteStatement.executeUpdate();
+			return;
 		}
-		statement.close();
-		return returnValue;
+
+		upsertStatement.setInt(1, playerId);
+		upsertStatement.setBytes(2, bitmap.toByteArray());
+		upsertStatement.executeUpdate();
 	}
 
 
-	private void updateSchema() throws SQLException {
+	/**
+	 * Get the id of a player, from the cache or the players table
+	 *
+	 * @param preparedStatement the SelectPlayerId statement
+	 * @param playerUid the player unique id
+	 * @return the player id, or {@code NO_PLAYER_ID} if the player has no stored discoveries
+	 * @throws SQLException on sql error
+	 */
+	private int selectPlayerId(final PreparedStatement preparedStatement, final UUID playerUid) throws SQLException {
 
-		// read schema version from database (pragma user_version)
-		schemaVersion = getSchemaVersion();
+		Integer cached = playerIdCache.get(playerUid);
+		if (cached != null) {
+			return cached;
+		}
 
-		// if schema version is 0, migrate tables to schema version 1
-		if (schemaVersion == 0) {
+		preparedStatement.setLong(1, playerUid.getMostSignificantBits());
+		preparedStatement.setLong(2, playerUid.getLeastSignificantBits());
 
-			if (tableExists()) {
+		try (ResultSet rs = preparedStatement.executeQuery()) {
+			if (rs.next()) {
+				int playerId = rs.getInt("PlayerId");
+				playerIdCache.put(playerUid, playerId);
+				return playerId;
+			}
+		}
 
-				int count;
+		// players without an id are not cached, since an id may be assigned by the writer thread
+		return NO_PLAYER_ID;
+	}
 
-				// select all graveyard records
-				Collection<Graveyard> existingGraveyardRecords = selectAllGraveyards();
 
-				// select all discovery records
-				Collection<Discovery> existingDiscoveryRecords = selectAllDiscoveries();
+	/**
+	 * Get the id of a player, adding the player to the players table if necessary. Called on the writer thread;
+	 * if the enclosing transaction is rolled back, the player id cache must be cleared.
+	 *
+	 * @param playerUid the player unique id
+	 * @return the player id
+	 * @throws SQLException on sql error
+	 */
+	private int insertPlayerId(final UUID playerUid) throws SQLException {
 
-				// create statement object
-				Statement statement = connection.createStatement();
+		int playerId = selectPlayerId(statementCache.get("SelectPlayerId"), playerUid);
+		if (playerId != NO_PLAYER_ID) {
+			return playerId;
+		}
 
-				// drop discovered table with old schema
-				statement.executeUpdate(Queries.getQuery("DropDiscoveredTable"));
-				if (plugin.getConfig().getBoolean("debug")) {
-					plugin.getLogger().info("Discovered table dropped.");
-				}
+		PreparedStatement insertStatement = statementCache.get("InsertPlayer");
+		insertStatement.setLong(1, playerUid.getMostSignificantBits());
+		insertStatement.setLong(2, playerUid.getLeastSignificantBits());
+		insertStatement.executeUpdate();
 
-				// drop graveyards table with old schema
-				statement.executeUpdate(Queries.getQuery("DropGraveyardsTable"));
-				if (plugin.getConfig().getBoolean("debug")) {
-					plugin.getLogger().info("Graveyards table dropped.");
-				}
+		playerId = selectPlayerId(statementCache.get("SelectPlayerId"), playerUid);
+		if (playerId == NO_PLAYER_ID) {
+			throw new SQLException("Could not assign an id to player " + playerUid + ".");
+		}
 
-				// create graveyards table with new schema
-				statement.executeUpdate(Queries.getQuery("CreateGraveyardsTable"));
-				if (plugin.getConfig().getBoolean("debug")) {
-					plugin.getLogger().info("Graveyards table created.");
-				}
+		return playerId;
+	}
 
-				// create discovered table with new schema
-				statement.executeUpdate(Queries.getQuery("CreateDiscoveredTable"));
-				if (plugin.getConfig().getBoolean("debug")) {
-					plugin.getLogger().info("Discovered table created.");
-				}
 
-				// close statement
-				statement.close();
+	/**
+	 * Read graveyard search keys by primary key
+	 *
+	 * @param reader the reader connection
+	 * @return Map of graveyard search keys, keyed by primary key
+	 * @throws SQLException on sql error
+	 */
+	private static Map<Integer, String> readGraveyardKeys(final ReaderPool.Reader reader) throws SQLException {
 
-				// insert all graveyard records into graveyards table
-				count = insertGraveyards(existingGraveyardRecords);
-				plugin.getLogger().info(count + " graveyard records migrated to schema v1.");
+		Map<Integer, String> keys = new HashMap<>();
 
-				// insert all discovery records into discovered table
-				count = insertDiscoveries(existingDiscoveryRecords);
-				plugin.getLogger().info(count + " discovery records migrated to schema v1.");
+		try (ResultSet rs = reader.get("SelectAllGraveyardKeys").executeQuery()) {
+			while (rs.next()) {
+				keys.put(rs.getInt("Key"), rs.getString("SearchKey"));
 			}
 		}
 
-		// create statement object
-		Statement statement = connection.createStatement();
+		return keys;
+	}
 
-		// set schema to version 1
-		setSchemaVersion(1);
 
-		// execute table creation statement
-		statement.executeUpdate(Queries.getQuery("CreateGraveyardsTable"));
+	@Override
+	public void close() {
 
-		// execute index creation statement
-		statement.executeUpdate(Queries.getQuery("CreateDiscoveredTable"));
+		// wait for submitted asynchronous operations to complete
+		shutdownExecutor();
 
-		// close statement
-		statement.close();
-	}
+		// stop scheduled backups
+		if (backupScheduler != null) {
+			backupScheduler.close();
+			backupScheduler = null;
+		}
 
+		// write any queued discovery records
+		if (discoveryWriteQueue != null) {
+			discoveryWriteQueue.close();
+		}
 
-	@Override
-	public void close() {
+		// wait for pending writes to complete
+		if (writeExecutor != null) {
+			writeExecutor.close();
+		}
 
 		try {
+			// output prepared statement cache counters
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().info("Prepared statement cache: "
+						+ (statementCache.getHitCount() + readerPool.getHitCount()) + " hits, "
+						+ (statementCache.getPrepareCount() + readerPool.getPrepareCount()) + " statements prepared.");
+			}
+
+			// close reader connections
+			readerPool.close();
+
+			// close all cached prepared statements
+			statementCache.close();
+
 			connection.close();
 			plugin.getLogger().info(this + " datastore connection closed.");
 		}
@@ -284,6 +504,13 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 				e.printStackTrace();
 			}
 		}
+
+		// write any pending slow query log entries and close log file
+		if (slowQueryLog != null) {
+			slowQueryLog.close();
+			slowQueryLog = null;
+		}
+
 		setInitialized(false);
 	}
 
@@ -294,6 +521,66 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 	}
 
 
+	@Override
+	public Map<String, String> getStatus() {
+
+		Map<String, String> status = new LinkedHashMap<>();
+
+		status.put("Storage type", this.toString());
+		status.put("Storage profile", String.valueOf(profile));
+		status.put("Schema version", String.valueOf(schemaVersion));
+		status.put("Discovery storage", String.valueOf(discoveryStorage));
+
+		// read effective pragma values from connection
+		try (Statement statement = connection.createStatement()) {
+			status.put("Journal mode", readPragma(statement, "journal_mode"));
+			status.put("Synchronous", SYNCHRONOUS_NAMES.getOrDefault(readPragma(statement, "synchronous"), "?"));
+			status.put("Cache size", readPragma(statement, "cache_size"));
+			status.put("Mmap size", readPragma(statement, "mmap_size"));
+			status.put("Temp store", TEMP_STORE_NAMES.getOrDefault(readPragma(statement, "temp_store"), "?"));
+			status.put("Busy timeout", readPragma(statement, "busy_timeout") + " ms");
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("Could not read " + this + " datastore pragma values.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+		}
+
+		status.put("Reader connections", String.valueOf(readerPool.size()));
+
+		// writer thread metrics
+		status.put("Write queue", writeExecutor.getQueueDepth() + " / " + writeExecutor.getCapacity()
+				+ " pending, " + writeExecutor.getStallCount() + " stalls");
+		status.put("Writes", String.format("%d completed, wait avg %.2f ms max %.2f ms, run avg %.2f ms max %.2f ms",
+				writeExecutor.getCompletedCount(),
+				writeExecutor.getMeanWaitMillis(), writeExecutor.getMaxWaitMillis(),
+				writeExecutor.getMeanRunMillis(), writeExecutor.getMaxRunMillis()));
+
+		// prepared statement cache counters
+		status.put("Statement cache", (statementCache.getHitCount() + readerPool.getHitCount()) + " hits, "
+				+ (statementCache.getPrepareCount() + readerPool.getPrepareCount()) + " prepared");
+
+		status.put("Backups", backupScheduler == null ? "disabled" : backupScheduler.getStatus());
+		status.put("Slow queries", slowQueryLog == null ? "not logged" : slowQueryLog.getSlowCount() + " logged");
+
+		return status;
+	}
+
+
+	/**
+	 * Read the value of a pragma
+	 *
+	 * @param statement the statement with which to execute the query
+	 * @param pragma the pragma name
+	 * @return String - the pragma value
+	 * @throws SQLException on sql error
+	 */
+	private static String readPragma(final Statement statement, final String pragma) throws SQLException {
+		try (ResultSet rs = statement.executeQuery("PRAGMA " + pragma)) {
+			return rs.next() ? rs.getString(1) : "";
+		}
+	}
+
+
 	@Override
 	public boolean delete() {
 
@@ -303,6 +590,13 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 		if (dataStoreFile.exists()) {
 			result = dataStoreFile.delete();
 		}
+
+		// delete write-ahead log files, if any
+		//noinspection ResultOfMethodCallIgnored
+		new File(dataFilePath + "-wal").delete();
+		//noinspection ResultOfMethodCallIgnored
+		new File(dataFilePath + "-shm").delete();
+
 		return result;
 	}
 
@@ -313,87 +607,77 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 		// create empty set for return collection
 		final Collection<Graveyard> returnSet = new HashSet<>();
 
-		try {
-			PreparedStatement preparedStatement = connection.prepareStatement(Queries.getQuery("SelectAllGraveyards"));
+		// read all records into return collection
+		streamGraveyards(STREAM_CHUNK_SIZE, returnSet::addAll);
 
-			// execute sql query
-			ResultSet rs = preparedStatement.executeQuery();
+		// return record collection
+		return returnSet;
+	}
 
-			while (rs.next()) {
 
-				// get stored world name
-				String worldName = rs.getString("WorldName");
+	@Override
+	public boolean streamGraveyards(final int chunkSize, final Consumer<List<Graveyard>> action) {
 
-				UUID worldUid = null;
-				World world;
-				int primaryKey;
+		List<Graveyard> chunk = new ArrayList<>(chunkSize);
 
-				// if schema version 0, get primaryKey from field 'Id'; world by name
-				if (schemaVersion == 0) {
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+			PreparedStatement preparedStatement = reader.get("SelectAllGraveyards");
 
-					// get primary key (id)
-					primaryKey = rs.getInt("Id");
+			// execute sql query, reading rows as they are consumed
+			try (ResultSet rs = preparedStatement.executeQuery()) {
 
-					// get world by name
-					world = plugin.getServer().getWorld(worldName);
+				while (rs.next()) {
 
-					// get world uid
-					if (world != null) {
-						worldUid = world.getUID();
-					}
-				}
+					// get stored world name
+					String worldName = rs.getString("WorldName");
 
-				// else get primaryKey from field 'Key'; world by uid
-				else {
 					// get primary key
-					primaryKey = rs.getInt("Key");
-
-					// get world uid components
-					long worldUidMsb = rs.getLong("WorldUidMsb");
-					long worldUidLsb = rs.getLong("WorldUidLsb");
+					int primaryKey = rs.getInt("Key");
 
 					// reconstitute world uid from components
-					worldUid = new UUID(worldUidMsb, worldUidLsb);
+					UUID worldUid = new UUID(rs.getLong("WorldUidMsb"), rs.getLong("WorldUidLsb"));
 
 					// get world by uid
-					world = plugin.getServer().getWorld(worldUid);
-				}
+					World world = plugin.getServer().getWorld(worldUid);
 
-				// if world is null, log warning
-				if (world == null) {
-					plugin.getLogger().warning("Stored record has invalid world: " + worldName);
-				}
-				else {
-					worldName = world.getName();
-				}
-
-				// build graveyard object
-				Graveyard graveyard = new Graveyard.Builder(plugin)
-							.primaryKey(primaryKey)
-							.searchKey(rs.getString("SearchKey"))
-							.displayName(rs.getString("DisplayName"))
-							.enabled(rs.getBoolean("Enabled"))
-							.hidden(rs.getBoolean("Hidden"))
-							.discoveryRange(rs.getInt("DiscoveryRange"))
-							.discoveryMessage(rs.getString("DiscoveryMessage"))
-							.respawnMessage(rs.getString("RespawnMessage"))
-							.group(rs.getString("GroupName"))
-							.safetyRange(rs.getInt("SafetyRange"))
-							.safetyTime(rs.getInt("safetyTime"))
-							.worldName(worldName)
-							.worldUid(worldUid)
-							.x(rs.getDouble("X"))
-							.y(rs.getDouble("Y"))
-							.z(rs.getDouble("Z"))
-							.yaw(rs.getFloat("Yaw"))
-							.pitch(rs.getFloat("Pitch"))
-							.build();
+					// if world is null, log warning
+					if (world == null) {
+						plugin.getLogger().warning("Stored record has invalid world: " + worldName);
+					}
+					else {
+						worldName = world.getName();
+					}
 
-				// add graveyard to return collection
-				returnSet.add(graveyard);
+					// build graveyard object
+					Graveyard graveyard = new Graveyard.Builder(plugin)
+								.primaryKey(primaryKey)
+								.searchKey(rs.getString("SearchKey"))
+								.displayName(rs.getString("DisplayName"))
+								.enabled(rs.getBoolean("Enabled"))
+								.hidden(rs.getBoolean("Hidden"))
+								.discoveryRange(rs.getInt("DiscoveryRange"))
+								.discoveryMessage(rs.getString("DiscoveryMessage"))
+								.respawnMessage(rs.getString("RespawnMessage"))
+								.group(rs.getString("GroupName"))
+								.safetyRange(rs.getInt("SafetyRange"))
+								.safetyTime(rs.getInt("safetyTime"))
+								.worldName(worldName)
+								.worldUid(worldUid)
+								.x(rs.getDouble("X"))
+								.y(rs.getDouble("Y"))
+								.z(rs.getDouble("Z"))
+								.yaw(rs.getFloat("Yaw"))
+								.pitch(rs.getFloat("Pitch"))
+								.build();
+
+					// add graveyard to chunk, passing chunk to action when full
+					chunk.add(graveyard);
+					if (chunk.size() >= chunkSize) {
+						action.accept(chunk);
+						chunk = new ArrayList<>(chunkSize);
+					}
+				}
 			}
-			// close prepared statement
-			preparedStatement.close();
 		}
 		catch (SQLException e) {
 
@@ -406,10 +690,15 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 			if (plugin.getConfig().getBoolean("debug")) {
 				e.printStackTrace();
 			}
+			return false;
 		}
 
-		// return record collection
-		return returnSet;
+		// pass final partial chunk to action
+		if (!chunk.isEmpty()) {
+			action.accept(chunk);
+		}
+
+		return true;
 	}
 
 
@@ -430,60 +719,61 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 
 		Graveyard graveyard = null;
 
-		try {
-			PreparedStatement preparedStatement = connection.prepareStatement(Queries.getQuery("SelectGraveyard"));
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+			PreparedStatement preparedStatement = reader.get("SelectGraveyard");
 
 			preparedStatement.setString(1, searchKey);
 
 			// execute sql query
-			ResultSet rs = preparedStatement.executeQuery();
+			try (ResultSet rs = preparedStatement.executeQuery()) {
 
-			// only zero or one record can match the unique search key
-			if (rs.next()) {
+				// only zero or one record can match the unique search key
+				if (rs.next()) {
 
-				// get stored world name
-				String worldName = rs.getString("worldname");
+					// get stored world name
+					String worldName = rs.getString("worldname");
 
-				// get stored world uid components
-				long worldUidMsb = rs.getLong("WorldUidMsb");
-				long worldUidLsb = rs.getLong("WorldUidLsb");
+					// get stored world uid components
+					long worldUidMsb = rs.getLong("WorldUidMsb");
+					long worldUidLsb = rs.getLong("WorldUidLsb");
 
-				// reconstitute world uid from components
-				UUID worldUid = new UUID(worldUidMsb, worldUidLsb);
+					// reconstitute world uid from components
+					UUID worldUid = new UUID(worldUidMsb, worldUidLsb);
 
-				// get world by uid
-				World world = plugin.getServer().getWorld(worldUid);
+					// get world by uid
+					World world = plugin.getServer().getWorld(worldUid);
 
-				// if world is null, log warning
-				if (world == null) {
-					plugin.getLogger().warning("Stored record has invalid world: " + worldName);
-				}
-				// else if world is not null, get current world name
-				else {
-					worldName = world.getName();
-				}
+					// if world is null, log warning
+					if (world == null) {
+						plugin.getLogger().warning("Stored record has invalid world: " + worldName);
+					}
+					// else if world is not null, get current world name
+					else {
+						worldName = world.getName();
+					}
 
-				// create graveyard object
-				graveyard = new Graveyard.Builder(plugin)
-						.primaryKey(rs.getInt("Key"))
-						.displayName(rs.getString("displayName"))
-						.searchKey(rs.getString("searchKey"))
-						.enabled(rs.getBoolean("enabled"))
-						.hidden(rs.getBoolean("hidden"))
-						.discoveryRange(rs.getInt("discoveryRange"))
-						.discoveryMessage(rs.getString("discoveryMessage"))
-						.respawnMessage(rs.getString("respawnMessage"))
-						.group(rs.getString("groupName"))
-						.safetyRange(rs.getInt("safetyRange"))
-						.safetyTime(rs.getInt("safetyTime"))
-						.worldName(worldName)
-						.worldUid(worldUid)
-						.x(rs.getDouble("x"))
-						.y(rs.getDouble("y"))
-						.z(rs.getDouble("z"))
-						.yaw(rs.getFloat("yaw"))
-						.pitch(rs.getFloat("pitch"))
-						.build();
+					// create graveyard object
+					graveyard = new Graveyard.Builder(plugin)
+							.primaryKey(rs.getInt("Key"))
+							.displayName(rs.getString("displayName"))
+							.searchKey(rs.getString("searchKey"))
+							.enabled(rs.getBoolean("enabled"))
+							.hidden(rs.getBoolean("hidden"))
+							.discoveryRange(rs.getInt("discoveryRange"))
+							.discoveryMessage(rs.getString("discoveryMessage"))
+							.respawnMessage(rs.getString("respawnMessage"))
+							.group(rs.getString("groupName"))
+							.safetyRange(rs.getInt("safetyRange"))
+							.safetyTime(rs.getInt("safetyTime"))
+							.worldName(worldName)
+							.worldUid(worldUid)
+							.x(rs.getDouble("x"))
+							.y(rs.getDouble("y"))
+							.z(rs.getDouble("z"))
+							.yaw(rs.getFloat("yaw"))
+							.pitch(rs.getFloat("pitch"))
+							.build();
+				}
 			}
 		}
 		catch (SQLException e) {
@@ -516,79 +806,96 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 		long worldUidMsb = player.getWorld().getUID().getMostSignificantBits();
 		long worldUidLsb = player.getWorld().getUID().getLeastSignificantBits();
 
-		long playerUidMsb = player.getUniqueId().getMostSignificantBits();
-		long playerUidLsb = player.getUniqueId().getLeastSignificantBits();
-
 		Graveyard closest = null;
 
-		try {
-			PreparedStatement preparedStatement =
-					connection.prepareStatement(Queries.getQuery("SelectNearestGraveyards"));
+		// write queued discovery records so query reflects them
+		discoveryWriteQueue.flush();
 
-			preparedStatement.setLong(1, worldUidMsb);
-			preparedStatement.setLong(2, worldUidLsb);
-			preparedStatement.setLong(3, playerUidMsb);
-			preparedStatement.setLong(4, playerUidLsb);
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+			PreparedStatement preparedStatement;
+			int playerId = selectPlayerId(reader.get("SelectPlayerId"), player.getUniqueId());
 
-			// execute sql query
-			ResultSet rs = preparedStatement.executeQuery();
+			// graveyards discovered by player, if discoveries are stored as bitmaps
+			DiscoveryBitmap discovered = null;
 
-			while (rs.next()) {
+			if (discoveryStorage == DiscoveryStorage.BITMAP) {
+				discovered = readDiscoveryBitmap(reader.get("SelectDiscoveryBitmap"), playerId);
+				preparedStatement = reader.get("SelectEnabledGraveyardsInWorld");
+				preparedStatement.setLong(1, worldUidMsb);
+				preparedStatement.setLong(2, worldUidLsb);
+			}
+			else {
+				preparedStatement = reader.get("SelectNearestGraveyards");
+				preparedStatement.setLong(1, worldUidMsb);
+				preparedStatement.setLong(2, worldUidLsb);
+				preparedStatement.setInt(3, playerId);
+			}
 
-				String groupName = rs.getString("GroupName");
-				String worldName = rs.getString("WorldName");
+			// execute sql query
+			try (ResultSet rs = preparedStatement.executeQuery()) {
 
-				UUID worldUid = new UUID(worldUidMsb, worldUidLsb);
-				World world = plugin.getServer().getWorld(worldUid);
+				while (rs.next()) {
 
-				if (world == null) {
-					plugin.getLogger().warning("Stored record has invalid world: "
-							+ worldName + ". Skipping record.");
-					continue;
-				}
+					// skip hidden graveyards not discovered by player
+					if (discovered != null && rs.getBoolean("Hidden") && !discovered.contains(rs.getInt("Key"))) {
+						continue;
+					}
 
-				Graveyard graveyard = new Graveyard.Builder(plugin)
-						.primaryKey(rs.getInt("Key"))
-						.searchKey(rs.getString("SearchKey"))
-						.displayName(rs.getString("DisplayName"))
-						.enabled(rs.getBoolean("Enabled"))
-						.hidden(rs.getBoolean("Hidden"))
-						.discoveryRange(rs.getInt("DiscoveryRange"))
-						.discoveryMessage(rs.getString("DiscoveryMessage"))
-						.respawnMessage(rs.getString("RespawnMessage"))
-						.group(groupName)
-						.safetyRange(rs.getInt("SafetyRange"))
-						.safetyTime(rs.getInt("SafetyTime"))
-						.worldName(world.getName())
-						.worldUid(worldUid)
-						.x(rs.getDouble("X"))
-						.y(rs.getDouble("Y"))
-						.z(rs.getDouble("Z"))
-						.yaw(rs.getFloat("Yaw"))
-						.pitch(rs.getFloat("Pitch"))
-						.build();
-
-				// if graveyard optional location has no value, skip to next graveyard
-				if (graveyard.getLocation().isEmpty()) {
-					continue;
-				}
+					String groupName = rs.getString("GroupName");
+					String worldName = rs.getString("WorldName");
 
-				// unwrap graveyard optional location
-				Location location = graveyard.getLocation().get();
+					UUID worldUid = new UUID(worldUidMsb, worldUidLsb);
+					World world = plugin.getServer().getWorld(worldUid);
+
+					if (world == null) {
+						plugin.getLogger().warning("Stored record has invalid world: "
+								+ worldName + ". Skipping record.");
+						continue;
+					}
 
-				// check if graveyard has group and player is in group
-				if (groupName == null || groupName.isEmpty() || player.hasPermission("group." + groupName)) {
+					Graveyard graveyard = new Graveyard.Builder(plugin)
+							.primaryKey(rs.getInt("Key"))
+							.searchKey(rs.getString("SearchKey"))
+							.displayName(rs.getString("DisplayName"))
+							.enabled(rs.getBoolean("Enabled"))
+							.hidden(rs.getBoolean("Hidden"))
+							.discoveryRange(rs.getInt("DiscoveryRange"))
+							.discoveryMessage(rs.getString("DiscoveryMessage"))
+							.respawnMessage(rs.getString("RespawnMessage"))
+							.group(groupName)
+							.safetyRange(rs.getInt("SafetyRange"))
+							.safetyTime(rs.getInt("SafetyTime"))
+							.worldName(world.getName())
+							.worldUid(worldUid)
+							.x(rs.getDouble("X"))
+							.y(rs.getDouble("Y"))
+							.z(rs.getDouble("Z"))
+							.yaw(rs.getFloat("Yaw"))
+							.pitch(rs.getFloat("Pitch"))
+							.build();
 
-					// if closest is null, set to this graveyard (first pass through loop)
-					if (closest == null) {
-						closest = graveyard;
+					// if graveyard optional location has no value, skip to next graveyard
+					if (graveyard.getLocation().isEmpty()) {
+						continue;
 					}
 
-					// else if closest graveyard has valid location, check if graveyard is closer than current closest
-					else if (closest.getLocation().isPresent()) {
-						if (location.distanceSquared(playerLocation) < closest.getLocation().get().distanceSquared(playerLocation)) {
+					// unwrap graveyard optional location
+					Location location = graveyard.getLocation().get();
+
+					// check if graveyard has group and player is in group
+					if (groupName == null || groupName.isEmpty() || player.hasPermission("group." + groupName)) {
+
+						// if closest is null, set to this graveyard (first pass through loop)
+						if (closest == null) {
 							closest = graveyard;
 						}
+
+						// else if closest graveyard has valid location, check if graveyard is closer than current closest
+						else if (closest.getLocation().isPresent()) {
+							if (location.distanceSquared(playerLocation) < closest.getLocation().get().distanceSquared(playerLocation)) {
+								closest = graveyard;
+							}
+						}
 					}
 				}
 			}
@@ -622,17 +929,19 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 		// create empty return list
 		List<String> returnList = new ArrayList<>();
 
-		try {
-			PreparedStatement preparedStatement =
-					connection.prepareStatement(Queries.getQuery("SelectMatchingGraveyardNames"));
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+			PreparedStatement preparedStatement = reader.get("SelectMatchingGraveyardNames");
 
-			preparedStatement.setString(1, match.toLowerCase() + "%");
+			// match search keys in the range [match, match + highest character)
+			preparedStatement.setString(1, match);
+			preparedStatement.setString(2, match + Character.MAX_VALUE);
 
 			// execute sql query
-			ResultSet rs = preparedStatement.executeQuery();
+			try (ResultSet rs = preparedStatement.executeQuery()) {
 
-			while (rs.next()) {
-				returnList.add(rs.getString("SearchKey"));
+				while (rs.next()) {
+					returnList.add(rs.getString("SearchKey"));
+				}
 			}
 		}
 		catch (SQLException e) {
@@ -664,62 +973,82 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 		// create empty set of Graveyard for return
 		Collection<Graveyard> returnSet = new HashSet<>();
 
-		try {
-			PreparedStatement preparedStatement =
-					connection.prepareStatement(Queries.getQuery("SelectUndiscoveredGraveyards"));
+		// write queued discovery records so query reflects them
+		discoveryWriteQueue.flush();
 
-			preparedStatement.setLong(1, player.getWorld().getUID().getMostSignificantBits());
-			preparedStatement.setLong(2, player.getWorld().getUID().getLeastSignificantBits());
-			preparedStatement.setLong(3, player.getUniqueId().getMostSignificantBits());
-			preparedStatement.setLong(4, player.getUniqueId().getLeastSignificantBits());
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+			PreparedStatement preparedStatement;
+			int playerId = selectPlayerId(reader.get("SelectPlayerId"), player.getUniqueId());
+
+			// graveyards discovered by player, if discoveries are stored as bitmaps
+			DiscoveryBitmap discovered = null;
+
+			if (discoveryStorage == DiscoveryStorage.BITMAP) {
+				discovered = readDiscoveryBitmap(reader.get("SelectDiscoveryBitmap"), playerId);
+				preparedStatement = reader.get("SelectHiddenGraveyardsInWorld");
+				preparedStatement.setLong(1, player.getWorld().getUID().getMostSignificantBits());
+				preparedStatement.setLong(2, player.getWorld().getUID().getLeastSignificantBits());
+			}
+			else {
+				preparedStatement = reader.get("SelectUndiscoveredGraveyards");
+				preparedStatement.setLong(1, player.getWorld().getUID().getMostSignificantBits());
+				preparedStatement.setLong(2, player.getWorld().getUID().getLeastSignificantBits());
+				preparedStatement.setInt(3, playerId);
+			}
 
 			// execute sql query
-			ResultSet rs = preparedStatement.executeQuery();
+			try (ResultSet rs = preparedStatement.executeQuery()) {
 
-			while (rs.next()) {
+				while (rs.next()) {
 
-				// get stored world name
-				String worldName = rs.getString("WorldName");
+					// skip graveyards discovered by player
+					if (discovered != null && discovered.contains(rs.getInt("Key"))) {
+						continue;
+					}
 
-				// get world uid components
-				long worldUidMsb = rs.getLong("WorldUidMsb");
-				long worldUidLsb = rs.getLong("WorldUidLsb");
+					// get stored world name
+					String worldName = rs.getString("WorldName");
 
-				// reconstitute world uid from components
-				UUID worldUid = new UUID(worldUidMsb, worldUidLsb);
+					// get world uid components
+					long worldUidMsb = rs.getLong("WorldUidMsb");
+					long worldUidLsb = rs.getLong("WorldUidLsb");
 
-				// get world by uid
-				World world = plugin.getServer().getWorld(worldUid);
+					// reconstitute world uid from components
+					UUID worldUid = new UUID(worldUidMsb, worldUidLsb);
 
-				// if world is null, log error and skip to next record
-				if (world == null) {
-					plugin.getLogger().warning("Stored record has unloaded world: "
-							+ worldName + ". Skipping record.");
-					continue;
-				}
+					// get world by uid
+					World world = plugin.getServer().getWorld(worldUid);
+
+					// if world is null, log error and skip to next record
+					if (world == null) {
+						plugin.getLogger().warning("Stored record has unloaded world: "
+								+ worldName + ". Skipping record.");
+						continue;
+					}
 
-				Graveyard graveyard = new Graveyard.Builder(plugin)
-						.primaryKey(rs.getInt("Key"))
-						.searchKey(rs.getString("SearchKey"))
-						.displayName(rs.getString("DisplayName"))
-						.enabled(rs.getBoolean("Enabled"))
-						.hidden(rs.getBoolean("Hidden"))
-						.discoveryRange(rs.getInt("DiscoveryRange"))
-						.discoveryMessage(rs.getString("DiscoveryMessage"))
-						.respawnMessage(rs.getString("RespawnMessage"))
-						.group(rs.getString("GroupName"))
-						.safetyRange(rs.getInt("SafetyRange"))
-						.safetyTime(rs.getInt("SafetyTime"))
-						.worldName(world.getName())
-						.worldUid(worldUid)
-						.x(rs.getDouble("X"))
-						.y(rs.getDouble("Y"))
-						.z(rs.getDouble("Z"))
-						.yaw(rs.getFloat("Yaw"))
-						.pitch(rs.getFloat("Pitch"))
-						.build();
-
-				returnSet.add(graveyard);
+					Graveyard graveyard = new Graveyard.Builder(plugin)
+							.primaryKey(rs.getInt("Key"))
+							.searchKey(rs.getString("SearchKey"))
+							.displayName(rs.getString("DisplayName"))
+							.enabled(rs.getBoolean("Enabled"))
+							.hidden(rs.getBoolean("Hidden"))
+							.discoveryRange(rs.getInt("DiscoveryRange"))
+							.discoveryMessage(rs.getString("DiscoveryMessage"))
+							.respawnMessage(rs.getString("RespawnMessage"))
+							.group(rs.getString("GroupName"))
+							.safetyRange(rs.getInt("SafetyRange"))
+							.safetyTime(rs.getInt("SafetyTime"))
+							.worldName(world.getName())
+							.worldUid(worldUid)
+							.x(rs.getDouble("X"))
+							.y(rs.getDouble("Y"))
+							.z(rs.getDouble("Z"))
+							.yaw(rs.getFloat("Yaw"))
+							.pitch(rs.getFloat("Pitch"))
+							.build();
+
+					returnSet.add(graveyard);
+				}
 			}
 		}
 		catch (Exception e) {
@@ -751,20 +1080,38 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 		// create empty set of Graveyard for return
 		Collection<String> returnSet = new HashSet<>();
 
-		try {
-			PreparedStatement preparedStatement =
-					connection.prepareStatement(Queries.getQuery("SelectGraveyardsKnownByPlayer"));
+		// write queued discovery records so query reflects them
+		discoveryWriteQueue.flush();
 
-			preparedStatement.setLong(1, playerUid.getMostSignificantBits());
-			preparedStatement.setLong(2, playerUid.getLeastSignificantBits());
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+
+			int playerId = selectPlayerId(reader.get("SelectPlayerId"), playerUid);
+
+			// if discoveries are stored as bitmaps, return search keys of graveyards in player bitmap
+			if (discoveryStorage == DiscoveryStorage.BITMAP) {
+				DiscoveryBitmap discovered = readDiscoveryBitmap(reader.get("SelectDiscoveryBitmap"), playerId);
+				if (!discovered.isEmpty()) {
+					Map<Integer, String> graveyardKeys = readGraveyardKeys(reader);
+					discovered.keys()
+							.mapToObj(graveyardKeys::get)
+							.filter(Objects::nonNull)
+							.forEach(returnSet::add);
+				}
+				return returnSet;
+			}
+
+			PreparedStatement preparedStatement = reader.get("SelectGraveyardsKnownByPlayer");
+
+			preparedStatement.setInt(1, playerId);
 
 			// execute sql query
-			ResultSet rs = preparedStatement.executeQuery();
+			try (ResultSet rs = preparedStatement.executeQuery()) {
 
-			while (rs.next()) {
+				while (rs.next()) {
 
-				// add display name to return set
-				returnSet.add(rs.getString("searchKey"));
+					// add display name to return set
+					returnSet.add(rs.getString("SearchKey"));
+				}
 			}
 		}
 		catch (Exception e) {
@@ -796,20 +1143,48 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 		// create empty set for return
 		Collection<String> returnSet = new HashSet<>();
 
-		try {
-			PreparedStatement preparedStatement =
-					connection.prepareStatement(Queries.getQuery("SelectUndiscoveredGraveyardKeys"));
+		// write queued discovery records so query reflects them
+		discoveryWriteQueue.flush();
+
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+
+			int playerId = selectPlayerId(reader.get("SelectPlayerId"), player.getUniqueId());
+
+			// if discoveries are stored as bitmaps, return hidden graveyards in world not in player bitmap
+			if (discoveryStorage == DiscoveryStorage.BITMAP) {
+				PreparedStatement preparedStatement = reader.get("SelectHiddenGraveyardKeysInWorld");
+				preparedStatement.setLong(1, player.getWorld().getUID().getMostSignificantBits());
+				preparedStatement.setLong(2, player.getWorld().getUID().getLeastSignificantBits());
+
+				// bitmap of hidden graveyards in world
+				DiscoveryBitmap hidden = new DiscoveryBitmap();
+				Map<Integer, String> graveyardKeys = new HashMap<>();
+				try (ResultSet rs = preparedStatement.executeQuery()) {
+					while (rs.next()) {
+						hidden.add(rs.getInt("Key"));
+						graveyardKeys.put(rs.getInt("Key"), rs.getString("SearchKey"));
+					}
+				}
+
+				hidden.andNot(readDiscoveryBitmap(reader.get("SelectDiscoveryBitmap"), playerId))
+						.keys()
+						.mapToObj(graveyardKeys::get)
+						.forEach(returnSet::add);
+				return returnSet;
+			}
+
+			PreparedStatement preparedStatement = reader.get("SelectUndiscoveredGraveyardKeys");
 
 			preparedStatement.setLong(1, player.getWorld().getUID().getMostSignificantBits());
 			preparedStatement.setLong(2, player.getWorld().getUID().getLeastSignificantBits());
-			preparedStatement.setLong(3, player.getUniqueId().getMostSignificantBits());
-			preparedStatement.setLong(4, player.getUniqueId().getLeastSignificantBits());
+			preparedStatement.setInt(3, playerId);
 
 			// execute sql query
-			ResultSet rs = preparedStatement.executeQuery();
+			try (ResultSet rs = preparedStatement.executeQuery()) {
 
-			while (rs.next()) {
-				returnSet.add(rs.getString("SearchKey"));
+				while (rs.next()) {
+					returnSet.add(rs.getString("SearchKey"));
+				}
 			}
 		}
 		catch (SQLException e) {
@@ -838,85 +1213,191 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 			return;
 		}
 
-		final UUID playerUid = discovery.getPlayerUid();
-		final String searchKey = discovery.getSearchKey();
-
-		new BukkitRunnable() {
-			@Override
-			public void run() {
-
-				try {
+		// add discovery to write queue
+		discoveryWriteQueue.add(discovery);
+	}
 
-					// synchronize on instance
-					synchronized (this) {
 
-						PreparedStatement preparedStatement =
-								connection.prepareStatement(Queries.getQuery("InsertDiscovery"));
+	@Override
+	public void loadDiscoveries(final UUID playerUid) {
 
-						preparedStatement.setString(1, Graveyard.createSearchKey(searchKey));
-						preparedStatement.setLong(2, playerUid.getMostSignificantBits());
-						preparedStatement.setLong(3, playerUid.getLeastSignificantBits());
+		// if playerUid is null, do nothing and return
+		if (playerUid == null) {
+			return;
+		}
 
-						// execute prepared statement
-						preparedStatement.executeUpdate();
-					}
-				}
-				catch (SQLException e) {
+		// resolve player id once for the session
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+			selectPlayerId(reader.get("SelectPlayerId"), playerUid);
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "select a player id from the SQLite datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+	}
 
-					// output simple error message
-					plugin.getLogger().warning("An error occurred while trying to "
-							+ "insert a record into the discovered table in the SQLite datastore.");
-					plugin.getLogger().warning(e.getLocalizedMessage());
 
-					// if debugging is enabled, output stack trace
-					if (plugin.getConfig().getBoolean("debug")) {
-						e.printStackTrace();
-					}
-				}
-			}
-		}.runTaskAsynchronously(plugin);
+	@Override
+	public void unloadDiscoveries(final UUID playerUid) {
+		if (playerUid != null) {
+			playerIdCache.remove(playerUid);
+		}
 	}
 
 
 	@Override
-	public int insertDiscoveries(final Collection<Discovery> discoveries) {
+	public int insertDiscoveries(final Collection<Discovery> discoveries, final boolean rollbackOnFailure) {
 
 		// if discoveries is null, return int 0
 		if (discoveries == null) {
 			if (plugin.getConfig().getBoolean("debug")) {
-				plugin.getLogger().warning("Could not insert graveyard records in data store "
+				plugin.getLogger().warning("Could not insert discovery records in data store "
 						+ "because collection is null!");
 			}
 			return 0;
 		}
 
-		int count = 0;
+		// write queued discovery records first, so that they are not counted as inserted by this batch
+		if (discoveryWriteQueue != null) {
+			discoveryWriteQueue.flush();
+		}
+
+		return insertDiscoveryRecords(discoveries, rollbackOnFailure);
+	}
+
+
+	/**
+	 * Insert discovery records, as rows or into player bitmaps according to the discovery storage mode
+	 *
+	 * @param discoveries the records to be inserted
+	 * @param rollbackOnFailure if {@code true}, no records are inserted if any record fails
+	 * @return the number of records inserted
+	 */
+	private int insertDiscoveryRecords(final Collection<Discovery> discoveries, final boolean rollbackOnFailure) {
+
+		int count;
+
+		// if discoveries are stored as bitmaps, update bitmap of each player
+		if (discoveryStorage == DiscoveryStorage.BITMAP) {
+			count = insertDiscoveryBitmaps(discoveries, rollbackOnFailure);
+		}
+		else {
+			count = insertRecords("InsertDiscovery", "discovery", discoveries, rollbackOnFailure,
+					(preparedStatement, record) -> {
+						preparedStatement.setString(1, Graveyard.createSearchKey(record.getSearchKey()));
+						preparedStatement.setInt(2, insertPlayerId(record.getPlayerUid()));
+					},
+					record -> record.getSearchKey() + " for player " + record.getPlayerUid());
+		}
+
+		// report committed records
+		discoveriesChanged(count);
+
+		return count;
+	}
+
+
+	/**
+	 * Add discovery records to the stored bitmaps of their players, in a single transaction on the writer thread.
+	 * Each player bitmap is read and written once, regardless of the number of records for the player.
+	 *
+	 * @param discoveries the records to be inserted
+	 * @param rollbackOnFailure if {@code true}, no records are inserted if any record fails
+	 * @return int - the number of records inserted that were not already stored
+	 */
+	private int insertDiscoveryBitmaps(final Collection<Discovery> discoveries, final boolean rollbackOnFailure) {
+
+		// group records by player
+		Map<UUID, List<Discovery>> playerDiscoveries = new LinkedHashMap<>();
+		for (Discovery discovery : discoveries) {
+			playerDiscoveries.computeIfAbsent(discovery.getPlayerUid(), k -> new ArrayList<>()).add(discovery);
+		}
+
+		// run transaction on writer thread and wait for result
+		return writeExecutor.call(() -> {
 
-		for (Discovery record : discoveries) {
+			int count = 0;
+			int failures = 0;
 
 			try {
-				// synchronize on instance
-				synchronized (this) {
+				// get cached prepared statements; statements of the write connection are used on the writer thread only
+				PreparedStatement selectKey = statementCache.get("SelectGraveyardKey");
+				PreparedStatement selectBitmap = statementCache.get("SelectDiscoveryBitmap");
+				PreparedStatement upsertBitmap = statementCache.get("UpsertDiscoveryBitmap");
 
-					PreparedStatement preparedStatement =
-							connection.prepareStatement(Queries.getQuery("InsertDiscovery"));
+				connection.setAutoCommit(false);
 
-					preparedStatement.setString(1, record.getSearchKey());
-					preparedStatement.setLong(2, record.getPlayerUid().getMostSignificantBits());
-					preparedStatement.setLong(3, record.getPlayerUid().getLeastSignificantBits());
+				try {
+					for (Map.Entry<UUID, List<Discovery>> entry : playerDiscoveries.entrySet()) {
+
+						int playerId = insertPlayerId(entry.getKey());
+						DiscoveryBitmap bitmap = readDiscoveryBitmap(selectBitmap, playerId);
+						int added = 0;
+
+						for (Discovery discovery : entry.getValue()) {
+
+							// get primary key of discovered graveyard
+							selectKey.setString(1, Graveyard.createSearchKey(discovery.getSearchKey()));
+							try (ResultSet rs = selectKey.executeQuery()) {
+								if (rs.next()) {
+									if (bitmap.add(rs.getInt("Key"))) {
+										added++;
+									}
+									continue;
+								}
+							}
+
+							// report failed record
+							failures++;
+							plugin.getLogger().warning("Could not insert discovery record '"
+									+ discovery.getSearchKey() + " for player " + discovery.getPlayerUid()
+									+ "' into the SQLite datastore: no such graveyard.");
+
+							if (rollbackOnFailure) {
+								break;
+							}
+						}
 
-					// execute prepared statement
-					preparedStatement.executeUpdate();
+						if (failures > 0 && rollbackOnFailure) {
+							break;
+						}
+
+						if (added > 0) {
+							writeDiscoveryBitmap(upsertBitmap, null, playerId, bitmap);
+							count += added;
+						}
+					}
 
-					// increment count
-					count++;
+					// if any record failed and rollback was requested, discard all records
+					if (failures > 0 && rollbackOnFailure) {
+						connection.rollback();
+						playerIdCache.clear();
+						count = 0;
+						plugin.getLogger().warning("Insert of " + discoveries.size() + " discovery records rolled back.");
+					}
+					else {
+						connection.commit();
+					}
+				}
+				catch (SQLException e) {
+					connection.rollback();
+					playerIdCache.clear();
+					count = 0;
+					throw e;
+				}
+				finally {
+					connection.setAutoCommit(true);
 				}
 			}
 			catch (SQLException e) {
 
 				// output simple error message
-				plugin.getLogger().warning("An error occurred while trying to "
-						+ "insert a record into the discovered table in the SQLite datastore.");
+				plugin.getLogger().warning("An error occurred while trying to insert "
+						+ "discovery records into the SQLite datastore.");
 				plugin.getLogger().warning(e.getLocalizedMessage());
 
 				// if debugging is enabled, output stack trace
@@ -924,13 +1405,19 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 					e.printStackTrace();
 				}
 			}
-		}
-		return count;
+
+			// output debugging information
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().info(count + " discovery records inserted, " + failures + " failed.");
+			}
+
+			return count;
+		});
 	}
 
 
 	@Override
-	public int insertGraveyards(final Collection<Graveyard> graveyards) {
+	public int insertGraveyards(final Collection<Graveyard> graveyards, final boolean rollbackOnFailure) {
 
 		// if graveyard collection is null, do nothing and return
 		if (graveyards == null) {
@@ -941,36 +1428,26 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 			return 0;
 		}
 
-		int count = 0;
-
-		for (Graveyard graveyard : graveyards) {
-
-			// get world name from record
-			String worldName = graveyard.getWorldName();
-
-			// get world uid from record
-			UUID worldUid = graveyard.getWorldUid();
+		return insertRecords("InsertGraveyard", "graveyard", graveyards, rollbackOnFailure,
+				(preparedStatement, graveyard) -> {
 
-			// get world by uid
-			final World world = plugin.getServer().getWorld(graveyard.getWorldUid());
+					// get world name from record
+					String worldName = graveyard.getWorldName();
 
-			// if world is null, log warning
-			if (world == null) {
-				plugin.getLogger().warning("Record has invalid world: " + worldName);
-			}
-			// else get current world name
-			else {
-				worldName = world.getName();
-			}
+					// get world uid from record
+					UUID worldUid = graveyard.getWorldUid();
 
-			try {
-
-				// synchronize on connection
-				synchronized (this) {
+					// get world by uid
+					final World world = plugin.getServer().getWorld(graveyard.getWorldUid());
 
-					// create prepared statement
-					PreparedStatement preparedStatement =
-							connection.prepareStatement(Queries.getQuery("InsertGraveyard"));
+					// if world is null, log warning
+					if (world == null) {
+						plugin.getLogger().warning("Record has invalid world: " + worldName);
+					}
+					// else get current world name
+					else {
+						worldName = world.getName();
+					}
 
 					preparedStatement.setString(1, graveyard.getSearchKey());
 					preparedStatement.setString(2, graveyard.getDisplayName());
@@ -990,16 +1467,105 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 					preparedStatement.setDouble(16, graveyard.getZ());
 					preparedStatement.setFloat(17, graveyard.getYaw());
 					preparedStatement.setFloat(18, graveyard.getPitch());
+				},
+				Graveyard::getDisplayName);
+	}
 
-					// execute prepared statement
-					preparedStatement.executeUpdate();
+
+	/**
+	 * Binds the fields of a record to the parameters of a prepared statement
+	 *
+	 * @param <T> the record type
+	 */
+	@FunctionalInterface
+	private interface RecordBinder<T> {
+		void bind(final PreparedStatement preparedStatement, final T record) throws SQLException;
+	}
+
+
+	/**
+	 * Insert a collection of records in a single transaction on the writer thread. Each record that cannot be
+	 * inserted is reported in the log; remaining records are committed unless rollbackOnFailure is {@code true}.
+	 *
+	 * @param queryName the name of the insert query
+	 * @param recordType the record type name, for log messages
+	 * @param records the records to be inserted
+	 * @param rollbackOnFailure if {@code true}, no records are inserted if any record fails
+	 * @param binder binds a record to the insert statement parameters
+	 * @param describer describes a record, for log messages
+	 * @param <T> the record type
+	 * @return int - the number of records successfully inserted
+	 */
+	private <T> int insertRecords(final String queryName,
+	                              final String recordType,
+	                              final Collection<T> records,
+	                              final boolean rollbackOnFailure,
+	                              final RecordBinder<T> binder,
+	                              final Function<T, String> describer) {
+
+		// run transaction on writer thread and wait for result
+		return writeExecutor.call(() -> {
+
+			int count = 0;
+			int failures = 0;
+
+			try {
+				// get cached prepared statement
+				PreparedStatement preparedStatement = statementCache.get(queryName);
+
+				// synchronize on prepared statement
+				synchronized (preparedStatement) {
+
+					connection.setAutoCommit(false);
+
+					try {
+						for (T record : records) {
+							try {
+								binder.bind(preparedStatement, record);
+								count += preparedStatement.executeUpdate();
+							}
+							catch (Exception e) {
+
+								// report failed record
+								failures++;
+								plugin.getLogger().warning("Could not insert " + recordType + " record '"
+										+ describer.apply(record) + "' into the SQLite datastore.");
+								plugin.getLogger().warning(e.getLocalizedMessage());
+
+								if (rollbackOnFailure) {
+									break;
+								}
+							}
+						}
+
+						// if any record failed and rollback was requested, discard all records
+						if (failures > 0 && rollbackOnFailure) {
+							connection.rollback();
+							playerIdCache.clear();
+							count = 0;
+							plugin.getLogger().warning("Insert of " + records.size() + " " + recordType
+									+ " records rolled back.");
+						}
+						else {
+							connection.commit();
+						}
+					}
+					catch (SQLException e) {
+						connection.rollback();
+						playerIdCache.clear();
+						count = 0;
+						throw e;
+					}
+					finally {
+						connection.setAutoCommit(true);
+					}
 				}
 			}
-			catch (Exception e) {
+			catch (SQLException e) {
 
 				// output simple error message
-				plugin.getLogger().warning("An error occurred while inserting a Graveyard record "
-						+ "into the SQLite datastore.");
+				plugin.getLogger().warning("An error occurred while trying to insert "
+						+ recordType + " records into the SQLite datastore.");
 				plugin.getLogger().warning(e.getLocalizedMessage());
 
 				// if debugging is enabled, output stack trace
@@ -1007,9 +1573,14 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 					e.printStackTrace();
 				}
 			}
-			count++;
-		}
-		return count;
+
+			// output debugging information
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().info(count + " " + recordType + " records inserted, " + failures + " failed.");
+			}
+
+			return count;
+		});
 	}
 
 
@@ -1021,56 +1592,51 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 			return;
 		}
 
-		new BukkitRunnable() {
-			@Override
-			public void run() {
+		writeExecutor.execute(() -> {
 
-				try {
-					// synchronize on connection
-					synchronized (this) {
-
-						// create prepared statement
-						PreparedStatement preparedStatement =
-								connection.prepareStatement(Queries.getQuery("UpdateGraveyard"));
-
-						preparedStatement.setString(1, graveyard.getSearchKey());
-						preparedStatement.setString(2, graveyard.getDisplayName());
-						preparedStatement.setBoolean(3, graveyard.isEnabled());
-						preparedStatement.setBoolean(4, graveyard.isHidden());
-						preparedStatement.setInt(5, graveyard.getDiscoveryRange());
-						preparedStatement.setString(6, graveyard.getDiscoveryMessage());
-						preparedStatement.setString(7, graveyard.getRespawnMessage());
-						preparedStatement.setString(8, graveyard.getGroup());
-						preparedStatement.setInt(9, graveyard.getSafetyRange());
-						preparedStatement.setLong(10, graveyard.getSafetyTime());
-						preparedStatement.setString(11, graveyard.getWorldName());
-						preparedStatement.setLong(12, graveyard.getWorldUid().getMostSignificantBits());
-						preparedStatement.setLong(13, graveyard.getWorldUid().getLeastSignificantBits());
-						preparedStatement.setDouble(14, graveyard.getX());
-						preparedStatement.setDouble(15, graveyard.getY());
-						preparedStatement.setDouble(16, graveyard.getZ());
-						preparedStatement.setFloat(17, graveyard.getYaw());
-						preparedStatement.setFloat(18, graveyard.getPitch());
-						preparedStatement.setInt(19, graveyard.getPrimaryKey());
-
-						// execute prepared statement
-						preparedStatement.executeUpdate();
-					}
+			try {
+				// get cached prepared statement
+				PreparedStatement preparedStatement = statementCache.get("UpdateGraveyard");
+
+				// synchronize on prepared statement
+				synchronized (preparedStatement) {
+					preparedStatement.setString(1, graveyard.getSearchKey());
+					preparedStatement.setString(2, graveyard.getDisplayName());
+					preparedStatement.setBoolean(3, graveyard.isEnabled());
+					preparedStatement.setBoolean(4, graveyard.isHidden());
+					preparedStatement.setInt(5, graveyard.getDiscoveryRange());
+					preparedStatement.setString(6, graveyard.getDiscoveryMessage());
+					preparedStatement.setString(7, graveyard.getRespawnMessage());
+					preparedStatement.setString(8, graveyard.getGroup());
+					preparedStatement.setInt(9, graveyard.getSafetyRange());
+					preparedStatement.setLong(10, graveyard.getSafetyTime());
+					preparedStatement.setString(11, graveyard.getWorldName());
+					preparedStatement.setLong(12, graveyard.getWorldUid().getMostSignificantBits());
+					preparedStatement.setLong(13, graveyard.getWorldUid().getLeastSignificantBits());
+					preparedStatement.setDouble(14, graveyard.getX());
+					preparedStatement.setDouble(15, graveyard.getY());
+					preparedStatement.setDouble(16, graveyard.getZ());
+					preparedStatement.setFloat(17, graveyard.getYaw());
+					preparedStatement.setFloat(18, graveyard.getPitch());
+					preparedStatement.setInt(19, graveyard.getPrimaryKey());
+
+					// execute prepared statement
+					preparedStatement.executeUpdate();
 				}
-				catch (SQLException e) {
+			}
+			catch (SQLException e) {
 
-					// output simple error message
-					plugin.getLogger().warning("An error occurred while trying to " +
-							"update a Graveyard record into the SQLite datastore.");
-					plugin.getLogger().warning(e.getLocalizedMessage());
+				// output simple error message
+				plugin.getLogger().warning("An error occurred while trying to " +
+						"update a Graveyard record into the SQLite datastore.");
+				plugin.getLogger().warning(e.getLocalizedMessage());
 
-					// if debugging is enabled, output stack trace
-					if (plugin.getConfig().getBoolean("debug")) {
-						e.printStackTrace();
-					}
+				// if debugging is enabled, output stack trace
+				if (plugin.getConfig().getBoolean("debug")) {
+					e.printStackTrace();
 				}
 			}
-		}.runTaskAsynchronously(plugin);
+		});
 	}
 
 
@@ -1085,48 +1651,129 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 		// get destination record to be deleted, for return
 		final Optional<Graveyard> graveyard = this.selectGraveyard(displayName);
 
-		new BukkitRunnable() {
-			@Override
-			public void run() {
+		writeExecutor.execute(() -> {
+
+			// write queued discovery records, so that those of the deleted graveyard are deleted with it
+			discoveryWriteQueue.flush();
+
+			try {
+
+				// if discoveries are stored as bitmaps, clear graveyard from player bitmaps with delete
+				if (discoveryStorage == DiscoveryStorage.BITMAP) {
+					deleteGraveyardBitmaps(displayName);
+					return;
+				}
+
+				// count discovery records to be deleted by cascade
+				PreparedStatement countStatement = statementCache.get("SelectGraveyardDiscoveryCount");
+				countStatement.setString(1, Graveyard.createSearchKey(displayName));
+				long discoveryCount = 0;
+				try (ResultSet rs = countStatement.executeQuery()) {
+					if (rs.next()) {
+						discoveryCount = rs.getLong("DiscoveryCount");
+					}
+				}
 
 				int rowsAffected;
 
-				try {
+				// get cached prepared statement
+				PreparedStatement preparedStatement = statementCache.get("DeleteGraveyard");
 
-					// synchronize on connection
-					synchronized (this) {
+				// synchronize on prepared statement
+				synchronized (preparedStatement) {
+					preparedStatement.setString(1, Graveyard.createSearchKey(displayName));
 
-						// create prepared statement
-						PreparedStatement preparedStatement =
-								connection.prepareStatement(Queries.getQuery("DeleteGraveyard"));
+					// execute prepared statement; discovery records are removed by cascade
+					rowsAffected = preparedStatement.executeUpdate();
+				}
 
-						preparedStatement.setString(1, Graveyard.createSearchKey(displayName));
+				if (rowsAffected > 0) {
+					discoveriesChanged(-discoveryCount);
+				}
 
-						// execute prepared statement
-						rowsAffected = preparedStatement.executeUpdate();
-					}
+				// output debugging information
+				if (plugin.getConfig().getBoolean("debug")) {
+					plugin.getLogger().info(rowsAffected + " graveyards deleted.");
+				}
+			}
+			catch (SQLException e) {
 
-					// output debugging information
-					if (plugin.getConfig().getBoolean("debug")) {
-						plugin.getLogger().info(rowsAffected + " graveyards deleted.");
-					}
+				// output simple error message
+				plugin.getLogger().warning("An error occurred while attempting to "
+						+ "delete a Graveyard record from the SQLite datastore.");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.getConfig().getBoolean("debug")) {
+					e.printStackTrace();
 				}
-				catch (SQLException e) {
+			}
+		});
+
+		return graveyard;
+	}
+
+
+	/**
+	 * Delete a graveyard and clear it from all stored player bitmaps, in a single transaction.
+	 * Called on the writer thread.
+	 *
+	 * @param displayName display name or search key of graveyard
+	 * @throws SQLException on sql error
+	 */
+	private void deleteGraveyardBitmaps(final String displayName) throws SQLException {
+
+		// get primary key of graveyard
+		PreparedStatement selectKey = statementCache.get("SelectGraveyardKey");
+		selectKey.setString(1, Graveyard.createSearchKey(displayName));
+		int key;
+		try (ResultSet rs = selectKey.executeQuery()) {
+			if (!rs.next()) {
+				return;
+			}
+			key = rs.getInt("Key");
+		}
 
-					// output simple error message
-					plugin.getLogger().warning("An error occurred while attempting to "
-							+ "delete a Graveyard record from the SQLite datastore.");
-					plugin.getLogger().warning(e.getLocalizedMessage());
+		connection.setAutoCommit(false);
+
+		try {
+			PreparedStatement deleteStatement = statementCache.get("DeleteGraveyard");
+			deleteStatement.setString(1, Graveyard.createSearchKey(displayName));
+			int rowsAffected = deleteStatement.executeUpdate();
 
-					// if debugging is enabled, output stack trace
-					if (plugin.getConfig().getBoolean("debug")) {
-						e.getStackTrace();
+			// collect bitmaps with graveyard cleared, then write them once the query is complete
+			Map<Integer, DiscoveryBitmap> cleared = new HashMap<>();
+			try (ResultSet rs = statementCache.get("SelectAllDiscoveryBitmaps").executeQuery()) {
+				while (rs.next()) {
+					int playerId = rs.getInt("PlayerId");
+					DiscoveryBitmap bitmap = decodeDiscoveryBitmap(rs.getBytes("Bitmap"), playerId);
+					if (bitmap.remove(key)) {
+						cleared.put(playerId, bitmap);
 					}
 				}
 			}
-		}.runTaskAsynchronously(plugin);
 
-		return graveyard;
+			PreparedStatement upsertBitmap = statementCache.get("UpsertDiscoveryBitmap");
+			PreparedStatement deleteBitmap = statementCache.get("DeleteDiscoveryBitmap");
+			for (Map.Entry<Integer, DiscoveryBitmap> entry : cleared.entrySet()) {
+				writeDiscoveryBitmap(upsertBitmap, deleteBitmap, entry.getKey(), entry.getValue());
+			}
+
+			connection.commit();
+			discoveriesChanged(-cleared.size());
+
+			// output debugging information
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().info(rowsAffected + " graveyards deleted.");
+			}
+		}
+		catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		}
+		finally {
+			connection.setAutoCommit(true);
+		}
 	}
 
 
@@ -1134,96 +1781,88 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 
 		Collection<Discovery> returnSet = new HashSet<>();
 
-		if (schemaVersion == 0) {
-
-			try {
-				PreparedStatement preparedStatement =
-						connection.prepareStatement(Queries.getQuery("SelectAllDiscoveryRecordsV0"));
-
-				// execute sql query
-				ResultSet rs = preparedStatement.executeQuery();
+		// read all records into return collection
+		streamDiscoveries(STREAM_CHUNK_SIZE, returnSet::addAll);
 
-				while (rs.next()) {
+		return returnSet;
+	}
 
-					// get graveyard search key
-					String searchKey = rs.getString("SearchKey");
 
-					// get player uid as string
-					String playerUidString = rs.getString("PlayerUid");
+	@Override
+	public boolean streamDiscoveries(final int chunkSize, final Consumer<List<Discovery>> action) {
 
-					UUID playerUid;
+		// write queued discovery records so stream includes them
+		if (discoveryWriteQueue != null) {
+			discoveryWriteQueue.flush();
+		}
 
-					try {
-						playerUid = UUID.fromString(playerUidString);
-					}
-					catch (IllegalArgumentException e) {
-						plugin.getLogger().warning("A record in the Discovered table " +
-								"has an invalid UUID! Skipping record.");
-						plugin.getLogger().warning(e.getLocalizedMessage());
-						if (plugin.getConfig().getBoolean("debug")) {
-							e.printStackTrace();
+		List<Discovery> chunk = new ArrayList<>(chunkSize);
+
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+
+			// if discoveries are stored as bitmaps, pass a record for each graveyard in each player bitmap
+			if (discoveryStorage == DiscoveryStorage.BITMAP) {
+				Map<Integer, String> graveyardKeys = readGraveyardKeys(reader);
+				try (ResultSet rs = reader.get("SelectAllDiscoveryBitmaps").executeQuery()) {
+					while (rs.next()) {
+						UUID playerUid = new UUID(rs.getLong("PlayerUidMsb"), rs.getLong("PlayerUidLsb"));
+						for (int key : decodeDiscoveryBitmap(rs.getBytes("Bitmap"), rs.getInt("PlayerId")).keys().toArray()) {
+							String searchKey = graveyardKeys.get(key);
+							if (searchKey == null) {
+								continue;
+							}
+							chunk.add(new Discovery(searchKey, playerUid));
+							if (chunk.size() >= chunkSize) {
+								action.accept(chunk);
+								chunk = new ArrayList<>(chunkSize);
+							}
 						}
-						continue;
 					}
-
-					// create new discovery record
-					Discovery record = new Discovery(searchKey, playerUid);
-
-					// add record to return set
-					returnSet.add(record);
 				}
-			}
-			catch (SQLException e) {
-				plugin.getLogger().warning("An error occurred while trying to " +
-						"select all discovery records from the SQLite datastore.");
-				plugin.getLogger().warning(e.getLocalizedMessage());
-				if (plugin.getConfig().getBoolean("debug")) {
-					e.printStackTrace();
+				if (!chunk.isEmpty()) {
+					action.accept(chunk);
 				}
+				return true;
 			}
-		}
-		else {
 
-			try {
-				PreparedStatement preparedStatement =
-						connection.prepareStatement(Queries.getQuery("SelectAllDiscoveryRecords"));
+			PreparedStatement preparedStatement = reader.get("SelectAllDiscoveryRecords");
 
-				// execute sql query
-				ResultSet rs = preparedStatement.executeQuery();
+			// execute sql query, reading rows as they are consumed
+			try (ResultSet rs = preparedStatement.executeQuery()) {
 
 				while (rs.next()) {
 
-					// get primary key
-					String key = rs.getString("GraveyardSearchKey");
-
-					// get player uid components
-					long playerUidMsb = rs.getLong("PlayerUidMsb");
-					long playerUidLsb = rs.getLong("PlayerUidLsb");
+					// get graveyard search key
+					String searchKey = rs.getString("SearchKey");
 
 					// reconstitute player uid from components
-					UUID playerUid = new UUID(playerUidMsb, playerUidLsb);
-
-					// create new discovery record
-					Discovery record = new Discovery(key, playerUid);
+					UUID playerUid = new UUID(rs.getLong("PlayerUidMsb"), rs.getLong("PlayerUidLsb"));
 
-					// add record to return set
-					returnSet.add(record);
+					// add discovery to chunk, passing chunk to action when full
+					chunk.add(new Discovery(searchKey, playerUid));
+					if (chunk.size() >= chunkSize) {
+						action.accept(chunk);
+						chunk = new ArrayList<>(chunkSize);
+					}
 				}
-
-				// close statement
-				preparedStatement.close();
 			}
-			catch (SQLException e) {
-				plugin.getLogger().warning("An error occurred while trying to " +
-						"select all discovery records from the SQLite datastore.");
-				plugin.getLogger().warning(e.getLocalizedMessage());
-				if (plugin.getConfig().getBoolean("debug")) {
-					e.printStackTrace();
-				}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occurred while trying to " +
+					"select all discovery records from the SQLite datastore.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
 			}
+			return false;
 		}
 
-		return returnSet;
+		// pass final partial chunk to action
+		if (!chunk.isEmpty()) {
+			action.accept(chunk);
+		}
+
+		return true;
 	}
 
 
@@ -1232,33 +1871,35 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 
 		Collection<String> returnSet = new HashSet<>();
 
-		try {
-			PreparedStatement preparedStatement =
-					connection.prepareStatement(Queries.getQuery("SelectPlayersWithDiscovery"));
+		// write queued discovery records so query reflects them
+		discoveryWriteQueue.flush();
+
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+			PreparedStatement preparedStatement = reader.get(discoveryStorage == DiscoveryStorage.BITMAP
+					? "SelectPlayersWithDiscoveryBitmap"
+					: "SelectPlayersWithDiscovery");
 
 			// execute sql query
-			ResultSet rs = preparedStatement.executeQuery();
+			try (ResultSet rs = preparedStatement.executeQuery()) {
 
-			while (rs.next()) {
+				while (rs.next()) {
 
-				// get player uid components
-				long playerUidMsb = rs.getLong("PlayerUidMsb");
-				long playerUidLsb = rs.getLong("PlayerUidLsb");
+					// get player uid components
+					long playerUidMsb = rs.getLong("PlayerUidMsb");
+					long playerUidLsb = rs.getLong("PlayerUidLsb");
 
-				// reconstitute player uid from components
-				UUID playerUid = new UUID(playerUidMsb, playerUidLsb);
+					// reconstitute player uid from components
+					UUID playerUid = new UUID(playerUidMsb, playerUidLsb);
 
-				// get offline player from uid
-				OfflinePlayer offlinePlayer = plugin.getServer().getOfflinePlayer(playerUid);
+					// get offline player from uid
+					OfflinePlayer offlinePlayer = plugin.getServer().getOfflinePlayer(playerUid);
 
-				// if offline player name is not null, add to return set
-				if (offlinePlayer.getName() != null) {
-					returnSet.add(offlinePlayer.getName());
+					// if offline player name is not null, add to return set
+					if (offlinePlayer.getName() != null) {
+						returnSet.add(offlinePlayer.getName());
+					}
 				}
 			}
-
-			// close statement
-			preparedStatement.close();
 		}
 		catch (SQLException e) {
 			plugin.getLogger().warning("An error occurred while trying to " +
@@ -1281,48 +1922,97 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 			return false;
 		}
 
-		int rowsAffected;
-		boolean result = true;
+		// run delete on writer thread and wait for result
+		return writeExecutor.call(() -> {
 
-		try {
+			int rowsAffected;
+			boolean result = true;
 
-			// synchronize on connection
-			synchronized (this) {
+			// write queued discovery records so delete reflects them
+			discoveryWriteQueue.flush();
 
-				// create prepared statement
-				PreparedStatement preparedStatement =
-						connection.prepareStatement(Queries.getQuery("DeleteDiscovery"));
+			try {
+
+				// if discoveries are stored as bitmaps, clear graveyard from player bitmap
+				if (discoveryStorage == DiscoveryStorage.BITMAP) {
+					boolean deleted = deleteDiscoveryBitmap(displayName, playerUid);
+					if (deleted) {
+						discoveriesChanged(-1);
+					}
+					return deleted;
+				}
 
-				preparedStatement.setLong(1, playerUid.getMostSignificantBits());
-				preparedStatement.setLong(2, playerUid.getLeastSignificantBits());
-				preparedStatement.setString(3, Graveyard.createSearchKey(displayName));
+				// get cached prepared statement
+				PreparedStatement preparedStatement = statementCache.get("DeleteDiscovery");
 
-				// execute prepared statement
-				rowsAffected = preparedStatement.executeUpdate();
-			}
+				// synchronize on prepared statement
+				synchronized (preparedStatement) {
+					preparedStatement.setInt(1, selectPlayerId(statementCache.get("SelectPlayerId"), playerUid));
+					preparedStatement.setString(2, Graveyard.createSearchKey(displayName));
+
+					// execute prepared statement
+					rowsAffected = preparedStatement.executeUpdate();
+				}
+
+				discoveriesChanged(-rowsAffected);
 
-			if (rowsAffected < 1) {
-				result = false;
+				if (rowsAffected < 1) {
+					result = false;
+				}
+
+				// output debugging information
+				if (plugin.getConfig().getBoolean("debug")) {
+					plugin.getLogger().info(rowsAffected + " discoveries deleted.");
+				}
 			}
+			catch (SQLException e) {
 
-			// output debugging information
-			if (plugin.getConfig().getBoolean("debug")) {
-				plugin.getLogger().info(rowsAffected + " discoveries deleted.");
+				// output simple error message
+				plugin.getLogger().warning("An error occurred while attempting to "
+						+ "delete a Discovery record from the SQLite datastore.");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.getConfig().getBoolean("debug")) {
+					e.printStackTrace();
+				}
 			}
-		}
-		catch (SQLException e) {
+			return result;
+		});
+	}
 
-			// output simple error message
-			plugin.getLogger().warning("An error occurred while attempting to "
-					+ "delete a Discovery record from the SQLite datastore.");
-			plugin.getLogger().warning(e.getLocalizedMessage());
 
-			// if debugging is enabled, output stack trace
-			if (plugin.getConfig().getBoolean("debug")) {
-				e.printStackTrace();
+	/**
+	 * Clear a graveyard from the stored bitmap of a player. Called on the writer thread.
+	 *
+	 * @param displayName display name or search key of graveyard
+	 * @param playerUid the player unique id
+	 * @return boolean - {@code true} if the graveyard was in the player bitmap, {@code false} if not
+	 * @throws SQLException on sql error
+	 */
+	private boolean deleteDiscoveryBitmap(final String displayName, final UUID playerUid) throws SQLException {
+
+		// get primary key of graveyard
+		PreparedStatement selectKey = statementCache.get("SelectGraveyardKey");
+		selectKey.setString(1, Graveyard.createSearchKey(displayName));
+		int key;
+		try (ResultSet rs = selectKey.executeQuery()) {
+			if (!rs.next()) {
+				return false;
 			}
+			key = rs.getInt("Key");
 		}
-		return result;
+
+		int playerId = selectPlayerId(statementCache.get("SelectPlayerId"), playerUid);
+		DiscoveryBitmap bitmap = readDiscoveryBitmap(statementCache.get("SelectDiscoveryBitmap"), playerId);
+		if (!bitmap.remove(key)) {
+			return false;
+		}
+
+		writeDiscoveryBitmap(statementCache.get("UpsertDiscoveryBitmap"),
+				statementCache.get("DeleteDiscoveryBitmap"), playerId, bitmap);
+
+		return true;
 	}
 
 
@@ -1331,11 +2021,13 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 
 		int count = 0;
 
-		try {
-			PreparedStatement preparedStatement = connection.prepareStatement(Queries.getQuery("SelectGraveyardCount"));
-			ResultSet rs = preparedStatement.executeQuery();
-			if (rs.next()) {
-				count = rs.getInt("GraveyardCount");
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+			PreparedStatement preparedStatement = reader.get("SelectGraveyardCount");
+
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				if (rs.next()) {
+					count = rs.getInt("GraveyardCount");
+				}
 			}
 		}
 		catch (SQLException e) {
@@ -1345,4 +2037,45 @@ final class DataStoreSQLite extends DataStoreAbstract implements DataStore {
 		return count;
 	}
 
+
+	@Override
+	public long selectDiscoveryCount() {
+
+		// write queued discovery records so count includes them
+		if (discoveryWriteQueue != null) {
+			discoveryWriteQueue.flush();
+		}
+
+		long count = 0;
+
+		try (ReaderPool.Reader reader = readerPool.acquire()) {
+
+			// if discoveries are stored as bitmaps, count keys of existing graveyards in each player bitmap
+			if (discoveryStorage == DiscoveryStorage.BITMAP) {
+				Set<Integer> graveyardKeys = readGraveyardKeys(reader).keySet();
+				try (ResultSet rs = reader.get("SelectAllDiscoveryBitmaps").executeQuery()) {
+					while (rs.next()) {
+						count += decodeDiscoveryBitmap(rs.getBytes("Bitmap"), rs.getInt("PlayerId")).keys()
+								.filter(graveyardKeys::contains)
+								.count();
+					}
+				}
+				return count;
+			}
+
+			PreparedStatement preparedStatement = reader.get("SelectDiscoveryCount");
+
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				if (rs.next()) {
+					count = rs.getLong("DiscoveryCount");
+				}
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occurred while attempting to retrieve a count of all discovery records.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+		}
+		return count;
+	}
+
 }
@@ -0,0 +1,478 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Compact binary snapshot of all graveyard and discovery records, used to back up and restore a datastore.
+ * A snapshot is a GZIP compressed stream with a versioned header, followed by chunks of graveyard records,
+ * chunks of discovery records grouped by player, and a trailer with record counts. Discoveries refer to
+ * graveyards by their position in the snapshot, and player ids are written once per chunk.
+ */
+public final class DataStoreSnapshot {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+	// snapshot file
+	private final File file;
+
+	// snapshot file header
+	private final static int MAGIC = 0x53475350;
+	private final static int FORMAT_VERSION = 1;
+
+	// section markers
+	private final static byte END = 0;
+	private final static byte GRAVEYARD_CHUNK = 1;
+	private final static byte DISCOVERY_CHUNK = 2;
+
+	// number of records read from datastore in each chunk when exporting
+	private final static int EXPORT_CHUNK_SIZE = 1000;
+
+	// number of discovery records inserted in each batch when importing
+	private final static int IMPORT_BATCH_SIZE = 10000;
+
+	// size of file buffers, in bytes
+	private final static int BUFFER_SIZE = 65536;
+
+	// snapshot subdirectory of plugin data folder, and snapshot file extension
+	private final static String DIRECTORY_NAME = "snapshots";
+	private final static String EXTENSION = ".snapshot";
+
+	// pattern for valid snapshot names
+	private final static Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+	// count of records written or read
+	private long graveyardCount;
+	private long discoveryCount;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 * @param name the snapshot name, without extension
+	 * @throws IllegalArgumentException if the name is not a valid snapshot name
+	 */
+	public DataStoreSnapshot(final JavaPlugin plugin, final String name) {
+		if (!isValidName(name)) {
+			throw new IllegalArgumentException("Invalid snapshot name: " + name);
+		}
+		this.plugin = plugin;
+		this.file = new File(getDirectory(plugin), name + EXTENSION);
+	}
+
+
+	/**
+	 * Test if a string is a valid snapshot name, consisting of letters, digits, underscores and hyphens
+	 *
+	 * @param name the name to test
+	 * @return true if name is valid, false if not
+	 */
+	public static boolean isValidName(final String name) {
+		return name != null && NAME_PATTERN.matcher(name).matches();
+	}
+
+
+	/**
+	 * Get names of existing snapshots
+	 *
+	 * @param plugin reference to main class
+	 * @return the snapshot names, without extension, in alphabetical order
+	 */
+	public static List<String> selectNames(final JavaPlugin plugin) {
+
+		File[] files = getDirectory(plugin).listFiles((dir, fileName) -> fileName.endsWith(EXTENSION));
+		if (files == null) {
+			return Collections.emptyList();
+		}
+
+		return Arrays.stream(files)
+				.map(snapshotFile -> snapshotFile.getName().substring(0, snapshotFile.getName().length() - EXTENSION.length()))
+				.filter(DataStoreSnapshot::isValidName)
+				.sorted()
+				.collect(Collectors.toList());
+	}
+
+
+	private static File getDirectory(final JavaPlugin plugin) {
+		return new File(plugin.getDataFolder(), DIRECTORY_NAME);
+	}
+
+
+	/**
+	 * Test if snapshot file exists
+	 *
+	 * @return true if the snapshot file exists, false if not
+	 */
+	public boolean exists() {
+		return file.isFile();
+	}
+
+
+	/**
+	 * Write all records of a datastore to the snapshot file, replacing any existing snapshot of the same name.
+	 * The snapshot is written to a temporary file first, so that a failed export does not leave a partial snapshot.
+	 *
+	 * @param dataStore the datastore to export
+	 * @return true if the snapshot was written, false if an error occurred
+	 */
+	boolean write(final DataStore dataStore) {
+
+		graveyardCount = 0;
+		discoveryCount = 0;
+
+		File tempFile = null;
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+
+			try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE), BUFFER_SIZE))) {
+
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeLong(System.currentTimeMillis());
+
+				// position of each graveyard in snapshot, by lower case search key
+				Map<String, Integer> graveyardIndex = new HashMap<>();
+
+				if (!dataStore.streamGraveyards(EXPORT_CHUNK_SIZE, chunk -> writeGraveyards(out, chunk, graveyardIndex))
+						|| !dataStore.streamDiscoveries(EXPORT_CHUNK_SIZE, chunk -> writeDiscoveries(out, chunk, graveyardIndex))) {
+					throw new IOException("Records could not be read from the " + dataStore + " datastore.");
+				}
+
+				out.writeByte(END);
+				out.writeLong(graveyardCount);
+				out.writeLong(discoveryCount);
+			}
+
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		}
+		catch (IOException | UncheckedIOException e) {
+			plugin.getLogger().warning("An error occurred while writing snapshot " + file.getName() + ".");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+			if (tempFile != null && !tempFile.delete()) {
+				tempFile.deleteOnExit();
+			}
+			return false;
+		}
+	}
+
+
+	private void writeGraveyards(final DataOutputStream out,
+	                             final List<Graveyard> chunk,
+	                             final Map<String, Integer> graveyardIndex) {
+		try {
+			out.writeByte(GRAVEYARD_CHUNK);
+			writeVarInt(out, chunk.size());
+			for (Graveyard graveyard : chunk) {
+				graveyardIndex.put(graveyard.getSearchKey().toLowerCase(), graveyardIndex.size());
+				writeGraveyard(out, graveyard);
+			}
+			graveyardCount += chunk.size();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	private void writeDiscoveries(final DataOutputStream out,
+	                              final List<Discovery> chunk,
+	                              final Map<String, Integer> graveyardIndex) {
+
+		// group discoveries in chunk by player, skipping discoveries of graveyards not in snapshot
+		Map<UUID, List<Integer>> playerDiscoveries = new LinkedHashMap<>();
+		for (Discovery discovery : chunk) {
+			Integer index = graveyardIndex.get(discovery.getSearchKey().toLowerCase());
+			if (index != null) {
+				playerDiscoveries.computeIfAbsent(discovery.getPlayerUid(), k -> new ArrayList<>()).add(index);
+			}
+		}
+
+		try {
+			out.writeByte(DISCOVERY_CHUNK);
+			writeVarInt(out, playerDiscoveries.size());
+			for (Map.Entry<UUID, List<Integer>> entry : playerDiscoveries.entrySet()) {
+				out.writeLong(entry.getKey().getMostSignificantBits());
+				out.writeLong(entry.getKey().getLeastSignificantBits());
+				writeVarInt(out, entry.getValue().size());
+				for (int index : entry.getValue()) {
+					writeVarInt(out, index);
+				}
+				discoveryCount += entry.getValue().size();
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	/**
+	 * Insert all records of the snapshot file into a datastore. The whole snapshot is read and verified
+	 * before any record is inserted, so that a truncated or corrupt snapshot is not partially imported.
+	 * Graveyards the datastore already contains are skipped, and discoveries it already contains are ignored.
+	 * Records are inserted in batches, each in a single transaction where the datastore supports it.
+	 *
+	 * @param dataStore the datastore to import into
+	 * @return true if all records were read, false if an error occurred
+	 */
+	boolean read(final DataStore dataStore) {
+
+		graveyardCount = 0;
+		discoveryCount = 0;
+
+		try {
+			// verify snapshot without inserting records
+			readRecords(graveyards -> { }, discoveries -> { });
+
+			// insert records, skipping graveyards already in datastore
+			readRecords(graveyards -> graveyardCount += dataStore.insertGraveyards(graveyards.stream()
+							.filter(graveyard -> dataStore.selectGraveyard(graveyard.getSearchKey()).isEmpty())
+							.collect(Collectors.toList())),
+					discoveries -> discoveryCount += dataStore.insertDiscoveries(discoveries));
+
+			dataStore.sync();
+			return true;
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("An error occurred while reading snapshot " + file.getName() + ".");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+			return false;
+		}
+	}
+
+
+	/**
+	 * Read all records of the snapshot file, passing each chunk of graveyards and each batch of discoveries
+	 * to an action, and verify the record counts and checksum at the end of the file
+	 *
+	 * @param graveyardAction the action to which each chunk of graveyard records is passed
+	 * @param discoveryAction the action to which each batch of discovery records is passed
+	 * @throws IOException if the snapshot file cannot be read, or is truncated or corrupt
+	 */
+	private void readRecords(final Consumer<List<Graveyard>> graveyardAction,
+	                         final Consumer<List<Discovery>> discoveryAction) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+				new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a graveyard snapshot file.");
+			}
+
+			int version = in.readInt();
+			if (version > FORMAT_VERSION) {
+				throw new IOException("Unsupported snapshot format version " + version + ".");
+			}
+
+			// snapshot creation time; currently unused
+			in.readLong();
+
+			// search keys of graveyards by position in snapshot
+			List<String> searchKeys = new ArrayList<>();
+			List<Discovery> discoveries = new ArrayList<>();
+			long recordedGraveyards = 0;
+			long recordedDiscoveries = 0;
+
+			byte marker;
+			while ((marker = in.readByte()) != END) {
+				switch (marker) {
+					case GRAVEYARD_CHUNK -> {
+						int count = readVarInt(in);
+						List<Graveyard> graveyards = new ArrayList<>(count);
+						for (int i = 0; i < count; i++) {
+							Graveyard graveyard = readGraveyard(in);
+							searchKeys.add(graveyard.getSearchKey());
+							graveyards.add(graveyard);
+						}
+						recordedGraveyards += count;
+						graveyardAction.accept(graveyards);
+					}
+					case DISCOVERY_CHUNK -> {
+						int playerCount = readVarInt(in);
+						for (int i = 0; i < playerCount; i++) {
+							UUID playerUid = new UUID(in.readLong(), in.readLong());
+							int count = readVarInt(in);
+							for (int j = 0; j < count; j++) {
+								int index = readVarInt(in);
+								if (index >= searchKeys.size()) {
+									throw new IOException("Snapshot discovery refers to unknown graveyard.");
+								}
+								discoveries.add(new Discovery(searchKeys.get(index), playerUid));
+							}
+							recordedDiscoveries += count;
+						}
+						if (discoveries.size() >= IMPORT_BATCH_SIZE) {
+							discoveryAction.accept(discoveries);
+							discoveries.clear();
+						}
+					}
+					default -> throw new IOException("Snapshot file is corrupt.");
+				}
+			}
+			discoveryAction.accept(discoveries);
+
+			// verify record counts, and read to end of stream to verify checksum
+			if (in.readLong() != recordedGraveyards || in.readLong() != recordedDiscoveries || in.read() != -1) {
+				throw new IOException("Snapshot file is incomplete.");
+			}
+		}
+	}
+
+
+	/**
+	 * Get snapshot file
+	 *
+	 * @return the snapshot file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+
+	/**
+	 * Get number of graveyard records written to snapshot by the last export,
+	 * or inserted into the datastore by the last import
+	 *
+	 * @return the graveyard record count
+	 */
+	public long getGraveyardCount() {
+		return graveyardCount;
+	}
+
+
+	/**
+	 * Get number of discovery records written to snapshot by the last export,
+	 * or inserted into the datastore by the last import
+	 *
+	 * @return the discovery record count
+	 */
+	public long getDiscoveryCount() {
+		return discoveryCount;
+	}
+
+
+	private static void writeGraveyard(final DataOutputStream out, final Graveyard graveyard) throws IOException {
+		writeString(out, graveyard.getSearchKey());
+		writeString(out, graveyard.getDisplayName());
+		out.writeBoolean(graveyard.isEnabled());
+		out.writeBoolean(graveyard.isHidden());
+		out.writeInt(graveyard.getDiscoveryRange());
+		writeString(out, graveyard.getDiscoveryMessage());
+		writeString(out, graveyard.getRespawnMessage());
+		writeString(out, graveyard.getGroup());
+		out.writeInt(graveyard.getSafetyRange());
+		out.writeLong(graveyard.getSafetyTime());
+		writeString(out, graveyard.getWorldName());
+		out.writeBoolean(graveyard.getWorldUid() != null);
+		if (graveyard.getWorldUid() != null) {
+			out.writeLong(graveyard.getWorldUid().getMostSignificantBits());
+			out.writeLong(graveyard.getWorldUid().getLeastSignificantBits());
+		}
+		out.writeDouble(graveyard.getX());
+		out.writeDouble(graveyard.getY());
+		out.writeDouble(graveyard.getZ());
+		out.writeFloat(graveyard.getYaw());
+		out.writeFloat(graveyard.getPitch());
+	}
+
+
+	private Graveyard readGraveyard(final DataInputStream in) throws IOException {
+
+		String searchKey = readString(in);
+		String displayName = readString(in);
+
+		return new Graveyard.Builder(plugin)
+				.displayName(displayName)
+				.searchKey(searchKey)
+				.enabled(in.readBoolean())
+				.hidden(in.readBoolean())
+				.discoveryRange(in.readInt())
+				.discoveryMessage(readString(in))
+				.respawnMessage(readString(in))
+				.group(readString(in))
+				.safetyRange(in.readInt())
+				.safetyTime((int) in.readLong())
+				.worldName(readString(in))
+				.worldUid(in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null)
+				.x(in.readDouble())
+				.y(in.readDouble())
+				.z(in.readDouble())
+				.yaw(in.readFloat())
+				.pitch(in.readFloat())
+				.build();
+	}
+
+
+	private static void writeString(final DataOutputStream out, final String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+
+	private static String readString(final DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+
+	private static void writeVarInt(final DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+
+	private static int readVarInt(final DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Snapshot file is corrupt.");
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Counts of records in a datastore, updated incrementally as records are written,
+ * so that they may be read from any thread without a query or lock.
+ */
+public final class DataStoreStatistics {
+
+	// count of graveyard records
+	private final AtomicInteger graveyardCount = new AtomicInteger();
+
+	// count of discovery records
+	private final AtomicLong discoveryCount = new AtomicLong();
+
+	// counts of graveyard records keyed by world uid
+	private final Map<UUID, AtomicInteger> worldGraveyardCounts = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Get count of graveyard records
+	 *
+	 * @return the count of graveyard records
+	 */
+	public int getGraveyardCount() {
+		return graveyardCount.get();
+	}
+
+
+	/**
+	 * Get count of discovery records
+	 *
+	 * @return the count of discovery records
+	 */
+	public long getDiscoveryCount() {
+		return discoveryCount.get();
+	}
+
+
+	/**
+	 * Get count of graveyard records in a world
+	 *
+	 * @param worldUid the world unique id
+	 * @return the count of graveyard records in the world
+	 */
+	public int getGraveyardCount(final UUID worldUid) {
+		AtomicInteger count = (worldUid == null) ? null : worldGraveyardCounts.get(worldUid);
+		return (count == null) ? 0 : count.get();
+	}
+
+
+	/**
+	 * Get counts of graveyard records of all worlds with graveyards
+	 *
+	 * @return unmodifiable Map of world uid to graveyard count
+	 */
+	public Map<UUID, Integer> getWorldGraveyardCounts() {
+		Map<UUID, Integer> counts = new HashMap<>();
+		worldGraveyardCounts.forEach((worldUid, count) -> {
+			if (count.get() > 0) {
+				counts.put(worldUid, count.get());
+			}
+		});
+		return Collections.unmodifiableMap(counts);
+	}
+
+
+	/**
+	 * Count a graveyard record added to the datastore
+	 *
+	 * @param graveyard the graveyard record
+	 */
+	void graveyardAdded(final Graveyard graveyard) {
+		graveyardCount.incrementAndGet();
+		if (graveyard.getWorldUid() != null) {
+			worldGraveyardCounts.computeIfAbsent(graveyard.getWorldUid(), k -> new AtomicInteger()).incrementAndGet();
+		}
+	}
+
+
+	/**
+	 * Count a graveyard record removed from the datastore
+	 *
+	 * @param graveyard the graveyard record
+	 */
+	void graveyardRemoved(final Graveyard graveyard) {
+		graveyardCount.decrementAndGet();
+		if (graveyard.getWorldUid() != null) {
+			AtomicInteger count = worldGraveyardCounts.get(graveyard.getWorldUid());
+			if (count != null) {
+				count.decrementAndGet();
+			}
+		}
+	}
+
+
+	/**
+	 * Count discovery records added to or removed from the datastore
+	 *
+	 * @param change the number of discovery records added, or negative number removed
+	 */
+	void discoveriesChanged(final long change) {
+		discoveryCount.addAndGet(change);
+	}
+
+
+	/**
+	 * Set count of discovery records, as counted in the datastore
+	 *
+	 * @param count the count of discovery records
+	 */
+	void setDiscoveryCount(final long count) {
+		discoveryCount.set(count);
+	}
+
+
+	/**
+	 * Reset all counts to zero
+	 */
+	void clear() {
+		graveyardCount.set(0);
+		discoveryCount.set(0);
+		worldGraveyardCounts.clear();
+	}
+
+
+	/**
+	 * Count records of a datastore that does not keep statistics
+	 *
+	 * @param dataStore the datastore
+	 * @return DataStoreStatistics - counts of records in the datastore at the time of the call
+	 */
+	static DataStoreStatistics count(final DataStore dataStore) {
+		DataStoreStatistics statistics = new DataStoreStatistics();
+		dataStore.selectAllGraveyards().forEach(statistics::graveyardAdded);
+		statistics.setDiscoveryCount(dataStore.selectDiscoveryCount());
+		return statistics;
+	}
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+
+/**
+ * Timing datastore class. Wraps a datastore, recording the latency of each operation in a histogram
+ * tagged with the key of the query the operation runs in the SQL datastores. An operation that throws
+ * an exception, or a stream that reports a read error, is counted as an error. Nothing is recorded
+ * or run between operations.
+ */
+final class DataStoreTiming extends DataStoreAbstract implements DataStore {
+
+	// wrapped datastore
+	private final DataStore dataStore;
+
+	// histograms of all operations, in display order
+	private final List<LatencyHistogram> histograms = new ArrayList<>();
+
+	// histograms of each timed operation
+	private final LatencyHistogram streamGraveyards = histogram("streamGraveyards", "SelectAllGraveyards");
+	private final LatencyHistogram streamDiscoveries = histogram("streamDiscoveries", "SelectAllDiscoveryRecords");
+	private final LatencyHistogram selectAllGraveyards = histogram("selectAllGraveyards", "SelectAllGraveyards");
+	private final LatencyHistogram selectGraveyard = histogram("selectGraveyard", "SelectGraveyard");
+	private final LatencyHistogram selectUndiscoveredGraveyards = histogram("selectUndiscoveredGraveyards", "SelectUndiscoveredGraveyards");
+	private final LatencyHistogram selectUndiscoveredKeys = histogram("selectUndiscoveredKeys", "SelectUndiscoveredGraveyardKeys");
+	private final LatencyHistogram selectNearestGraveyard = histogram("selectNearestGraveyard", "SelectNearestGraveyards");
+	private final LatencyHistogram selectMatchingGraveyardNames = histogram("selectMatchingGraveyardNames", "SelectMatchingGraveyardNames");
+	private final LatencyHistogram insertDiscovery = histogram("insertDiscovery", "InsertDiscovery");
+	private final LatencyHistogram loadDiscoveries = histogram("loadDiscoveries", "SelectPlayerId");
+	private final LatencyHistogram insertDiscoveries = histogram("insertDiscoveries", "InsertDiscovery");
+	private final LatencyHistogram insertGraveyards = histogram("insertGraveyards", "InsertGraveyard");
+	private final LatencyHistogram updateGraveyard = histogram("updateGraveyard", "UpdateGraveyard");
+	private final LatencyHistogram deleteGraveyard = histogram("deleteGraveyard", "DeleteGraveyard");
+	private final LatencyHistogram deleteDiscovery = histogram("deleteDiscovery", "DeleteDiscovery");
+	private final LatencyHistogram selectDiscoveredKeys = histogram("selectDiscoveredKeys", "SelectGraveyardsKnownByPlayer");
+	private final LatencyHistogram selectPlayersWithDiscoveries = histogram("selectPlayersWithDiscoveries", "SelectPlayersWithDiscovery");
+	private final LatencyHistogram selectGraveyardCount = histogram("selectGraveyardCount", "SelectGraveyardCount");
+	private final LatencyHistogram selectDiscoveryCount = histogram("selectDiscoveryCount", "SelectDiscoveryCount");
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param dataStore the datastore to time
+	 */
+	DataStoreTiming(final DataStore dataStore) {
+
+		// set wrapped datastore
+		this.dataStore = dataStore;
+
+		// set datastore type to type of wrapped datastore
+		this.type = dataStore.getType();
+	}
+
+
+	/**
+	 * Create a histogram for an operation, adding it to the list of all histograms
+	 *
+	 * @param operation the operation name
+	 * @param queryKey the key of the query run by the operation
+	 * @return the new histogram
+	 */
+	private LatencyHistogram histogram(final String operation, final String queryKey) {
+		LatencyHistogram histogram = new LatencyHistogram(operation, queryKey);
+		histograms.add(histogram);
+		return histogram;
+	}
+
+
+	/**
+	 * Run an operation, recording its latency
+	 *
+	 * @param histogram the histogram of the operation
+	 * @param operation the operation
+	 * @param <T> the result type of the operation
+	 * @return the result of the operation
+	 */
+	private static <T> T time(final LatencyHistogram histogram, final Supplier<T> operation) {
+		final long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			T result = operation.get();
+			failed = false;
+			return result;
+		}
+		finally {
+			histogram.record(System.nanoTime() - start, failed);
+		}
+	}
+
+
+	/**
+	 * Run an operation without a result, recording its latency
+	 *
+	 * @param histogram the histogram of the operation
+	 * @param operation the operation
+	 */
+	private static void time(final LatencyHistogram histogram, final Runnable operation) {
+		time(histogram, () -> {
+			operation.run();
+			return null;
+		});
+	}
+
+
+	/**
+	 * Run a stream operation, recording its latency; a stream that reports a read error is counted as failed
+	 *
+	 * @param histogram the histogram of the operation
+	 * @param operation the stream operation
+	 * @return the result of the stream operation
+	 */
+	private static boolean timeStream(final LatencyHistogram histogram, final Supplier<Boolean> operation) {
+		final long start = System.nanoTime();
+		boolean result = false;
+		try {
+			result = operation.get();
+			return result;
+		}
+		finally {
+			histogram.record(System.nanoTime() - start, !result);
+		}
+	}
+
+
+	@Override
+	public void initialize() throws Exception {
+
+		// if datastore is already initialized, do nothing and return
+		if (this.isInitialized()) {
+			return;
+		}
+
+		if (!dataStore.isInitialized()) {
+			dataStore.initialize();
+		}
+
+		setInitialized(true);
+	}
+
+
+	@Override
+	public void close() {
+		dataStore.close();
+		setInitialized(false);
+	}
+
+
+	@Override
+	public void sync() {
+		dataStore.sync();
+	}
+
+
+	@Override
+	public Map<String, String> getStatus() {
+		return dataStore.getStatus();
+	}
+
+
+	@Override
+	public boolean delete() {
+		return dataStore.delete();
+	}
+
+
+	@Override
+	public void setDiscoveryCountListener(final LongConsumer listener) {
+		dataStore.setDiscoveryCountListener(listener);
+	}
+
+
+	@Override
+	public Collection<LatencyHistogram> getLatencyHistograms() {
+		return Collections.unmodifiableList(histograms);
+	}
+
+
+	@Override
+	public void resetLatencyHistograms() {
+		histograms.forEach(LatencyHistogram::reset);
+	}
+
+
+	@Override
+	public boolean streamGraveyards(final int chunkSize, final Consumer<List<Graveyard>> action) {
+		return timeStream(streamGraveyards, () -> dataStore.streamGraveyards(chunkSize, action));
+	}
+
+
+	@Override
+	public boolean streamDiscoveries(final int chunkSize, final Consumer<List<Discovery>> action) {
+		return timeStream(streamDiscoveries, () -> dataStore.streamDiscoveries(chunkSize, action));
+	}
+
+
+	@Override
+	public Collection<Graveyard> selectAllGraveyards() {
+		return time(selectAllGraveyards, dataStore::selectAllGraveyards);
+	}
+
+
+	@Override
+	public Optional<Graveyard> selectGraveyard(final String displayName) {
+		return time(selectGraveyard, () -> dataStore.selectGraveyard(displayName));
+	}
+
+
+	@Override
+	public Collection<Graveyard> selectUndiscoveredGraveyards(final Player player) {
+		return time(selectUndiscoveredGraveyards, () -> dataStore.selectUndiscoveredGraveyards(player));
+	}
+
+
+	@Override
+	public Collection<String> selectUndiscoveredKeys(final Player player) {
+		return time(selectUndiscoveredKeys, () -> dataStore.selectUndiscoveredKeys(player));
+	}
+
+
+	@Override
+	public Optional<Graveyard> selectNearestGraveyard(final Player player) {
+		return time(selectNearestGraveyard, () -> dataStore.selectNearestGraveyard(player));
+	}
+
+
+	@Override
+	public List<String> selectMatchingGraveyardNames(final String match) {
+		return time(selectMatchingGraveyardNames, () -> dataStore.selectMatchingGraveyardNames(match));
+	}
+
+
+	@Override
+	public void insertDiscovery(final Discovery record) {
+		time(insertDiscovery, () -> dataStore.insertDiscovery(record));
+	}
+
+
+	@Override
+	public void loadDiscoveries(final UUID playerUid) {
+		time(loadDiscoveries, () -> dataStore.loadDiscoveries(playerUid));
+	}
+
+
+	@Override
+	public void unloadDiscoveries(final UUID playerUid) {
+		dataStore.unloadDiscoveries(playerUid);
+	}
+
+
+	@Override
+	public int insertDiscoveries(final Collection<Discovery> insertSet, final boolean rollbackOnFailure) {
+		return time(insertDiscoveries, () -> dataStore.insertDiscoveries(insertSet, rollbackOnFailure));
+	}
+
+
+	@Override
+	public int insertGraveyards(final Collection<Graveyard> graveyards, final boolean rollbackOnFailure) {
+		return time(insertGraveyards, () -> dataStore.insertGraveyards(graveyards, rollbackOnFailure));
+	}
+
+
+	@Override
+	public void updateGraveyard(final Graveyard graveyard) {
+		time(updateGraveyard, () -> dataStore.updateGraveyard(graveyard));
+	}
+
+
+	@Override
+	public Optional<Graveyard> deleteGraveyard(final String displayName) {
+		return time(deleteGraveyard, () -> dataStore.deleteGraveyard(displayName));
+	}
+
+
+	@Override
+	public boolean deleteDiscovery(final String displayName, final UUID playerUid) {
+		return time(deleteDiscovery, () -> dataStore.deleteDiscovery(displayName, playerUid));
+	}
+
+
+	@Override
+	public Collection<String> selectDiscoveredKeys(final UUID playerUid) {
+		return time(selectDiscoveredKeys, () -> dataStore.selectDiscoveredKeys(playerUid));
+	}
+
+
+	@Override
+	public Collection<String> selectPlayersWithDiscoveries() {
+		return time(selectPlayersWithDiscoveries, dataStore::selectPlayersWithDiscoveries);
+	}
+
+
+	@Override
+	public int selectGraveyardCount() {
+		return time(selectGraveyardCount, dataStore::selectGraveyardCount);
+	}
+
+
+	@Override
+	public long selectDiscoveryCount() {
+		return time(selectDiscoveryCount, dataStore::selectDiscoveryCount);
+	}
+
+}
@@ -20,9 +20,8 @@ package com.winterhavenmc.savagegraveyards.storage;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -45,6 +44,39 @@ enum DataStoreType {
 			File dataStoreFile = new File(plugin.getDataFolder() + File.separator + this.getStorageName());
 			return dataStoreFile.exists();
 		}
+	},
+
+	LOG("Log", "graveyards.log") {
+
+		@Override
+		public DataStore connect(final JavaPlugin plugin) {
+
+			// create new log datastore object
+			return new DataStoreLog(plugin);
+		}
+
+		@Override
+		boolean storageObjectExists(final JavaPlugin plugin) {
+			// get path name to data store file
+			File dataStoreFile = new File(plugin.getDataFolder() + File.separator + this.getStorageName());
+			return dataStoreFile.exists();
+		}
+	},
+
+	JDBC("JDBC", "jdbc-url") {
+
+		@Override
+		public DataStore connect(final JavaPlugin plugin) {
+
+			// create new jdbc datastore object
+			return new DataStoreJDBC(plugin);
+		}
+
+		@Override
+		boolean storageObjectExists(final JavaPlugin plugin) {
+			// a shared database is never converted from or deleted automatically
+			return false;
+		}
 	};
 
 	// data store type display name
@@ -124,73 +156,50 @@ enum DataStoreType {
 
 
 	/**
-	 * convert old data store to new data store
+	 * Convert all existing data stores to new data store in the background. Operations are served by the first
+	 * existing data store until all records have been copied to the new data store.
 	 *
-	 * @param oldDataStore the old datastore to convert from
-	 * @param newDataStore the new datastore to convert to
+	 * @param newDataStore the new datastore to convert all other existing datastores into
+	 * @return the datastore to use; the new datastore if there is nothing to convert
 	 */
-	private static void convert(final JavaPlugin plugin, final DataStore oldDataStore, final DataStore newDataStore) {
+	static DataStore convertAllAsync(final JavaPlugin plugin, final DataStore newDataStore) {
 
-		// if datastores are same type, do not convert
-		if (oldDataStore.getType().equals(newDataStore.getType())) {
-			return;
+		// if new datastore could not be initialized, do not convert, leaving old datastore in place
+		if (!newDataStore.isInitialized()) {
+			return newDataStore;
 		}
 
-		// if old datastore exists, attempt to read all records
-		if (oldDataStore.getType().storageObjectExists(plugin)) {
-
-			plugin.getLogger().info("Converting existing " + oldDataStore + " datastore to "
-					+ newDataStore + " datastore...");
-
-			// initialize old datastore if necessary
-			if (!oldDataStore.isInitialized()) {
-				try {
-					oldDataStore.initialize();
-				}
-				catch (Exception e) {
-					plugin.getLogger().warning("Could not initialize "
-							+ oldDataStore + " datastore for conversion.");
-					plugin.getLogger().warning(e.getLocalizedMessage());
-					return;
-				}
+		// get existing datastores of other types
+		List<DataStore> oldDataStores = new ArrayList<>();
+		for (DataStoreType type : DataStoreType.values()) {
+			if (!type.equals(newDataStore.getType()) && type.storageObjectExists(plugin)) {
+				oldDataStores.add(type.connect(plugin));
 			}
-
-			// get count of records inserted in new datastore from old datastore
-			int count = newDataStore.insertGraveyards(oldDataStore.selectAllGraveyards());
-
-			// log record count message
-			plugin.getLogger().info(count + " records converted to " + newDataStore + " datastore.");
-
-			// flush new datastore to disk if applicable
-			newDataStore.sync();
-
-			// close old datastore
-			oldDataStore.close();
-
-			// delete old datastore
-			oldDataStore.delete();
 		}
-	}
-
-
-	/**
-	 * convert all existing data stores to new data store
-	 *
-	 * @param newDataStore the new datastore to convert all other existing datastores into
-	 */
-	static void convertAll(final JavaPlugin plugin, final DataStore newDataStore) {
 
-		// get array list of all data store types
-		Collection<DataStoreType> dataStoreTypes = new HashSet<>(Arrays.asList(DataStoreType.values()));
+		if (oldDataStores.isEmpty()) {
+			return newDataStore;
+		}
 
-		// remove newDataStore type from list of types to convert
-		dataStoreTypes.remove(newDataStore.getType());
+		// serve reads from first existing datastore from its graveyard cache
+		oldDataStores.set(0, new DataStoreCache(plugin, oldDataStores.get(0)));
 
-		for (DataStoreType type : dataStoreTypes) {
-			if (type.storageObjectExists(plugin)) {
-				convert(plugin, type.connect(plugin), newDataStore);
+		DataStore conversion = new DataStoreConversion(plugin, oldDataStores, newDataStore);
+		try {
+			conversion.initialize();
+		}
+		catch (Exception e) {
+			plugin.getLogger().warning("Could not initialize " + oldDataStores.get(0)
+					+ " datastore for conversion.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
 			}
+			oldDataStores.forEach(DataStore::close);
+			return newDataStore;
 		}
+
+		return conversion;
 	}
 
 }
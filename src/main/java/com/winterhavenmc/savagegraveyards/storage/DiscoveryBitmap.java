@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+
+/**
+ * Thread safe bitmap of graveyard primary keys. Used for the graveyards discovered by a player,
+ * and for the hidden graveyards of a world, so that the undiscovered graveyards of a player
+ * are the difference of two bitmaps.
+ * <p>
+ * A bitmap is stored in one of two encodings, whichever is smaller: the raw bitmap, for players who have
+ * discovered a large share of graveyards; or the gaps between set keys as variable length integers,
+ * for players who have discovered few graveyards spread over a wide key range.
+ */
+final class DiscoveryBitmap {
+
+	// bits set at graveyard primary keys
+	private final BitSet bits;
+
+	// encoding header bytes
+	private final static byte RAW_ENCODING = 0;
+	private final static byte DELTA_ENCODING = 1;
+
+
+	/**
+	 * Create an empty bitmap
+	 */
+	DiscoveryBitmap() {
+		this.bits = new BitSet();
+	}
+
+
+	/**
+	 * Create a bitmap with bits set
+	 *
+	 * @param bits the bits; not copied
+	 */
+	private DiscoveryBitmap(final BitSet bits) {
+		this.bits = bits;
+	}
+
+
+	/**
+	 * Set the bit of a graveyard primary key
+	 *
+	 * @param key the graveyard primary key
+	 * @return true if the bit was not already set
+	 */
+	synchronized boolean add(final int key) {
+		if (key < 0 || bits.get(key)) {
+			return false;
+		}
+		bits.set(key);
+		return true;
+	}
+
+
+	/**
+	 * Clear the bit of a graveyard primary key
+	 *
+	 * @param key the graveyard primary key
+	 * @return true if the bit was set
+	 */
+	synchronized boolean remove(final int key) {
+		if (key < 0 || !bits.get(key)) {
+			return false;
+		}
+		bits.clear(key);
+		return true;
+	}
+
+
+	/**
+	 * Test the bit of a graveyard primary key
+	 *
+	 * @param key the graveyard primary key
+	 * @return true if the bit is set
+	 */
+	synchronized boolean contains(final int key) {
+		return key >= 0 && bits.get(key);
+	}
+
+
+	/**
+	 * Check if no bits are set
+	 *
+	 * @return true if no bits are set
+	 */
+	synchronized boolean isEmpty() {
+		return bits.isEmpty();
+	}
+
+
+	/**
+	 * Get the number of bits set
+	 *
+	 * @return the number of graveyard primary keys in the bitmap
+	 */
+	synchronized int size() {
+		return bits.cardinality();
+	}
+
+
+	/**
+	 * Get a copy of the bits
+	 *
+	 * @return a copy of the bits
+	 */
+	private synchronized BitSet copyBits() {
+		return (BitSet) bits.clone();
+	}
+
+
+	/**
+	 * Get the keys in this bitmap that are not in another bitmap
+	 *
+	 * @param other the bitmap of keys to exclude
+	 * @return a new bitmap of keys in this bitmap and not in the other
+	 */
+	DiscoveryBitmap andNot(final DiscoveryBitmap other) {
+
+		// copy each bitmap under its own lock, so that two bitmaps are never locked together
+		BitSet result = copyBits();
+		result.andNot(other.copyBits());
+
+		return new DiscoveryBitmap(result);
+	}
+
+
+	/**
+	 * Get the keys in this bitmap, in ascending order
+	 *
+	 * @return IntStream of graveyard primary keys
+	 */
+	IntStream keys() {
+		return copyBits().stream();
+	}
+
+
+	/**
+	 * Encode the bitmap in the smaller of the raw and delta encodings
+	 *
+	 * @return the encoded bitmap
+	 */
+	synchronized byte[] toByteArray() {
+
+		// delta encoding: gaps between consecutive set keys
+		ByteArrayOutputStream delta = new ByteArrayOutputStream();
+		delta.write(DELTA_ENCODING);
+		int previous = -1;
+		for (int key = bits.nextSetBit(0); key >= 0; key = bits.nextSetBit(key + 1)) {
+			writeVarInt(delta, key - previous);
+			previous = key;
+		}
+
+		// raw encoding: little-endian bits
+		byte[] raw = bits.toByteArray();
+		if (raw.length + 1 < delta.size()) {
+			byte[] encoded = new byte[raw.length + 1];
+			encoded[0] = RAW_ENCODING;
+			System.arraycopy(raw, 0, encoded, 1, raw.length);
+			return encoded;
+		}
+
+		return delta.toByteArray();
+	}
+
+
+	/**
+	 * Decode a bitmap encoded by {@link #toByteArray()}
+	 *
+	 * @param encoded the encoded bitmap; null or empty for an empty bitmap
+	 * @return the decoded bitmap
+	 * @throws IllegalArgumentException if the encoding is not valid
+	 */
+	static DiscoveryBitmap fromByteArray(final byte[] encoded) {
+
+		if (encoded == null || encoded.length == 0) {
+			return new DiscoveryBitmap();
+		}
+
+		if (encoded[0] == RAW_ENCODING) {
+			byte[] raw = new byte[encoded.length - 1];
+			System.arraycopy(encoded, 1, raw, 0, raw.length);
+			return new DiscoveryBitmap(BitSet.valueOf(raw));
+		}
+
+		if (encoded[0] == DELTA_ENCODING) {
+			BitSet bits = new BitSet();
+			int key = -1;
+			int position = 1;
+			while (position < encoded.length) {
+
+				// read variable length gap
+				int gap = 0;
+				int shift = 0;
+				int b;
+				do {
+					if (position >= encoded.length || shift > 28) {
+						throw new IllegalArgumentException("Truncated discovery bitmap.");
+					}
+					b = encoded[position++];
+					gap |= (b & 0x7F) << shift;
+					shift += 7;
+				} while ((b & 0x80) != 0);
+
+				key += gap;
+				if (gap <= 0 || key < 0) {
+					throw new IllegalArgumentException("Invalid discovery bitmap gap: " + gap);
+				}
+				bits.set(key);
+			}
+			return new DiscoveryBitmap(bits);
+		}
+
+		throw new IllegalArgumentException("Unknown discovery bitmap encoding: " + encoded[0]);
+	}
+
+
+	/**
+	 * Write an unsigned variable length integer, seven bits per byte
+	 *
+	 * @param out the output stream
+	 * @param value the value
+	 */
+	private static void writeVarInt(final ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+
+/**
+ * Enum of SQLite discovery storage modes, selected by the discovery-storage configuration setting
+ */
+enum DiscoveryStorage {
+
+	// one row per graveyard discovered by each player, in the Discovered table
+	ROWS,
+
+	// one bitmap of discovered graveyard primary keys per player, in the DiscoveryBitmaps table;
+	// bits of deleted graveyards are ignored, since graveyard primary keys are never reused
+	BITMAP;
+
+
+	// default storage mode
+	private final static DiscoveryStorage defaultStorage = DiscoveryStorage.ROWS;
+
+
+	/**
+	 * Get storage mode by name, or default storage mode if no match
+	 *
+	 * @param name the storage mode name
+	 * @return DiscoveryStorage - the matching storage mode, or default storage mode if no match
+	 */
+	static DiscoveryStorage match(final String name) {
+		for (DiscoveryStorage storage : DiscoveryStorage.values()) {
+			if (storage.name().equalsIgnoreCase(name)) {
+				return storage;
+			}
+		}
+		return defaultStorage;
+	}
+
+}
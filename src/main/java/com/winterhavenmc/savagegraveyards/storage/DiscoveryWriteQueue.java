@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+
+/**
+ * Write-behind queue for discovery records. Discoveries are collected in memory and
+ * passed to a batch writer on the flush executor at a timed interval, or sooner when the
+ * number of pending records reaches a threshold. Pending records are written when the queue is closed.
+ * Batches are drained and written only by the flush executor, which must run tasks one at a time,
+ * so that batches are written in order without a lock held by a thread waiting on the executor.
+ */
+final class DiscoveryWriteQueue {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+	// writer that persists a batch of discoveries
+	private final Consumer<Collection<Discovery>> batchWriter;
+
+	// executor on which flushes are run
+	private final Executor flushExecutor;
+
+	// interval between timed flushes, in milliseconds
+	private final long flushInterval;
+
+	// number of pending records that triggers an immediate flush
+	private final int flushThreshold;
+
+	// pending discovery records
+	private final Queue<Discovery> pending = new ConcurrentLinkedQueue<>();
+
+	// count of discovery records added and not yet written, including records in a batch being written
+	private final AtomicInteger pendingCount = new AtomicInteger();
+
+	// true if a flush has been submitted to the flush executor and not yet run
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+	// repeating task that submits timed flushes
+	private BukkitTask flushTask;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 * @param batchWriter writer that persists a batch of discoveries
+	 * @param flushExecutor executor on which flushes are run, one at a time
+	 * @param flushInterval interval between timed flushes, in milliseconds
+	 * @param flushThreshold number of pending records that triggers an immediate flush
+	 */
+	DiscoveryWriteQueue(final JavaPlugin plugin,
+	                    final Consumer<Collection<Discovery>> batchWriter,
+	                    final Executor flushExecutor,
+	                    final long flushInterval,
+	                    final int flushThreshold) {
+		this.plugin = plugin;
+		this.batchWriter = batchWriter;
+		this.flushExecutor = flushExecutor;
+		this.flushInterval = flushInterval;
+		this.flushThreshold = flushThreshold;
+	}
+
+
+	/**
+	 * Start timed flushes
+	 */
+	void start() {
+
+		// convert milliseconds to server ticks
+		long ticks = Math.max(1L, flushInterval / 50L);
+
+		flushTask = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
+			if (pendingCount.get() > 0) {
+				submitFlush();
+			}
+		}, ticks, ticks);
+	}
+
+
+	/**
+	 * Add a discovery to the queue
+	 *
+	 * @param discovery the discovery to be written
+	 */
+	void add(final Discovery discovery) {
+
+		pending.add(discovery);
+
+		// if threshold reached, submit an immediate flush
+		if (pendingCount.incrementAndGet() >= flushThreshold) {
+			submitFlush();
+		}
+	}
+
+
+	/**
+	 * Submit a flush to the flush executor, unless one is already submitted and not yet run
+	 */
+	private void submitFlush() {
+		if (flushScheduled.compareAndSet(false, true)) {
+			flushExecutor.execute(() -> {
+				flushScheduled.set(false);
+				writePending();
+			});
+		}
+	}
+
+
+	/**
+	 * Write all pending discoveries to the datastore on the flush executor, waiting for the write to complete.
+	 * If no discoveries are pending or being written, returns without waiting on the flush executor, so that
+	 * readers do not wait behind unrelated writes.
+	 *
+	 * @throws java.util.concurrent.RejectedExecutionException if the flush executor has been closed
+	 */
+	void flush() {
+		if (pendingCount.get() == 0) {
+			return;
+		}
+		CompletableFuture.runAsync(this::writePending, flushExecutor).join();
+	}
+
+
+	/**
+	 * Drain pending discoveries and pass them to the batch writer; run on the flush executor only
+	 */
+	private void writePending() {
+
+		// if no discoveries are pending, do nothing and return
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		// drain pending discoveries into batch
+		List<Discovery> batch = new ArrayList<>(pendingCount.get());
+		Discovery discovery;
+		while ((discovery = pending.poll()) != null) {
+			batch.add(discovery);
+		}
+
+		// count records as pending until written, so that a flush waits for a batch being written
+		try {
+			batchWriter.accept(batch);
+		}
+		finally {
+			pendingCount.addAndGet(-batch.size());
+		}
+	}
+
+
+	/**
+	 * Cancel timed flushes and write all pending discoveries
+	 */
+	void close() {
+
+		if (flushTask != null) {
+			flushTask.cancel();
+			flushTask = null;
+		}
+
+		flush();
+	}
+
+}
@@ -128,6 +128,7 @@ public final class Graveyard {
 			this.enabled = graveyard.isEnabled();
 			this.hidden = graveyard.isHidden();
 			this.discoveryRange = graveyard.getDiscoveryRange();
+			this.discoveryMessage = graveyard.getDiscoveryMessage();
 			this.respawnMessage = graveyard.getRespawnMessage();
 			this.group = graveyard.getGroup();
 			this.safetyRange = graveyard.getSafetyRange();
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.Location;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+
+/**
+ * Spatial index of graveyard locations. Graveyards are held in a uniform grid
+ * of square cells for each world, keyed by world uid. Nearest graveyard searches
+ * examine cells in rings of increasing distance from the search location,
+ * stopping when no unexamined cell can contain a closer graveyard.
+ */
+final class GraveyardIndex {
+
+	// width of grid cells in blocks
+	private final static int CELL_SIZE = 128;
+
+	// map of world grids keyed by world uid
+	private final Map<UUID, WorldGrid> worldGrids = new HashMap<>();
+
+	// map of indexed graveyards keyed by primary key
+	private final Map<Integer, Graveyard> indexedGraveyards = new HashMap<>();
+
+	// lock guarding index structures
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+
+	/**
+	 * Grid of cells for a single world
+	 */
+	private static final class WorldGrid {
+
+		// map of cell contents keyed by packed cell coordinates
+		private final Map<Long, List<Graveyard>> cells = new HashMap<>();
+
+		// bounds of occupied cell coordinates
+		private int minCellX = Integer.MAX_VALUE;
+		private int maxCellX = Integer.MIN_VALUE;
+		private int minCellZ = Integer.MAX_VALUE;
+		private int maxCellZ = Integer.MIN_VALUE;
+	}
+
+
+	/**
+	 * Add a graveyard to the index, replacing any graveyard with the same primary key
+	 *
+	 * @param graveyard the graveyard to add
+	 */
+	void add(final Graveyard graveyard) {
+
+		// graveyards without a world uid cannot be indexed
+		if (graveyard == null || graveyard.getWorldUid() == null) {
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			// remove any existing graveyard with the same primary key
+			removeUnlocked(graveyard.getPrimaryKey());
+
+			// get grid for graveyard world, creating if necessary
+			WorldGrid grid = worldGrids.computeIfAbsent(graveyard.getWorldUid(), k -> new WorldGrid());
+
+			int cellX = toCell(graveyard.getX());
+			int cellZ = toCell(graveyard.getZ());
+
+			// add graveyard to cell
+			grid.cells.computeIfAbsent(packCell(cellX, cellZ), k -> new ArrayList<>()).add(graveyard);
+
+			// expand grid bounds
+			grid.minCellX = Math.min(grid.minCellX, cellX);
+			grid.maxCellX = Math.max(grid.maxCellX, cellX);
+			grid.minCellZ = Math.min(grid.minCellZ, cellZ);
+			grid.maxCellZ = Math.max(grid.maxCellZ, cellZ);
+
+			indexedGraveyards.put(graveyard.getPrimaryKey(), graveyard);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Remove a graveyard from the index
+	 *
+	 * @param primaryKey the primary key of the graveyard to remove
+	 */
+	void remove(final int primaryKey) {
+		lock.writeLock().lock();
+		try {
+			removeUnlocked(primaryKey);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Remove a graveyard from the index; caller must hold write lock
+	 *
+	 * @param primaryKey the primary key of the graveyard to remove
+	 */
+	private void removeUnlocked(final int primaryKey) {
+
+		Graveyard existing = indexedGraveyards.remove(primaryKey);
+
+		// if graveyard is not indexed, do nothing and return
+		if (existing == null) {
+			return;
+		}
+
+		WorldGrid grid = worldGrids.get(existing.getWorldUid());
+
+		if (grid == null) {
+			return;
+		}
+
+		long cellKey = packCell(toCell(existing.getX()), toCell(existing.getZ()));
+		List<Graveyard> cell = grid.cells.get(cellKey);
+
+		if (cell != null) {
+			cell.removeIf(graveyard -> graveyard.getPrimaryKey() == primaryKey);
+			if (cell.isEmpty()) {
+				grid.cells.remove(cellKey);
+			}
+		}
+
+		// remove grid if world has no remaining graveyards
+		if (grid.cells.isEmpty()) {
+			worldGrids.remove(existing.getWorldUid());
+		}
+	}
+
+
+	/**
+	 * Remove all graveyards from the index
+	 */
+	void clear() {
+		lock.writeLock().lock();
+		try {
+			worldGrids.clear();
+			indexedGraveyards.clear();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Find the graveyard nearest to a location that satisfies a filter
+	 *
+	 * @param location the location from which to search
+	 * @param filter predicate a graveyard must satisfy to be returned
+	 * @return Optional Graveyard - the nearest matching graveyard, or empty optional if none found
+	 */
+	Optional<Graveyard> nearest(final Location location, final Predicate<Graveyard> filter) {
+
+		if (location == null || location.getWorld() == null) {
+			return Optional.empty();
+		}
+
+		lock.readLock().lock();
+		try {
+			WorldGrid grid = worldGrids.get(location.getWorld().getUID());
+
+			// if world has no graveyards, return empty optional
+			if (grid == null) {
+				return Optional.empty();
+			}
+
+			final double x = location.getX();
+			final double y = location.getY();
+			final double z = location.getZ();
+			final int originX = toCell(x);
+			final int originZ = toCell(z);
+
+			// ring distance at which all occupied cells have been examined
+			final int maxRing = Math.max(
+					Math.max(Math.abs(originX - grid.minCellX), Math.abs(grid.maxCellX - originX)),
+					Math.max(Math.abs(originZ - grid.minCellZ), Math.abs(grid.maxCellZ - originZ)));
+
+			Graveyard closest = null;
+			double closestDistance = Double.MAX_VALUE;
+
+			for (int ring = 0; ring <= maxRing; ring++) {
+
+				// if ring has more cells than grid has occupied cells, examine remaining occupied cells directly
+				if (8L * ring > grid.cells.size()) {
+					for (Map.Entry<Long, List<Graveyard>> entry : grid.cells.entrySet()) {
+						int cellX = (int) (entry.getKey() >> 32);
+						int cellZ = (int) (long) entry.getKey();
+						if (Math.max(Math.abs(cellX - originX), Math.abs(cellZ - originZ)) >= ring) {
+							for (Graveyard graveyard : entry.getValue()) {
+								double distance = distanceSquared(graveyard, x, y, z);
+								if (distance < closestDistance && filter.test(graveyard)) {
+									closest = graveyard;
+									closestDistance = distance;
+								}
+							}
+						}
+					}
+					break;
+				}
+
+				// examine cells in ring
+				for (long cellKey : ringCells(originX, originZ, ring)) {
+					List<Graveyard> cell = grid.cells.get(cellKey);
+					if (cell == null) {
+						continue;
+					}
+					for (Graveyard graveyard : cell) {
+						double distance = distanceSquared(graveyard, x, y, z);
+						if (distance < closestDistance && filter.test(graveyard)) {
+							closest = graveyard;
+							closestDistance = distance;
+						}
+					}
+				}
+
+				// any graveyard in an unexamined ring is more than (ring * CELL_SIZE) blocks away
+				double searchedRadius = (double) ring * CELL_SIZE;
+				if (closest != null && closestDistance <= searchedRadius * searchedRadius) {
+					break;
+				}
+			}
+
+			return Optional.ofNullable(closest);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Get packed coordinates of the cells at a given ring distance from an origin cell
+	 *
+	 * @param originX the origin cell x coordinate
+	 * @param originZ the origin cell z coordinate
+	 * @param ring the ring distance, in cells
+	 * @return array of packed cell coordinates
+	 */
+	private static long[] ringCells(final int originX, final int originZ, final int ring) {
+
+		if (ring == 0) {
+			return new long[] { packCell(originX, originZ) };
+		}
+
+		long[] result = new long[8 * ring];
+		int index = 0;
+
+		// top and bottom rows
+		for (int dx = -ring; dx <= ring; dx++) {
+			result[index++] = packCell(originX + dx, originZ - ring);
+			result[index++] = packCell(originX + dx, originZ + ring);
+		}
+
+		// left and right columns, excluding corners
+		for (int dz = -ring + 1; dz < ring; dz++) {
+			result[index++] = packCell(originX - ring, originZ + dz);
+			result[index++] = packCell(originX + ring, originZ + dz);
+		}
+
+		return result;
+	}
+
+
+	private static double distanceSquared(final Graveyard graveyard, final double x, final double y, final double z) {
+		double dx = graveyard.getX() - x;
+		double dy = graveyard.getY() - y;
+		double dz = graveyard.getZ() - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+
+	private static int toCell(final double coordinate) {
+		return (int) Math.floor(coordinate / CELL_SIZE);
+	}
+
+
+	private static long packCell(final int cellX, final int cellZ) {
+		return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+	}
+
+}
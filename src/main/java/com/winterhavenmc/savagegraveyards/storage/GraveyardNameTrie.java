@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Case-insensitive prefix trie of graveyard search keys, used for command tab completion.
+ * Matches are ranked with an exact match first, then shorter keys before longer keys,
+ * then alphabetically ignoring case.
+ */
+final class GraveyardNameTrie {
+
+	// root node, representing the empty prefix
+	private final Node root = new Node();
+
+	// lock guarding trie structure
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+
+	/**
+	 * Trie node. Children are held in character order, so that a breadth-first traversal
+	 * visits keys of each length in alphabetical order.
+	 */
+	private static final class Node {
+
+		// child nodes keyed by lower case character
+		private final TreeMap<Character, Node> children = new TreeMap<>();
+
+		// search key ending at this node, in original case; null if no key ends here
+		private String searchKey;
+	}
+
+
+	/**
+	 * Add a search key to the trie, replacing any key that differs only in case
+	 *
+	 * @param searchKey the search key to add
+	 */
+	void add(final String searchKey) {
+
+		if (searchKey == null) {
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			Node node = root;
+			for (char c : searchKey.toLowerCase().toCharArray()) {
+				node = node.children.computeIfAbsent(c, k -> new Node());
+			}
+			node.searchKey = searchKey;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Remove a search key from the trie, ignoring case
+	 *
+	 * @param searchKey the search key to remove
+	 */
+	void remove(final String searchKey) {
+
+		if (searchKey == null) {
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			String lowerKey = searchKey.toLowerCase();
+
+			// find node for key, recording path so that emptied nodes can be pruned
+			Deque<Node> path = new ArrayDeque<>();
+			Node node = root;
+			for (char c : lowerKey.toCharArray()) {
+				path.push(node);
+				node = node.children.get(c);
+				if (node == null) {
+					return;
+				}
+			}
+			node.searchKey = null;
+
+			// prune nodes that no longer lead to any key
+			for (int i = lowerKey.length() - 1; i >= 0 && node.searchKey == null && node.children.isEmpty(); i--) {
+				Node parent = path.pop();
+				parent.children.remove(lowerKey.charAt(i));
+				node = parent;
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Remove all search keys from the trie
+	 */
+	void clear() {
+		lock.writeLock().lock();
+		try {
+			root.children.clear();
+			root.searchKey = null;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Get search keys beginning with a prefix, ignoring case, in ranked order
+	 *
+	 * @param prefix the prefix to match
+	 * @return List of String - the matching search keys
+	 */
+	List<String> match(final String prefix) {
+
+		List<String> result = new ArrayList<>();
+
+		if (prefix == null) {
+			return result;
+		}
+
+		lock.readLock().lock();
+		try {
+			// find node for prefix
+			Node node = root;
+			for (char c : prefix.toLowerCase().toCharArray()) {
+				node = node.children.get(c);
+				if (node == null) {
+					return result;
+				}
+			}
+
+			// collect keys breadth-first, so that shorter keys precede longer keys
+			Deque<Node> queue = new ArrayDeque<>();
+			queue.add(node);
+			while (!queue.isEmpty()) {
+				Node current = queue.poll();
+				if (current.searchKey != null) {
+					result.add(current.searchKey);
+				}
+				queue.addAll(current.children.values());
+			}
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+
+		return result;
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import java.util.*;
+
+
+/**
+ * Immutable view of all graveyard records at a point in time, indexed by search key, by primary key,
+ * by world and by group.
+ * A new snapshot is built and published on each change to the set of graveyards, so that a snapshot
+ * may be read by any thread without locking, and is consistent with itself for as long as it is held.
+ */
+public final class GraveyardSnapshot {
+
+	// snapshot with no graveyards
+	final static GraveyardSnapshot EMPTY = new GraveyardSnapshot(Collections.emptyList());
+
+	// all graveyards, in alphabetical order of search key
+	private final List<Graveyard> graveyards;
+
+	// graveyards keyed by lower case search key
+	private final Map<String, Graveyard> searchKeyMap;
+
+	// graveyards keyed by primary key
+	private final Map<Integer, Graveyard> primaryKeyMap;
+
+	// graveyards of each world keyed by world uid, in alphabetical order of search key
+	private final Map<UUID, List<Graveyard>> worldMap;
+
+	// graveyards of each group keyed by lower case group name, in alphabetical order of search key
+	private final Map<String, List<Graveyard>> groupMap;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param graveyards the graveyard records
+	 */
+	private GraveyardSnapshot(final Collection<Graveyard> graveyards) {
+
+		List<Graveyard> sorted = new ArrayList<>(graveyards);
+		sorted.sort(Comparator.comparing(graveyard -> graveyard.getSearchKey().toLowerCase()));
+
+		Map<String, Graveyard> searchKeys = new HashMap<>();
+		Map<Integer, Graveyard> primaryKeys = new HashMap<>();
+		Map<UUID, List<Graveyard>> worlds = new HashMap<>();
+		Map<String, List<Graveyard>> groups = new HashMap<>();
+
+		for (Graveyard graveyard : sorted) {
+			searchKeys.put(graveyard.getSearchKey().toLowerCase(), graveyard);
+			primaryKeys.put(graveyard.getPrimaryKey(), graveyard);
+			if (graveyard.getWorldUid() != null) {
+				worlds.computeIfAbsent(graveyard.getWorldUid(), k -> new ArrayList<>()).add(graveyard);
+			}
+			if (graveyard.getGroup() != null && !graveyard.getGroup().isEmpty()) {
+				groups.computeIfAbsent(graveyard.getGroup().toLowerCase(), k -> new ArrayList<>()).add(graveyard);
+			}
+		}
+
+		this.graveyards = List.copyOf(sorted);
+		this.searchKeyMap = Map.copyOf(searchKeys);
+		this.primaryKeyMap = Map.copyOf(primaryKeys);
+		this.worldMap = copyOfLists(worlds);
+		this.groupMap = copyOfLists(groups);
+	}
+
+
+	/**
+	 * Create a snapshot of graveyard records
+	 *
+	 * @param graveyards the graveyard records
+	 * @return GraveyardSnapshot - an immutable snapshot of the records
+	 */
+	static GraveyardSnapshot of(final Collection<Graveyard> graveyards) {
+		return graveyards.isEmpty() ? EMPTY : new GraveyardSnapshot(graveyards);
+	}
+
+
+	/**
+	 * Copy a map of lists to an immutable map of immutable lists
+	 *
+	 * @param map the map of lists
+	 * @param <K> the map key type
+	 * @return the immutable copy
+	 */
+	private static <K> Map<K, List<Graveyard>> copyOfLists(final Map<K, List<Graveyard>> map) {
+		Map<K, List<Graveyard>> copy = new HashMap<>();
+		map.forEach((key, list) -> copy.put(key, List.copyOf(list)));
+		return Map.copyOf(copy);
+	}
+
+
+	/**
+	 * Get all graveyards
+	 *
+	 * @return unmodifiable List of Graveyard - all graveyards, in alphabetical order of search key
+	 */
+	public List<Graveyard> getGraveyards() {
+		return graveyards;
+	}
+
+
+	/**
+	 * Get a graveyard by display name or search key, ignoring case
+	 *
+	 * @param displayName the display name or search key
+	 * @return Optional of Graveyard - the graveyard, or an empty optional if not found
+	 */
+	public Optional<Graveyard> getGraveyard(final String displayName) {
+		if (displayName == null) {
+			return Optional.empty();
+		}
+		return Optional.ofNullable(searchKeyMap.get(Graveyard.createSearchKey(displayName).toLowerCase()));
+	}
+
+
+	/**
+	 * Get a graveyard by primary key
+	 *
+	 * @param primaryKey the primary key
+	 * @return Optional of Graveyard - the graveyard, or an empty optional if not found
+	 */
+	public Optional<Graveyard> getGraveyard(final int primaryKey) {
+		return Optional.ofNullable(primaryKeyMap.get(primaryKey));
+	}
+
+
+	/**
+	 * Get graveyards in a world
+	 *
+	 * @param worldUid the world unique id
+	 * @return unmodifiable List of Graveyard - graveyards in the world, in alphabetical order of search key
+	 */
+	public List<Graveyard> getGraveyardsInWorld(final UUID worldUid) {
+		return (worldUid == null) ? Collections.emptyList() : worldMap.getOrDefault(worldUid, Collections.emptyList());
+	}
+
+
+	/**
+	 * Get graveyards in a group, ignoring case
+	 *
+	 * @param group the group name
+	 * @return unmodifiable List of Graveyard - graveyards in the group, in alphabetical order of search key
+	 */
+	public List<Graveyard> getGraveyardsInGroup(final String group) {
+		return (group == null) ? Collections.emptyList() : groupMap.getOrDefault(group.toLowerCase(), Collections.emptyList());
+	}
+
+
+	/**
+	 * Get uids of worlds with graveyards
+	 *
+	 * @return unmodifiable Set of UUID - the world uids
+	 */
+	public Set<UUID> getWorldUids() {
+		return worldMap.keySet();
+	}
+
+
+	/**
+	 * Get names of groups with graveyards
+	 *
+	 * @return unmodifiable Set of String - the lower case group names
+	 */
+	public Set<String> getGroups() {
+		return groupMap.keySet();
+	}
+
+
+	/**
+	 * Get number of graveyards
+	 *
+	 * @return the number of graveyards
+	 */
+	public int size() {
+		return graveyards.size();
+	}
+
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Bounded pool of JDBC connections. Connections are opened on demand up to the pool size,
+ * validated when taken from the pool, and used by one thread at a time between
+ * {@link #acquire()} and {@link Lease#close()}.
+ */
+final class JdbcConnectionPool {
+
+	// time to wait for an available connection, in seconds
+	private final static long ACQUIRE_TIMEOUT = 10L;
+
+	// time to wait for a connection to be validated, in seconds
+	private final static int VALIDATION_TIMEOUT = 2;
+
+	// database url and credentials
+	private final String url;
+	private final String username;
+	private final String password;
+
+	// maximum number of open connections
+	private final int size;
+
+	// permits limiting the number of connections in use
+	private final Semaphore permits;
+
+	// idle connections, most recently returned first
+	private final Deque<Connection> idle = new ConcurrentLinkedDeque<>();
+
+	// number of open connections
+	private final AtomicInteger openCount = new AtomicInteger();
+
+	// true if pool has been closed
+	private volatile boolean closed;
+
+	// pool metrics
+	private final LongAdder acquireCount = new LongAdder();
+	private final LongAdder waitCount = new LongAdder();
+	private final LongAdder createCount = new LongAdder();
+	private final LongAdder discardCount = new LongAdder();
+
+
+	/**
+	 * A connection borrowed from the pool
+	 */
+	final class Lease implements AutoCloseable {
+
+		private final Connection connection;
+
+		private Lease(final Connection connection) {
+			this.connection = connection;
+		}
+
+		/**
+		 * Get the borrowed connection
+		 *
+		 * @return Connection - the connection
+		 */
+		Connection getConnection() {
+			return connection;
+		}
+
+		/**
+		 * Return connection to pool, discarding it if the pool is closed
+		 * or the connection was left in an unusable state
+		 */
+		@Override
+		public void close() {
+			try {
+				if (closed) {
+					discard(connection);
+					return;
+				}
+
+				// discard any uncommitted work and restore default commit mode
+				if (!connection.getAutoCommit()) {
+					connection.rollback();
+					connection.setAutoCommit(true);
+				}
+				idle.push(connection);
+			}
+			catch (SQLException e) {
+				discard(connection);
+			}
+			finally {
+				permits.release();
+			}
+		}
+	}
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param url the database url
+	 * @param username the database user name, or null if the url contains credentials
+	 * @param password the database password, or null if the url contains credentials
+	 * @param size the maximum number of open connections
+	 */
+	JdbcConnectionPool(final String url, final String username, final String password, final int size) {
+		this.url = url;
+		this.username = username;
+		this.password = password;
+		this.size = size;
+		this.permits = new Semaphore(size, true);
+	}
+
+
+	/**
+	 * Take a connection from the pool, opening a new connection if no idle connection is available,
+	 * and waiting if the pool is at its maximum size. The lease must be closed to return the connection,
+	 * typically with try-with-resources.
+	 *
+	 * @return Lease - a borrowed connection
+	 * @throws SQLException if the pool is closed, no connection became available or a connection could not be opened
+	 */
+	Lease acquire() throws SQLException {
+
+		if (closed) {
+			throw new SQLException("Connection pool is closed.");
+		}
+
+		// wait for a permit if all connections are in use
+		if (!permits.tryAcquire()) {
+			waitCount.increment();
+			try {
+				if (!permits.tryAcquire(ACQUIRE_TIMEOUT, TimeUnit.SECONDS)) {
+					throw new SQLException("Timed out waiting for a database connection.");
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting for a database connection.", e);
+			}
+		}
+
+		try {
+			acquireCount.increment();
+
+			// use most recently returned idle connection that is still valid
+			Connection connection;
+			while ((connection = idle.poll()) != null) {
+				if (connection.isValid(VALIDATION_TIMEOUT)) {
+					return new Lease(connection);
+				}
+				discard(connection);
+			}
+
+			// no idle connection available; open new connection
+			return new Lease(open());
+		}
+		catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Open a new connection
+	 *
+	 * @return Connection - the new connection
+	 * @throws SQLException if the connection could not be opened
+	 */
+	private Connection open() throws SQLException {
+
+		Connection connection = (username == null || username.isEmpty())
+				? DriverManager.getConnection(url)
+				: DriverManager.getConnection(url, username, password);
+
+		openCount.incrementAndGet();
+		createCount.increment();
+		return connection;
+	}
+
+
+	/**
+	 * Close a connection and remove it from the open connection count
+	 *
+	 * @param connection the connection to discard
+	 */
+	private void discard(final Connection connection) {
+		openCount.decrementAndGet();
+		discardCount.increment();
+		try {
+			connection.close();
+		}
+		catch (SQLException e) {
+			// connection is discarded regardless
+		}
+	}
+
+
+	/**
+	 * Close all idle connections. Connections in use are closed when returned.
+	 */
+	void close() {
+		closed = true;
+		Connection connection;
+		while ((connection = idle.poll()) != null) {
+			discard(connection);
+		}
+	}
+
+
+	/**
+	 * Get maximum number of open connections
+	 *
+	 * @return the pool size
+	 */
+	int size() {
+		return size;
+	}
+
+
+	/**
+	 * Get number of open connections
+	 *
+	 * @return the number of connections open, in use or idle
+	 */
+	int getOpenCount() {
+		return openCount.get();
+	}
+
+
+	/**
+	 * Get number of connections in use
+	 *
+	 * @return the number of connections borrowed and not yet returned
+	 */
+	int getActiveCount() {
+		return size - permits.availablePermits();
+	}
+
+
+	/**
+	 * Get number of connections borrowed from the pool
+	 *
+	 * @return the number of acquisitions
+	 */
+	long getAcquireCount() {
+		return acquireCount.sum();
+	}
+
+
+	/**
+	 * Get number of acquisitions that waited for a connection to be returned
+	 *
+	 * @return the number of waits
+	 */
+	long getWaitCount() {
+		return waitCount.sum();
+	}
+
+
+	/**
+	 * Get number of connections opened
+	 *
+	 * @return the number of connections created
+	 */
+	long getCreateCount() {
+		return createCount.sum();
+	}
+
+
+	/**
+	 * Get number of connections closed, including connections that failed validation
+	 *
+	 * @return the number of connections discarded
+	 */
+	long getDiscardCount() {
+		return discardCount.sum();
+	}
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Latency histogram of a datastore operation, tagged with the key of the query the operation runs.
+ * Latencies are counted in logarithmic buckets, four to each power of two, so that recording is lock-free
+ * and allocation-free, and percentiles are reported within 25% of the recorded latency.
+ */
+public final class LatencyHistogram {
+
+	// number of sub-buckets to each power of two, as a power of two
+	private final static int SUB_BUCKET_BITS = 2;
+
+	// number of sub-buckets to each power of two
+	private final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// number of buckets, covering all positive long values
+	private final static int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	// name of the datastore operation
+	private final String operation;
+
+	// key of the query run by the operation
+	private final String queryKey;
+
+	// counts of latencies in each bucket
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	// count of operations that failed
+	private final LongAdder errorCount = new LongAdder();
+
+	// maximum recorded latency, in nanoseconds
+	private final AtomicLong max = new AtomicLong();
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param operation the name of the datastore operation
+	 * @param queryKey the key of the query run by the operation
+	 */
+	LatencyHistogram(final String operation, final String queryKey) {
+		this.operation = operation;
+		this.queryKey = queryKey;
+	}
+
+
+	/**
+	 * Record the latency of an operation
+	 *
+	 * @param nanos the latency in nanoseconds
+	 * @param failed true if the operation failed
+	 */
+	void record(final long nanos, final boolean failed) {
+
+		final long latency = Math.max(1L, nanos);
+
+		buckets.incrementAndGet(bucketIndex(latency));
+
+		if (latency > max.get()) {
+			max.accumulateAndGet(latency, Math::max);
+		}
+
+		if (failed) {
+			errorCount.increment();
+		}
+	}
+
+
+	/**
+	 * Reset all counts to zero
+	 */
+	void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0L);
+		}
+		errorCount.reset();
+		max.set(0L);
+	}
+
+
+	/**
+	 * Get the name of the datastore operation
+	 *
+	 * @return the operation name
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+
+	/**
+	 * Get the key of the query run by the operation
+	 *
+	 * @return the query key
+	 */
+	public String getQueryKey() {
+		return queryKey;
+	}
+
+
+	/**
+	 * Get count of recorded operations
+	 *
+	 * @return the count of operations
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			count += buckets.get(i);
+		}
+		return count;
+	}
+
+
+	/**
+	 * Get count of recorded operations that failed
+	 *
+	 * @return the count of failed operations
+	 */
+	public long getErrorCount() {
+		return errorCount.sum();
+	}
+
+
+	/**
+	 * Get maximum recorded latency
+	 *
+	 * @return the maximum latency in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+
+	/**
+	 * Get a latency percentile, as the upper bound of the bucket containing it
+	 *
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the latency in nanoseconds, or zero if no operations are recorded
+	 */
+	public long getPercentile(final double percentile) {
+
+		// copy bucket counts, so that percentile is taken from a single set of counts
+		long[] counts = new long[BUCKET_COUNT];
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+
+		if (total == 0) {
+			return 0L;
+		}
+
+		// find bucket containing the rank of the percentile
+		long rank = Math.max(1L, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+		long cumulative = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			cumulative += counts[i];
+			if (cumulative >= rank) {
+				return Math.min(bucketUpperBound(i), Math.max(getMax(), 1L));
+			}
+		}
+
+		return getMax();
+	}
+
+
+	/**
+	 * Get index of the bucket for a latency
+	 *
+	 * @param latency the latency in nanoseconds, greater than zero
+	 * @return the bucket index
+	 */
+	static int bucketIndex(final long latency) {
+
+		// latencies below the first full power of two each have their own bucket
+		if (latency < SUB_BUCKETS) {
+			return (int) latency;
+		}
+
+		// select power of two by highest bit, and sub-bucket by the bits following it
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(latency);
+		int subBucket = (int) (latency >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+
+	/**
+	 * Get the largest latency counted in a bucket
+	 *
+	 * @param index the bucket index
+	 * @return the upper bound of the bucket in nanoseconds
+	 */
+	static long bucketUpperBound(final int index) {
+
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int shift = index / SUB_BUCKETS - 1;
+		long next = (long) (SUB_BUCKETS + index % SUB_BUCKETS + 1) << shift;
+
+		// the last bucket extends to the largest long value
+		return (next <= 0) ? Long.MAX_VALUE : next - 1;
+	}
+
+}
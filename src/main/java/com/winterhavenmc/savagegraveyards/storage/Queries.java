@@ -20,16 +20,23 @@ package com.winterhavenmc.savagegraveyards.storage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.SQLException;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Fetch database queries from properties file
+ * Fetch database queries from properties files. SQLite queries are read from queries.properties.
+ * Queries for other databases are read from queries-jdbc.properties, overridden by any query of the
+ * same name in a dialect file named for the jdbc subprotocol, such as queries-mysql.properties.
  */
 final class Queries {
 
 	private static final String propFileName = "queries.properties";
 
-	private static Properties properties;
+	private static final String jdbcPropFileName = "queries-jdbc.properties";
+
+	// map of loaded properties keyed by file name
+	private static final Map<String, Properties> propertiesMap = new ConcurrentHashMap<>();
 
 
 	/**
@@ -39,30 +46,41 @@ final class Queries {
 		throw new AssertionError();
 	}
 
-	private static Properties getQueries() throws SQLException {
+	private static Properties getQueries(final String fileName, final boolean required) throws SQLException {
 
-		// singleton
-		if (properties == null) {
-			properties = new Properties();
-			try {
+		// return previously loaded properties
+		Properties properties = propertiesMap.get(fileName);
+		if (properties != null) {
+			return properties;
+		}
 
-				InputStream inputStream = Queries.class.getResourceAsStream("/" + propFileName);
+		properties = new Properties();
+		try (InputStream inputStream = Queries.class.getResourceAsStream("/" + fileName)) {
 
-				if (inputStream == null) {
-					throw new SQLException("Unable to load property file: " + propFileName);
+			if (inputStream == null) {
+				if (required) {
+					throw new SQLException("Unable to load property file: " + fileName);
 				}
-				properties.load(inputStream);
 			}
-			catch (IOException e) {
-				throw new SQLException("Unable to load property file: " + propFileName);
+			else {
+				properties.load(inputStream);
 			}
 		}
+		catch (IOException e) {
+			throw new SQLException("Unable to load property file: " + fileName);
+		}
 
+		propertiesMap.put(fileName, properties);
 		return properties;
 	}
 
 	static String getQuery(final String query) throws SQLException {
-		return getQueries().getProperty(query);
+		return getQueries(propFileName, true).getProperty(query);
+	}
+
+	static String getQuery(final String dialect, final String query) throws SQLException {
+		String dialectQuery = getQueries("queries-" + dialect + ".properties", false).getProperty(query);
+		return (dialectQuery != null) ? dialectQuery : getQueries(jdbcPropFileName, true).getProperty(query);
 	}
 
 }
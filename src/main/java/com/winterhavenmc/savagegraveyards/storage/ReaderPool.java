@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Fixed-size pool of read-only database connections. Each connection has its own
+ * prepared statement cache, and is used by one thread at a time between
+ * {@link #acquire()} and {@link Reader#close()}.
+ */
+final class ReaderPool {
+
+	// time to wait for an available reader, in seconds
+	private final static long ACQUIRE_TIMEOUT = 10L;
+
+	// all readers in pool
+	private final List<Reader> readers = new ArrayList<>();
+
+	// readers available for use
+	private final BlockingQueue<Reader> available;
+
+	// true if pool has been closed
+	private volatile boolean closed;
+
+
+	/**
+	 * A pooled read-only connection and its prepared statement cache
+	 */
+	final class Reader implements AutoCloseable {
+
+		private final Connection connection;
+		private final StatementCache statementCache;
+
+		private Reader(final Connection connection, final SlowQueryLog slowQueryLog) {
+			this.connection = connection;
+			this.statementCache = new StatementCache(connection, slowQueryLog);
+		}
+
+		/**
+		 * Get prepared statement for a named query on this reader's connection
+		 *
+		 * @param queryName the name of the query in the queries properties file
+		 * @return PreparedStatement - the prepared statement for the query
+		 * @throws SQLException if the query does not exist or the statement could not be prepared
+		 */
+		PreparedStatement get(final String queryName) throws SQLException {
+			return statementCache.get(queryName);
+		}
+
+		/**
+		 * Return reader to pool
+		 */
+		@Override
+		public void close() {
+			if (closed) {
+				closeConnection();
+			}
+			else {
+				available.offer(this);
+			}
+		}
+
+		private void closeConnection() {
+			statementCache.close();
+			try {
+				connection.close();
+			}
+			catch (SQLException e) {
+				// connection is discarded regardless
+			}
+		}
+	}
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param dbUrl the database url
+	 * @param profile the connection pragma profile
+	 * @param size the number of reader connections
+	 * @param slowQueryLog the log of slow statement executions, or null if not logged
+	 * @throws SQLException if a connection could not be opened
+	 */
+	ReaderPool(final String dbUrl, final StorageProfile profile, final int size,
+	           final SlowQueryLog slowQueryLog) throws SQLException {
+
+		this.available = new ArrayBlockingQueue<>(size);
+
+		try {
+			for (int i = 0; i < size; i++) {
+
+				Connection connection = DriverManager.getConnection(dbUrl);
+				Reader reader = new Reader(connection, slowQueryLog);
+				readers.add(reader);
+
+				// apply pragma profile, then disallow writes on connection
+				profile.apply(connection);
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("PRAGMA query_only = ON");
+				}
+
+				available.add(reader);
+			}
+		}
+		catch (SQLException e) {
+			closed = true;
+			readers.forEach(Reader::closeConnection);
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Take a reader from the pool, waiting if none is available. The reader must be
+	 * returned by calling its close method, typically with try-with-resources.
+	 *
+	 * @return Reader - a pooled reader
+	 * @throws SQLException if the pool is closed or no reader became available
+	 */
+	Reader acquire() throws SQLException {
+
+		if (closed) {
+			throw new SQLException("Reader pool is closed.");
+		}
+
+		try {
+			Reader reader = available.poll(ACQUIRE_TIMEOUT, TimeUnit.SECONDS);
+			if (reader == null) {
+				throw new SQLException("Timed out waiting for a reader connection.");
+			}
+			return reader;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a reader connection.", e);
+		}
+	}
+
+
+	/**
+	 * Close all reader connections. Readers in use are closed when returned.
+	 */
+	void close() {
+		closed = true;
+		Reader reader;
+		while ((reader = available.poll()) != null) {
+			reader.closeConnection();
+		}
+	}
+
+
+	/**
+	 * Get number of reader connections
+	 *
+	 * @return the number of connections in the pool
+	 */
+	int size() {
+		return readers.size();
+	}
+
+
+	/**
+	 * Get count of statements returned from reader statement caches
+	 *
+	 * @return the number of cache hits
+	 */
+	long getHitCount() {
+		return readers.stream().mapToLong(reader -> reader.statementCache.getHitCount()).sum();
+	}
+
+
+	/**
+	 * Get count of statements prepared by reader statement caches
+	 *
+	 * @return the number of statements prepared
+	 */
+	long getPrepareCount() {
+		return readers.stream().mapToLong(reader -> reader.statementCache.getPrepareCount()).sum();
+	}
+
+}
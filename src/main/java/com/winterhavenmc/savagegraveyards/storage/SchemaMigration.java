@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * Ordered migrations of the SQLite database schema. The schema version is stored in the database
+ * as {@code PRAGMA user_version}; each migration upgrades the schema from the previous version to its own,
+ * and runs in a single transaction together with the version update, so that a failed migration
+ * leaves the database at the previous version. Migrations use their own copies of any queries
+ * whose current version differs from the schema they were written for.
+ */
+enum SchemaMigration {
+
+	/**
+	 * Create tables; or convert tables of the original schema, which stored world names without world uids,
+	 * graveyard keys as 'Id' and player uids as strings
+	 */
+	V1(1) {
+		@Override
+		void migrate(final JavaPlugin plugin, final Connection connection) throws SQLException {
+
+			try (Statement statement = connection.createStatement()) {
+
+				// if tables do not exist, create them
+				if (!tableExists(connection)) {
+					statement.executeUpdate(Queries.getQuery("CreateGraveyardsTable"));
+					statement.executeUpdate(Queries.getQuery("MigrateV1CreateDiscoveredTable"));
+					return;
+				}
+
+				// move original tables aside and create tables with new schema
+				statement.executeUpdate(Queries.getQuery("MigrateV1RenameDiscovered"));
+				statement.executeUpdate(Queries.getQuery("MigrateV1RenameGraveyards"));
+				statement.executeUpdate(Queries.getQuery("CreateGraveyardsTable"));
+				statement.executeUpdate(Queries.getQuery("MigrateV1CreateDiscoveredTable"));
+
+				// get world names of original records
+				List<String> worldNames = new ArrayList<>();
+				try (ResultSet rs = statement.executeQuery(Queries.getQuery("MigrateV1SelectWorldNames"))) {
+					while (rs.next()) {
+						worldNames.add(rs.getString(1));
+					}
+				}
+
+				// copy graveyard records of each world, keeping primary keys, with uid of world
+				int graveyardCount = 0;
+				try (PreparedStatement preparedStatement = connection.prepareStatement(Queries.getQuery("MigrateV1CopyGraveyards"))) {
+					for (String worldName : worldNames) {
+
+						World world = (worldName == null) ? null : plugin.getServer().getWorld(worldName);
+						UUID worldUid = (world == null) ? new UUID(0, 0) : world.getUID();
+						if (world == null) {
+							plugin.getLogger().warning("Stored record has invalid world: " + worldName);
+						}
+
+						preparedStatement.setLong(1, worldUid.getMostSignificantBits());
+						preparedStatement.setLong(2, worldUid.getLeastSignificantBits());
+						preparedStatement.setString(3, worldName);
+						graveyardCount += preparedStatement.executeUpdate();
+					}
+				}
+
+				// copy discovery records, converting player uid strings to components
+				int discoveryCount = 0;
+				try (PreparedStatement preparedStatement = connection.prepareStatement(Queries.getQuery("MigrateV1InsertDiscovery"));
+				     ResultSet rs = statement.executeQuery(Queries.getQuery("MigrateV1SelectDiscoveries"))) {
+					while (rs.next()) {
+
+						UUID playerUid;
+						try {
+							playerUid = UUID.fromString(rs.getString("PlayerUuid"));
+						}
+						catch (IllegalArgumentException | NullPointerException e) {
+							plugin.getLogger().warning("A record in the Discovered table " +
+									"has an invalid UUID! Skipping record.");
+							continue;
+						}
+
+						preparedStatement.setLong(1, playerUid.getMostSignificantBits());
+						preparedStatement.setLong(2, playerUid.getLeastSignificantBits());
+						preparedStatement.setInt(3, rs.getInt("SpawnId"));
+						discoveryCount += preparedStatement.executeUpdate();
+					}
+				}
+
+				// drop original tables
+				statement.executeUpdate(Queries.getQuery("MigrateV1DropDiscovered"));
+				statement.executeUpdate(Queries.getQuery("MigrateV1DropGraveyards"));
+
+				plugin.getLogger().info(graveyardCount + " graveyard records migrated to schema v1.");
+				plugin.getLogger().info(discoveryCount + " discovery records migrated to schema v1.");
+			}
+		}
+	},
+
+	/**
+	 * Create case-insensitive search key index and world index
+	 */
+	V2(2) {
+		@Override
+		void migrate(final JavaPlugin plugin, final Connection connection) throws SQLException {
+			try (Statement statement = connection.createStatement()) {
+				statement.executeUpdate(Queries.getQuery("CreateGraveyardsSearchKeyIndex"));
+				statement.executeUpdate(Queries.getQuery("CreateGraveyardsWorldIndex"));
+			}
+		}
+	},
+
+	/**
+	 * Create player-leading discovered index
+	 */
+	V3(3) {
+		@Override
+		void migrate(final JavaPlugin plugin, final Connection connection) throws SQLException {
+			try (Statement statement = connection.createStatement()) {
+				statement.executeUpdate(Queries.getQuery("MigrateV3CreateDiscoveredPlayerIndex"));
+			}
+		}
+	},
+
+	/**
+	 * Create discovery bitmaps table, used by the bitmap discovery storage mode
+	 */
+	V4(4) {
+		@Override
+		void migrate(final JavaPlugin plugin, final Connection connection) throws SQLException {
+			try (Statement statement = connection.createStatement()) {
+				statement.executeUpdate(Queries.getQuery("MigrateV4CreateDiscoveryBitmapsTable"));
+			}
+		}
+	},
+
+	/**
+	 * Create players table mapping player uids to integer ids, and key discovery records by player id
+	 */
+	V5(5) {
+		@Override
+		void migrate(final JavaPlugin plugin, final Connection connection) throws SQLException {
+			try (Statement statement = connection.createStatement()) {
+
+				// move discovery tables aside; index is dropped so that its name can be reused
+				statement.executeUpdate(Queries.getQuery("MigrateV5RenameDiscovered"));
+				statement.executeUpdate(Queries.getQuery("MigrateV5RenameDiscoveryBitmaps"));
+				statement.executeUpdate(Queries.getQuery("MigrateV5DropDiscoveredPlayerIndex"));
+
+				// assign an id to each player with stored discoveries
+				statement.executeUpdate(Queries.getQuery("CreatePlayersTable"));
+				int playerCount = statement.executeUpdate(Queries.getQuery("MigrateV5InsertPlayers"));
+
+				// copy discovery records keyed by player id
+				statement.executeUpdate(Queries.getQuery("CreateDiscoveredTable"));
+				statement.executeUpdate(Queries.getQuery("CreateDiscoveryBitmapsTable"));
+				int discoveryCount = statement.executeUpdate(Queries.getQuery("MigrateV5CopyDiscovered"));
+				statement.executeUpdate(Queries.getQuery("MigrateV5CopyDiscoveryBitmaps"));
+				statement.executeUpdate(Queries.getQuery("MigrateV5DropDiscovered"));
+				statement.executeUpdate(Queries.getQuery("MigrateV5DropDiscoveryBitmaps"));
+				statement.executeUpdate(Queries.getQuery("CreateDiscoveredPlayerIndex"));
+
+				if (playerCount > 0) {
+					plugin.getLogger().info(discoveryCount + " discovery records of " + playerCount
+							+ " players migrated to schema v5.");
+				}
+			}
+		}
+	};
+
+	// schema version after this migration
+	private final int version;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param version the schema version after this migration
+	 */
+	SchemaMigration(final int version) {
+		this.version = version;
+	}
+
+
+	/**
+	 * Upgrade schema from the previous version to the version of this migration.
+	 * Called within a transaction, which must not be committed or rolled back by the migration.
+	 *
+	 * @param plugin reference to main class
+	 * @param connection the database connection
+	 * @throws SQLException if the migration failed
+	 */
+	abstract void migrate(final JavaPlugin plugin, final Connection connection) throws SQLException;
+
+
+	/**
+	 * Get schema version after this migration
+	 *
+	 * @return the schema version
+	 */
+	int getVersion() {
+		return version;
+	}
+
+
+	/**
+	 * Get current schema version, after all migrations
+	 *
+	 * @return the current schema version
+	 */
+	static int getLatestVersion() {
+		return values()[values().length - 1].getVersion();
+	}
+
+
+	/**
+	 * Run all migrations newer than the schema version of the database, in order, each in its own transaction.
+	 * If the database is at the current schema version, only the version is read.
+	 *
+	 * @param plugin reference to main class
+	 * @param connection the database connection, in auto-commit mode
+	 * @return the schema version of the database after migration
+	 * @throws SQLException if the schema version could not be read, or a migration failed;
+	 *                      the database remains at the version of the last successful migration
+	 */
+	static int migrateAll(final JavaPlugin plugin, final Connection connection) throws SQLException {
+
+		int schemaVersion = getSchemaVersion(connection);
+		if (plugin.getConfig().getBoolean("debug")) {
+			plugin.getLogger().info("Read schema version: " + schemaVersion);
+		}
+
+		if (schemaVersion > getLatestVersion()) {
+			plugin.getLogger().warning("Database schema version " + schemaVersion
+					+ " is newer than the supported version " + getLatestVersion() + ".");
+		}
+
+		for (SchemaMigration migration : values()) {
+
+			// skip migrations already applied
+			if (migration.getVersion() <= schemaVersion) {
+				continue;
+			}
+
+			connection.setAutoCommit(false);
+			try {
+				migration.migrate(plugin, connection);
+				try (Statement statement = connection.createStatement()) {
+					statement.executeUpdate("PRAGMA user_version = " + migration.getVersion());
+				}
+				connection.commit();
+			}
+			catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				plugin.getLogger().warning("Migration to database schema v" + migration.getVersion()
+						+ " failed; the database remains at schema v" + schemaVersion + ".");
+				throw e;
+			}
+			finally {
+				connection.setAutoCommit(true);
+			}
+
+			schemaVersion = migration.getVersion();
+			if (plugin.getConfig().getBoolean("debug")) {
+				plugin.getLogger().info("Database schema migrated to v" + schemaVersion + ".");
+			}
+		}
+
+		return schemaVersion;
+	}
+
+
+	/**
+	 * Read schema version from database
+	 *
+	 * @param connection the database connection
+	 * @return the schema version
+	 * @throws SQLException if the schema version could not be read
+	 */
+	private static int getSchemaVersion(final Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+		     ResultSet rs = statement.executeQuery(Queries.getQuery("GetUserVersion"))) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+
+	/**
+	 * Test for existence of graveyards table
+	 *
+	 * @param connection the database connection
+	 * @return boolean {@code true} if table exists, {@code false} if not
+	 * @throws SQLException on sql error
+	 */
+	private static boolean tableExists(final Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+		     ResultSet rs = statement.executeQuery(Queries.getQuery("SelectGraveyardsTable"))) {
+			return rs.next();
+		}
+	}
+
+}
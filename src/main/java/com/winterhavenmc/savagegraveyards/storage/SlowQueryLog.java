@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+
+/**
+ * Log of SQLite statements that take longer than a threshold to execute. Statements prepared through
+ * a statement cache are wrapped to record their bound parameters and time their execution; a query is timed
+ * until its result set is exhausted or closed, since SQLite runs a query as its rows are read, counting only
+ * time spent in calls on the result set, so that work done by the caller between rows is not charged to the
+ * query. A slow execution
+ * is logged with its query key, parameters and elapsed time, along with the query plan the first time
+ * each query key is logged. Entries are written to a rotating log file, and query plans read on a dedicated
+ * read-only connection, on a single background thread, so that no file or plan i/o is added to the caller.
+ */
+final class SlowQueryLog {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+	// database url, for the connection query plans are read on
+	private final String dbUrl;
+
+	// execution time above which statements are logged, in nanoseconds
+	private final long thresholdNanos;
+
+	// rotating log file handler
+	private final FileHandler fileHandler;
+
+	// thread on which entries are written
+	private final ExecutorService executor;
+
+	// keys of queries whose plan has been logged
+	private final Set<String> explainedKeys = ConcurrentHashMap.newKeySet();
+
+	// count of statements logged
+	private final LongAdder slowCount = new LongAdder();
+
+	// read-only connection for query plans, opened on first use by the log thread
+	private Connection explainConnection;
+
+	// log file name pattern, size limit in bytes and number of files kept
+	private final static String FILE_PATTERN = "slow-queries.%g.log";
+	private final static int FILE_LIMIT = 1024 * 1024;
+	private final static int FILE_COUNT = 3;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 * @param dbUrl the database url
+	 * @param thresholdMillis execution time above which statements are logged, in milliseconds
+	 * @throws IOException if the log file could not be opened
+	 */
+	SlowQueryLog(final JavaPlugin plugin, final String dbUrl, final long thresholdMillis) throws IOException {
+		this.plugin = plugin;
+		this.dbUrl = dbUrl;
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.fileHandler = new FileHandler(plugin.getDataFolder() + File.separator + FILE_PATTERN,
+				FILE_LIMIT, FILE_COUNT, true);
+		this.fileHandler.setFormatter(new Formatter() {
+			@Override
+			public String format(final LogRecord record) {
+				return String.format("%1$tF %1$tT %2$s%n", record.getMillis(), record.getMessage());
+			}
+		});
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, plugin.getName() + "-slow-query-log");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	}
+
+
+	/**
+	 * Wrap a prepared statement, so that its executions are timed and slow executions logged.
+	 * The returned statement is used in the same way as the statement it wraps.
+	 *
+	 * @param queryKey the key of the statement query in the queries properties file
+	 * @param statement the prepared statement
+	 * @return PreparedStatement - the wrapped statement
+	 */
+	PreparedStatement wrap(final String queryKey, final PreparedStatement statement) {
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new TimedStatement(queryKey, statement));
+	}
+
+
+	/**
+	 * Get count of statements logged
+	 *
+	 * @return the number of slow statements logged
+	 */
+	long getSlowCount() {
+		return slowCount.sum();
+	}
+
+
+	/**
+	 * Write pending entries and close the log file and plan connection
+	 */
+	void close() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(10L, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (explainConnection != null) {
+			try {
+				explainConnection.close();
+			}
+			catch (SQLException e) {
+				// connection is discarded regardless
+			}
+		}
+		fileHandler.close();
+	}
+
+
+	/**
+	 * Submit a slow execution to be logged
+	 *
+	 * @param queryKey the query key
+	 * @param parameters the bound parameters, indexed from one
+	 * @param batchSize the number of parameter sets in an executed batch, or zero
+	 * @param elapsed the execution time in nanoseconds
+	 */
+	private void submit(final String queryKey, final Object[] parameters, final int batchSize, final long elapsed) {
+		slowCount.increment();
+		try {
+			executor.execute(() -> write(queryKey, parameters, batchSize, elapsed));
+		}
+		catch (RejectedExecutionException e) {
+			// log is closed
+		}
+	}
+
+
+	/**
+	 * Submit an execution to be logged if it took longer than the threshold
+	 *
+	 * @param queryKey the query key
+	 * @param parameters the bound parameters, indexed from one
+	 * @param batchSize the number of parameter sets in an executed batch, or zero
+	 * @param elapsed the execution time in nanoseconds
+	 */
+	private void record(final String queryKey, final Object[] parameters, final int batchSize, final long elapsed) {
+		if (elapsed > thresholdNanos) {
+			submit(queryKey, parameters, batchSize, elapsed);
+		}
+	}
+
+
+	/**
+	 * Write a slow execution to the log file, with the query plan if not yet logged for the query key
+	 *
+	 * @param queryKey the query key
+	 * @param parameters the bound parameters, indexed from one
+	 * @param batchSize the number of parameter sets in an executed batch, or zero
+	 * @param elapsed the execution time in nanoseconds
+	 */
+	private void write(final String queryKey, final Object[] parameters, final int batchSize, final long elapsed) {
+
+		StringBuilder entry = new StringBuilder(String.format("%s took %.3f ms; parameters %s",
+				queryKey, elapsed / 1_000_000.0, formatParameters(parameters)));
+
+		if (batchSize > 0) {
+			entry.append(" (last of batch of ").append(batchSize).append(")");
+		}
+
+		if (explainedKeys.add(queryKey)) {
+			entry.append(System.lineSeparator()).append(explain(queryKey, parameters));
+		}
+
+		fileHandler.publish(new LogRecord(Level.WARNING, entry.toString()));
+		fileHandler.flush();
+	}
+
+
+	/**
+	 * Read the query plan of a query with the given parameters
+	 *
+	 * @param queryKey the query key
+	 * @param parameters the bound parameters, indexed from one
+	 * @return String - the query plan, one step to a line
+	 */
+	private String explain(final String queryKey, final Object[] parameters) {
+
+		StringBuilder plan = new StringBuilder("  query plan:");
+
+		try {
+			if (explainConnection == null) {
+				explainConnection = DriverManager.getConnection(dbUrl);
+				try (Statement statement = explainConnection.createStatement()) {
+					statement.execute("PRAGMA query_only = ON");
+				}
+			}
+
+			try (PreparedStatement statement = explainConnection.prepareStatement("EXPLAIN QUERY PLAN "
+					+ Queries.getQuery(queryKey))) {
+
+				for (int i = 1; i < parameters.length; i++) {
+					statement.setObject(i, parameters[i]);
+				}
+
+				int steps = 0;
+				try (ResultSet rs = statement.executeQuery()) {
+					while (rs.next()) {
+						plan.append(System.lineSeparator()).append("    ").append(rs.getString("detail"));
+						steps++;
+					}
+				}
+				if (steps == 0) {
+					plan.append(" no table access");
+				}
+			}
+		}
+		catch (SQLException e) {
+			plan.append(" unavailable: ").append(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+
+		return plan.toString();
+	}
+
+
+	/**
+	 * Format bound parameters for the log
+	 *
+	 * @param parameters the bound parameters, indexed from one
+	 * @return String - the formatted parameters
+	 */
+	private static String formatParameters(final Object[] parameters) {
+
+		StringBuilder builder = new StringBuilder("[");
+
+		for (int i = 1; i < parameters.length; i++) {
+			if (i > 1) {
+				builder.append(", ");
+			}
+			Object value = parameters[i];
+			if (value instanceof String) {
+				builder.append('\'').append(value).append('\'');
+			}
+			else if (value instanceof byte[]) {
+				builder.append("<").append(((byte[]) value).length).append(" bytes>");
+			}
+			else {
+				builder.append(value);
+			}
+		}
+
+		return builder.append("]").toString();
+	}
+
+
+	/**
+	 * Invocation handler of a wrapped statement, recording bound parameters and timing executions.
+	 * Statements are used by one thread at a time, as required by the statement cache.
+	 */
+	private final class TimedStatement implements InvocationHandler {
+
+		private final String queryKey;
+		private final PreparedStatement statement;
+
+		// bound parameters, indexed from one
+		private Object[] parameters = new Object[1];
+
+		// number of parameter sets added to the current batch
+		private int batchSize;
+
+		private TimedStatement(final String queryKey, final PreparedStatement statement) {
+			this.queryKey = queryKey;
+			this.statement = statement;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+
+			final String name = method.getName();
+
+			// record parameter bound by setter
+			if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+				int index = (Integer) args[0];
+				if (index >= parameters.length) {
+					parameters = Arrays.copyOf(parameters, index + 1);
+				}
+				parameters[index] = name.equals("setNull") ? null : args[1];
+			}
+			else if (name.equals("clearParameters")) {
+				Arrays.fill(parameters, null);
+			}
+			else if (name.equals("addBatch") && args == null) {
+				batchSize++;
+			}
+			else if (name.equals("clearBatch")) {
+				batchSize = 0;
+			}
+
+			// time statement executions; a query is timed until its result set is exhausted or closed
+			if (name.startsWith("execute") && args == null) {
+				final long start = System.nanoTime();
+				final Object[] executed = parameters.clone();
+				final int executedBatch = name.equals("executeBatch") ? batchSize : 0;
+				if (name.equals("executeBatch")) {
+					batchSize = 0;
+				}
+				Object result;
+				try {
+					result = invokeStatement(method, null);
+				}
+				catch (Throwable e) {
+					record(queryKey, executed, executedBatch, System.nanoTime() - start);
+					throw e;
+				}
+				final long elapsed = System.nanoTime() - start;
+				if (result instanceof ResultSet) {
+					return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+							new TimedResultSet((ResultSet) result, (PreparedStatement) proxy, queryKey, executed, elapsed));
+				}
+				record(queryKey, executed, executedBatch, elapsed);
+				return result;
+			}
+
+			// identity methods refer to the proxy, so that callers may synchronize on and compare it
+			if (name.equals("equals") && args != null && args.length == 1) {
+				return proxy == args[0];
+			}
+			if (name.equals("hashCode") && args == null) {
+				return System.identityHashCode(proxy);
+			}
+
+			return invokeStatement(method, args);
+		}
+
+		private Object invokeStatement(final Method method, final Object[] args) throws Throwable {
+			try {
+				return method.invoke(statement, args);
+			}
+			catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+
+	/**
+	 * Invocation handler of a result set returned by a wrapped statement, timing its query until
+	 * the result set is exhausted or closed. Only time spent in calls on the result set is counted.
+	 */
+	private final class TimedResultSet implements InvocationHandler {
+
+		private final ResultSet resultSet;
+		private final PreparedStatement statement;
+		private final String queryKey;
+		private final Object[] parameters;
+
+		// time spent executing the query and in calls on the result set, in nanoseconds
+		private long elapsed;
+
+		// true once the query has been timed
+		private boolean finished;
+
+		private TimedResultSet(final ResultSet resultSet, final PreparedStatement statement, final String queryKey,
+		                       final Object[] parameters, final long elapsed) {
+			this.resultSet = resultSet;
+			this.statement = statement;
+			this.queryKey = queryKey;
+			this.parameters = parameters;
+			this.elapsed = elapsed;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+
+			final String name = method.getName();
+
+			// result set refers to the wrapped statement, and identity methods to the proxy
+			if (name.equals("getStatement") && args == null) {
+				return statement;
+			}
+			if (name.equals("equals") && args != null && args.length == 1) {
+				return proxy == args[0];
+			}
+			if (name.equals("hashCode") && args == null) {
+				return System.identityHashCode(proxy);
+			}
+
+			boolean last = name.equals("close");
+			final long start = System.nanoTime();
+			try {
+				Object result = method.invoke(resultSet, args);
+				if (name.equals("next") && Boolean.FALSE.equals(result)) {
+					last = true;
+				}
+				return result;
+			}
+			catch (InvocationTargetException e) {
+				last = last || name.equals("next");
+				throw e.getCause();
+			}
+			finally {
+				elapsed += System.nanoTime() - start;
+				if (last && !finished) {
+					finished = true;
+					record(queryKey, parameters, 0, elapsed);
+				}
+			}
+		}
+	}
+
+}
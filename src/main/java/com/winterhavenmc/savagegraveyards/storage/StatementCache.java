@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Cache of prepared statements for a database connection, keyed by query name.
+ * Each statement is prepared once per connection and reused on subsequent calls.
+ * Callers must synchronize on a returned statement while binding parameters,
+ * executing the statement and reading its results.
+ */
+final class StatementCache {
+
+	// database connection
+	private final Connection connection;
+
+	// log of slow statement executions, or null if not logged
+	private final SlowQueryLog slowQueryLog;
+
+	// map of prepared statements keyed by query name
+	private final Map<String, PreparedStatement> statementMap = new ConcurrentHashMap<>();
+
+	// count of statements returned from cache
+	private final LongAdder hitCount = new LongAdder();
+
+	// count of statements prepared
+	private final LongAdder prepareCount = new LongAdder();
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param connection the database connection on which statements will be prepared
+	 */
+	StatementCache(final Connection connection) {
+		this(connection, null);
+	}
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param connection the database connection on which statements will be prepared
+	 * @param slowQueryLog the log of slow statement executions, or null if not logged
+	 */
+	StatementCache(final Connection connection, final SlowQueryLog slowQueryLog) {
+		this.connection = connection;
+		this.slowQueryLog = slowQueryLog;
+	}
+
+
+	/**
+	 * Get prepared statement for a named query, preparing the statement if it is not cached or has been closed
+	 *
+	 * @param queryName the name of the query in the queries properties file
+	 * @return PreparedStatement - the prepared statement for the query
+	 * @throws SQLException if the query does not exist or the statement could not be prepared
+	 */
+	PreparedStatement get(final String queryName) throws SQLException {
+
+		// return cached statement if present and open
+		PreparedStatement statement = statementMap.get(queryName);
+		if (statement != null && !statement.isClosed()) {
+			hitCount.increment();
+			return statement;
+		}
+
+		synchronized (statementMap) {
+
+			// check again in case statement was prepared while waiting for lock
+			statement = statementMap.get(queryName);
+			if (statement != null && !statement.isClosed()) {
+				hitCount.increment();
+				return statement;
+			}
+
+			// get query string
+			String query = Queries.getQuery(queryName);
+			if (query == null) {
+				throw new SQLException("Query not found: " + queryName);
+			}
+
+			// prepare statement, timed if slow statements are logged, and put in map
+			statement = connection.prepareStatement(query);
+			if (slowQueryLog != null) {
+				statement = slowQueryLog.wrap(queryName, statement);
+			}
+			statementMap.put(queryName, statement);
+			prepareCount.increment();
+		}
+
+		return statement;
+	}
+
+
+	/**
+	 * Close all cached statements
+	 */
+	void close() {
+		synchronized (statementMap) {
+			for (PreparedStatement statement : statementMap.values()) {
+				try {
+					statement.close();
+				}
+				catch (SQLException e) {
+					// statement is discarded regardless
+				}
+			}
+			statementMap.clear();
+		}
+	}
+
+
+	/**
+	 * Get count of statements returned from cache
+	 *
+	 * @return the number of cache hits
+	 */
+	long getHitCount() {
+		return hitCount.sum();
+	}
+
+
+	/**
+	 * Get count of statements prepared, including statements re-prepared after being closed
+	 *
+	 * @return the number of statements prepared
+	 */
+	long getPrepareCount() {
+		return prepareCount.sum();
+	}
+
+}
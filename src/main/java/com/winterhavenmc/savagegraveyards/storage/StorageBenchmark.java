@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Benchmark of SQLite storage profiles, enabled by the hidden storage-benchmark configuration setting.
+ * For each profile, a temporary database is populated with graveyard records, then the latency of
+ * undiscovered graveyard queries is measured on one connection while discovery records are written
+ * in batches on another. Results are written to the log.
+ */
+final class StorageBenchmark {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+	// number of graveyard records in benchmark database
+	private final static int GRAVEYARD_COUNT = 500;
+
+	// number of player ids discovery records are written for
+	private final static int PLAYER_COUNT = 1000;
+
+	// number of timed read queries per profile
+	private final static int READ_COUNT = 2000;
+
+	// number of discovery records written per transaction
+	private final static int WRITE_BATCH_SIZE = 100;
+
+	// world uid for benchmark graveyard records
+	private final static UUID WORLD_UID = new UUID(0L, 1L);
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	StorageBenchmark(final JavaPlugin plugin) {
+		this.plugin = plugin;
+	}
+
+
+	/**
+	 * Run benchmark on an asynchronous task
+	 */
+	void runAsync() {
+		plugin.getServer().getScheduler().runTaskAsynchronously(plugin, this::run);
+	}
+
+
+	/**
+	 * Run benchmark for each storage profile on the calling thread
+	 */
+	void run() {
+
+		plugin.getLogger().info("Running storage benchmark...");
+
+		for (StorageProfile profile : StorageProfile.values()) {
+
+			File file = new File(plugin.getDataFolder(), "benchmark-" + profile.name().toLowerCase() + ".db");
+
+			try {
+				benchmark(profile, file);
+			}
+			catch (SQLException | InterruptedException e) {
+				plugin.getLogger().warning("Storage benchmark failed for profile " + profile + ".");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+				if (plugin.getConfig().getBoolean("debug")) {
+					e.printStackTrace();
+				}
+			}
+			finally {
+				// delete benchmark database files
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+				//noinspection ResultOfMethodCallIgnored
+				new File(file.getPath() + "-wal").delete();
+				//noinspection ResultOfMethodCallIgnored
+				new File(file.getPath() + "-shm").delete();
+			}
+		}
+	}
+
+
+	/**
+	 * Benchmark a single storage profile
+	 *
+	 * @param profile the storage profile
+	 * @param file the benchmark database file
+	 * @throws SQLException on sql error
+	 * @throws InterruptedException if interrupted while waiting for writer thread
+	 */
+	private void benchmark(final StorageProfile profile, final File file) throws SQLException, InterruptedException {
+
+		final String dbUrl = "jdbc:sqlite:" + file.getPath();
+
+		try (Connection writer = DriverManager.getConnection(dbUrl);
+		     Connection reader = DriverManager.getConnection(dbUrl)) {
+
+			profile.apply(writer);
+			profile.apply(reader);
+
+			createTables(writer);
+			insertGraveyards(writer);
+
+			// start writer thread
+			final AtomicBoolean running = new AtomicBoolean(true);
+			final AtomicInteger batchCount = new AtomicInteger();
+			final Thread writerThread = new Thread(() -> writeDiscoveries(writer, running, batchCount),
+					plugin.getName() + " storage benchmark writer");
+			writerThread.start();
+
+			// time read queries while writer thread is running
+			long[] latencies = new long[READ_COUNT];
+			try (PreparedStatement preparedStatement =
+					     reader.prepareStatement(Queries.getQuery("SelectUndiscoveredGraveyardKeys"))) {
+
+				Random random = new Random();
+
+				for (int i = 0; i < READ_COUNT; i++) {
+					preparedStatement.setLong(1, WORLD_UID.getMostSignificantBits());
+					preparedStatement.setLong(2, WORLD_UID.getLeastSignificantBits());
+					preparedStatement.setInt(3, random.nextInt(PLAYER_COUNT));
+
+					long start = System.nanoTime();
+					try (ResultSet rs = preparedStatement.executeQuery()) {
+						//noinspection StatementWithEmptyBody
+						while (rs.next()) {
+							// consume results
+						}
+					}
+					latencies[i] = System.nanoTime() - start;
+				}
+			}
+			finally {
+				running.set(false);
+				writerThread.join();
+			}
+
+			Arrays.sort(latencies);
+
+			plugin.getLogger().info(String.format("Storage profile %s: read p50 %.3f ms, p99 %.3f ms, max %.3f ms; "
+							+ "%d discovery batches committed during reads.",
+					profile,
+					latencies[READ_COUNT / 2] / 1_000_000.0,
+					latencies[READ_COUNT * 99 / 100] / 1_000_000.0,
+					latencies[READ_COUNT - 1] / 1_000_000.0,
+					batchCount.get()));
+		}
+	}
+
+
+	private void createTables(final Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.executeUpdate(Queries.getQuery("CreateGraveyardsTable"));
+			statement.executeUpdate(Queries.getQuery("CreatePlayersTable"));
+			statement.executeUpdate(Queries.getQuery("CreateDiscoveredTable"));
+			statement.executeUpdate(Queries.getQuery("CreateGraveyardsSearchKeyIndex"));
+			statement.executeUpdate(Queries.getQuery("CreateGraveyardsWorldIndex"));
+			statement.executeUpdate(Queries.getQuery("CreateDiscoveredPlayerIndex"));
+		}
+	}
+
+
+	private void insertGraveyards(final Connection connection) throws SQLException {
+
+		connection.setAutoCommit(false);
+
+		try (PreparedStatement preparedStatement = connection.prepareStatement(Queries.getQuery("InsertGraveyard"))) {
+			for (int i = 0; i < GRAVEYARD_COUNT; i++) {
+				preparedStatement.setString(1, "benchmark_" + i);
+				preparedStatement.setString(2, "benchmark " + i);
+				preparedStatement.setBoolean(3, true);
+				preparedStatement.setBoolean(4, true);
+				preparedStatement.setInt(5, -1);
+				preparedStatement.setString(6, "");
+				preparedStatement.setString(7, "");
+				preparedStatement.setString(8, "");
+				preparedStatement.setInt(9, -1);
+				preparedStatement.setLong(10, -1L);
+				preparedStatement.setString(11, "benchmark");
+				preparedStatement.setLong(12, WORLD_UID.getMostSignificantBits());
+				preparedStatement.setLong(13, WORLD_UID.getLeastSignificantBits());
+				preparedStatement.setDouble(14, i * 16.0);
+				preparedStatement.setDouble(15, 64.0);
+				preparedStatement.setDouble(16, i * 16.0);
+				preparedStatement.setFloat(17, 0.0F);
+				preparedStatement.setFloat(18, 0.0F);
+				preparedStatement.executeUpdate();
+			}
+			connection.commit();
+		}
+		finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+
+	private void writeDiscoveries(final Connection connection, final AtomicBoolean running, final AtomicInteger batchCount) {
+
+		Random random = new Random();
+
+		try (PreparedStatement preparedStatement = connection.prepareStatement(Queries.getQuery("InsertDiscovery"))) {
+			while (running.get()) {
+				connection.setAutoCommit(false);
+				for (int i = 0; i < WRITE_BATCH_SIZE; i++) {
+					preparedStatement.setString(1, "benchmark_" + random.nextInt(GRAVEYARD_COUNT));
+					preparedStatement.setInt(2, random.nextInt(PLAYER_COUNT));
+					preparedStatement.executeUpdate();
+				}
+				connection.commit();
+				connection.setAutoCommit(true);
+				batchCount.incrementAndGet();
+			}
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("Storage benchmark writer failed.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+		}
+	}
+
+}
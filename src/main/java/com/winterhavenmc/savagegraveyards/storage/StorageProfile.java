@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+
+/**
+ * Enum of SQLite connection pragma profiles, selected by the storage-profile configuration setting
+ */
+enum StorageProfile {
+
+	// rollback journal with full synchronous writes; behavior of previous versions
+	LEGACY("DELETE", "FULL", -2000, 0L, "DEFAULT", 3000),
+
+	// write-ahead log with full synchronous writes
+	SAFE("WAL", "FULL", -2000, 0L, "DEFAULT", 5000),
+
+	// write-ahead log with synchronous writes at checkpoints only
+	BALANCED("WAL", "NORMAL", -8000, 67108864L, "MEMORY", 5000),
+
+	// write-ahead log without synchronous writes; survives a crash of the server process,
+	// but an operating system crash or power loss can corrupt the database
+	PERFORMANCE("WAL", "OFF", -32000, 268435456L, "MEMORY", 10000);
+
+
+	// journal mode
+	private final String journalMode;
+
+	// synchronous level
+	private final String synchronous;
+
+	// page cache size; negative values are in KiB
+	private final int cacheSize;
+
+	// maximum memory-mapped i/o size, in bytes
+	private final long mmapSize;
+
+	// temporary table and index storage
+	private final String tempStore;
+
+	// time to wait for a locked database, in milliseconds
+	private final int busyTimeout;
+
+	// default profile
+	private final static StorageProfile defaultProfile = StorageProfile.BALANCED;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param journalMode the journal mode
+	 * @param synchronous the synchronous level
+	 * @param cacheSize the page cache size
+	 * @param mmapSize the memory-mapped i/o size
+	 * @param tempStore the temporary storage location
+	 * @param busyTimeout the busy timeout
+	 */
+	StorageProfile(final String journalMode,
+	               final String synchronous,
+	               final int cacheSize,
+	               final long mmapSize,
+	               final String tempStore,
+	               final int busyTimeout) {
+		this.journalMode = journalMode;
+		this.synchronous = synchronous;
+		this.cacheSize = cacheSize;
+		this.mmapSize = mmapSize;
+		this.tempStore = tempStore;
+		this.busyTimeout = busyTimeout;
+	}
+
+
+	/**
+	 * Apply profile pragmas to a connection
+	 *
+	 * @param connection the database connection
+	 * @throws SQLException if a pragma could not be applied
+	 */
+	void apply(final Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("PRAGMA busy_timeout = " + busyTimeout);
+			statement.execute("PRAGMA journal_mode = " + journalMode);
+			statement.execute("PRAGMA synchronous = " + synchronous);
+			statement.execute("PRAGMA cache_size = " + cacheSize);
+			statement.execute("PRAGMA mmap_size = " + mmapSize);
+			statement.execute("PRAGMA temp_store = " + tempStore);
+		}
+	}
+
+
+	/**
+	 * Get profile by name, or default profile if no match
+	 *
+	 * @param name the profile name
+	 * @return StorageProfile - the matching profile, or default profile if no match
+	 */
+	static StorageProfile match(final String name) {
+		for (StorageProfile profile : StorageProfile.values()) {
+			if (profile.name().equalsIgnoreCase(name)) {
+				return profile;
+			}
+		}
+		return defaultProfile;
+	}
+
+}
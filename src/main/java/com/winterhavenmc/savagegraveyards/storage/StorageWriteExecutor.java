@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+
+/**
+ * Single-threaded executor for datastore writes. Tasks run one at a time in submission order
+ * on a dedicated writer thread. The task queue is bounded; when it is full, submitting threads
+ * wait for space, so that a slow disk slows producers instead of growing the queue without limit.
+ * Tasks submitted from the writer thread itself run immediately.
+ */
+final class StorageWriteExecutor implements Executor {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+	// pending tasks
+	private final BlockingQueue<Task> queue;
+
+	// maximum number of pending tasks
+	private final int capacity;
+
+	// writer thread
+	private final Thread thread;
+
+	// true if executor has been closed
+	private volatile boolean closed;
+
+	// time to wait for pending tasks when closing, in seconds
+	private final static long CLOSE_TIMEOUT = 30L;
+
+	// time between checks for close while queue is empty, in milliseconds
+	private final static long POLL_INTERVAL = 100L;
+
+	// task metrics
+	private final LongAdder completedCount = new LongAdder();
+	private final LongAdder stallCount = new LongAdder();
+	private final LongAdder totalWaitNanos = new LongAdder();
+	private final LongAdder totalRunNanos = new LongAdder();
+	private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0L);
+	private final LongAccumulator maxRunNanos = new LongAccumulator(Long::max, 0L);
+
+
+	/**
+	 * A submitted task and the time it was submitted
+	 */
+	private static final class Task {
+
+		private final Runnable command;
+		private final long submitTime;
+
+		private Task(final Runnable command, final long submitTime) {
+			this.command = command;
+			this.submitTime = submitTime;
+		}
+	}
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 * @param capacity maximum number of pending tasks
+	 */
+	StorageWriteExecutor(final JavaPlugin plugin, final int capacity) {
+		this.plugin = plugin;
+		this.capacity = capacity;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.thread = new Thread(this::runTasks, plugin.getName() + "-storage-writer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+
+	/**
+	 * Submit task to run on writer thread, waiting for space if the queue is full
+	 *
+	 * @param command the task to run
+	 * @throws RejectedExecutionException if the executor has been closed
+	 */
+	@Override
+	public void execute(final Runnable command) {
+
+		// run tasks submitted by writer thread immediately, to preserve order and avoid waiting on self
+		if (Thread.currentThread() == thread) {
+			command.run();
+			return;
+		}
+
+		if (closed) {
+			throw new RejectedExecutionException("Storage writer is closed.");
+		}
+
+		Task task = new Task(command, System.nanoTime());
+
+		// if queue is full, wait for space
+		if (!queue.offer(task)) {
+			stallCount.increment();
+			try {
+				queue.put(task);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for storage writer.", e);
+			}
+		}
+	}
+
+
+	/**
+	 * Submit task returning a result to run on writer thread
+	 *
+	 * @param supplier the task to run
+	 * @param <T> the result type
+	 * @return CompletableFuture completed with the result of the task
+	 */
+	<T> CompletableFuture<T> submit(final Supplier<T> supplier) {
+
+		CompletableFuture<T> future = new CompletableFuture<>();
+
+		try {
+			execute(() -> {
+				try {
+					future.complete(supplier.get());
+				}
+				catch (RuntimeException e) {
+					future.completeExceptionally(e);
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+
+		return future;
+	}
+
+
+	/**
+	 * Run task on writer thread and wait for its result
+	 *
+	 * @param supplier the task to run
+	 * @param <T> the result type
+	 * @return the result of the task
+	 */
+	<T> T call(final Supplier<T> supplier) {
+		return submit(supplier).join();
+	}
+
+
+	/**
+	 * Writer thread loop
+	 */
+	private void runTasks() {
+		while (!closed || !queue.isEmpty()) {
+			try {
+				Task task = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				if (task != null) {
+					run(task);
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Run a task, recording its queue wait and run times
+	 *
+	 * @param task the task to run
+	 */
+	private void run(final Task task) {
+
+		long startTime = System.nanoTime();
+		long waitNanos = startTime - task.submitTime;
+		totalWaitNanos.add(waitNanos);
+		maxWaitNanos.accumulate(waitNanos);
+
+		try {
+			task.command.run();
+		}
+		catch (RuntimeException e) {
+			plugin.getLogger().warning("An error occurred in the storage writer.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				e.printStackTrace();
+			}
+		}
+
+		long runNanos = System.nanoTime() - startTime;
+		totalRunNanos.add(runNanos);
+		maxRunNanos.accumulate(runNanos);
+		completedCount.increment();
+	}
+
+
+	/**
+	 * Stop accepting tasks and wait for pending tasks to complete
+	 */
+	void close() {
+
+		closed = true;
+
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT));
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (thread.isAlive()) {
+			plugin.getLogger().warning("Storage writer did not finish within " + CLOSE_TIMEOUT + " seconds; "
+					+ queue.size() + " pending writes discarded.");
+			return;
+		}
+
+		// run any tasks submitted while writer thread was stopping
+		Task task;
+		while ((task = queue.poll()) != null) {
+			run(task);
+		}
+	}
+
+
+	/**
+	 * Get number of pending tasks
+	 *
+	 * @return the number of tasks waiting to run
+	 */
+	int getQueueDepth() {
+		return queue.size();
+	}
+
+
+	/**
+	 * Get maximum number of pending tasks
+	 *
+	 * @return the queue capacity
+	 */
+	int getCapacity() {
+		return capacity;
+	}
+
+
+	/**
+	 * Get number of tasks run
+	 *
+	 * @return the number of completed tasks
+	 */
+	long getCompletedCount() {
+		return completedCount.sum();
+	}
+
+
+	/**
+	 * Get number of submissions that waited for space in a full queue
+	 *
+	 * @return the number of stalled submissions
+	 */
+	long getStallCount() {
+		return stallCount.sum();
+	}
+
+
+	/**
+	 * Get mean time tasks waited in queue
+	 *
+	 * @return the mean wait time, in milliseconds
+	 */
+	double getMeanWaitMillis() {
+		long count = completedCount.sum();
+		return count == 0 ? 0.0 : totalWaitNanos.sum() / (count * 1_000_000.0);
+	}
+
+
+	/**
+	 * Get maximum time a task waited in queue
+	 *
+	 * @return the maximum wait time, in milliseconds
+	 */
+	double getMaxWaitMillis() {
+		return maxWaitNanos.get() / 1_000_000.0;
+	}
+
+
+	/**
+	 * Get mean task run time
+	 *
+	 * @return the mean run time, in milliseconds
+	 */
+	double getMeanRunMillis() {
+		long count = completedCount.sum();
+		return count == 0 ? 0.0 : totalRunNanos.sum() / (count * 1_000_000.0);
+	}
+
+
+	/**
+	 * Get maximum task run time
+	 *
+	 * @return the maximum run time, in milliseconds
+	 */
+	double getMaxRunMillis() {
+		return maxRunNanos.get() / 1_000_000.0;
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.savagegraveyards.util;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+
+/**
+ * Executor that runs tasks on the server main thread, used to hand the results
+ * of asynchronous datastore operations back to code that uses the Bukkit API.
+ */
+public final class MainThreadExecutor implements Executor {
+
+	// reference to main class
+	private final JavaPlugin plugin;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	public MainThreadExecutor(final JavaPlugin plugin) {
+		this.plugin = Objects.requireNonNull(plugin);
+	}
+
+
+	/**
+	 * Run task on the main thread; immediately if called from the main thread,
+	 * otherwise on the next server tick. Tasks submitted after the plugin is disabled are dropped.
+	 *
+	 * @param command the task to run
+	 */
+	@Override
+	public void execute(final Runnable command) {
+		if (plugin.getServer().isPrimaryThread()) {
+			command.run();
+		}
+		else if (plugin.isEnabled()) {
+			plugin.getServer().getScheduler().runTask(plugin, command);
+		}
+	}
+
+
+	/**
+	 * Pass the result of a future to an action on the main thread. If the future completes
+	 * exceptionally, the exception is logged and the action is not run.
+	 *
+	 * @param future the future whose result is passed to the action
+	 * @param action the action to run on the main thread
+	 * @param <T> the result type of the future
+	 */
+	public <T> void accept(final CompletableFuture<T> future, final Consumer<T> action) {
+		logExceptions(future.thenAcceptAsync(action, this));
+	}
+
+
+	/**
+	 * Pass the results of two futures to an action on the main thread when both have completed.
+	 * If either future completes exceptionally, the exception is logged and the action is not run.
+	 *
+	 * @param first the future whose result is passed as the first argument of the action
+	 * @param second the future whose result is passed as the second argument of the action
+	 * @param action the action to run on the main thread
+	 * @param <T> the result type of the first future
+	 * @param <U> the result type of the second future
+	 */
+	public <T, U> void accept(final CompletableFuture<T> first,
+	                          final CompletableFuture<U> second,
+	                          final BiConsumer<T, U> action) {
+		logExceptions(first.thenAcceptBothAsync(second, action, this));
+	}
+
+
+	/**
+	 * Log exception if future completes exceptionally
+	 *
+	 * @param future the future
+	 */
+	private void logExceptions(final CompletableFuture<Void> future) {
+		future.exceptionally(throwable -> {
+			plugin.getLogger().warning("An error occurred while completing a datastore operation.");
+			plugin.getLogger().warning(throwable.getLocalizedMessage());
+			if (plugin.getConfig().getBoolean("debug")) {
+				throwable.printStackTrace();
+			}
+			return null;
+		});
+	}
+
+}
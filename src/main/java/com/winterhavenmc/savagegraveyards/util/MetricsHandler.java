@@ -29,11 +29,11 @@ public class MetricsHandler {
 
 		Metrics metrics = new Metrics(plugin, 13924);
 
-		// get total number of graveyards as single line chart
-		metrics.addCustomChart(new SingleLineChart("total_graveyards", () -> plugin.dataStore.selectGraveyardCount()));
+		// get total number of graveyards as single line chart; counts are read without querying the datastore
+		metrics.addCustomChart(new SingleLineChart("total_graveyards", () -> plugin.dataStore.getStatistics().getGraveyardCount()));
 
 		// total number of graveyards as pie chart
-		metrics.addCustomChart(new SimplePie("graveyard_count", () -> String.valueOf(plugin.dataStore.selectGraveyardCount())));
+		metrics.addCustomChart(new SimplePie("graveyard_count", () -> String.valueOf(plugin.dataStore.getStatistics().getGraveyardCount())));
 
 		// pie chart of default enabled
 		metrics.addCustomChart(new SimplePie("default_enabled", () -> plugin.getConfig().getString("default-enabled")));
@@ -15,7 +15,18 @@ public enum ConfigSetting {
     RESPAWN_PRIORITY("NORMAL"),
     TITLES_ENABLED("true"),
     SOUND_EFFECTS("true"),
-    CONSIDER_BEDSPAWN("false")
+    CONSIDER_BEDSPAWN("false"),
+    STORAGE_PROFILE("BALANCED"),
+    BACKUP_INTERVAL("1440"),
+    BACKUP_GENERATIONS("3"),
+    DISCOVERY_STORAGE("ROWS"),
+    SLOW_QUERY_THRESHOLD("100"),
+    STORAGE_TYPE("SQLite"),
+    JDBC_URL(""),
+    JDBC_USERNAME(""),
+    JDBC_PASSWORD(""),
+    JDBC_POOL_SIZE("4"),
+    STORAGE_TIMING("true")
     ;
 
     private final String value;
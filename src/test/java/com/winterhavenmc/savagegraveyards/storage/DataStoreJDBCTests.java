@@ -0,0 +1,191 @@
+package com.winterhavenmc.savagegraveyards.storage;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.WorldMock;
+import com.winterhavenmc.savagegraveyards.PluginMain;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStoreJDBCTests {
+
+    private ServerMock server;
+    private PluginMain plugin;
+    private WorldMock world;
+    private DataStoreJDBC dataStore;
+
+
+    @BeforeAll
+    public void setUp() throws Exception {
+
+        // Start the mock server
+        server = MockBukkit.mock();
+
+        // create mock world
+        world = server.addSimpleWorld("world");
+
+        // start the mock plugin
+        plugin = MockBukkit.load(PluginMain.class);
+
+        // connect to embedded in-memory database
+        plugin.getConfig().set("jdbc-url", "jdbc:h2:mem:graveyards;DB_CLOSE_DELAY=-1");
+        dataStore = new DataStoreJDBC(plugin);
+        dataStore.initialize();
+    }
+
+    @AfterAll
+    public void tearDown() {
+
+        dataStore.close();
+
+        // cancel all tasks
+        server.getScheduler().cancelTasks(plugin);
+
+        // Stop the mock server
+        MockBukkit.unmock();
+    }
+
+
+    private Graveyard graveyard(String displayName, boolean hidden) {
+        return new Graveyard.Builder(plugin)
+                .displayName(displayName)
+                .enabled(true)
+                .hidden(hidden)
+                .location(world.getSpawnLocation())
+                .build();
+    }
+
+
+    @Test
+    @Order(1)
+    @DisplayName("dialect is taken from jdbc url subprotocol.")
+    void dialect() {
+        Assertions.assertEquals("h2", DataStoreJDBC.getDialect("jdbc:h2:mem:test"));
+        Assertions.assertEquals("mysql", DataStoreJDBC.getDialect("jdbc:mariadb://localhost/graveyards"));
+        Assertions.assertEquals("jdbc", DataStoreJDBC.getDialect("not a url"));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("graveyards are inserted and selected ignoring case.")
+    void insertAndSelectGraveyards() {
+        Assertions.assertEquals(2, dataStore.insertGraveyards(List.of(graveyard("Alpha One", true), graveyard("Beta", false))));
+        Optional<Graveyard> graveyard = dataStore.selectGraveyard("alpha one");
+        Assertions.assertTrue(graveyard.isPresent());
+        Assertions.assertEquals("Alpha_One", graveyard.get().getSearchKey());
+        Assertions.assertEquals(world.getUID(), graveyard.get().getWorldUid());
+        Assertions.assertEquals(2, dataStore.selectGraveyardCount());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("failed batch is rolled back when requested.")
+    void insertRollback() {
+        Assertions.assertEquals(0, dataStore.insertGraveyards(List.of(graveyard("Gamma", true), graveyard("BETA", true)), true));
+        Assertions.assertTrue(dataStore.selectGraveyard("gamma").isEmpty());
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("failed batch keeps valid records when rollback is not requested.")
+    void insertPartial() {
+        Assertions.assertEquals(1, dataStore.insertGraveyards(List.of(graveyard("Gamma", true), graveyard("BETA", true))));
+        Assertions.assertTrue(dataStore.selectGraveyard("gamma").isPresent());
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("matching names are selected by prefix.")
+    void matchingNames() {
+        Assertions.assertEquals(List.of("Alpha_One"), dataStore.selectMatchingGraveyardNames("al"));
+        Assertions.assertTrue(dataStore.selectMatchingGraveyardNames("_").isEmpty());
+        Assertions.assertEquals(3, dataStore.selectMatchingGraveyardNames("").size());
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("discoveries are inserted in batches, ignoring duplicates and unknown graveyards.")
+    void insertDiscoveries() {
+        UUID playerUid = UUID.randomUUID();
+        Collection<Discovery> discoveries = new ArrayList<>();
+        discoveries.add(new Discovery("alpha_one", playerUid));
+        discoveries.add(new Discovery("Alpha_One", playerUid));
+        discoveries.add(new Discovery("no_such_graveyard", playerUid));
+        for (int i = 0; i < 1200; i++) {
+            discoveries.add(new Discovery("Gamma", new UUID(1L, i)));
+        }
+        Assertions.assertEquals(1201, dataStore.insertDiscoveries(discoveries));
+        Assertions.assertEquals(Set.of("Alpha_One"), dataStore.selectDiscoveredKeys(playerUid));
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("discovery is deleted once.")
+    void deleteDiscovery() {
+        UUID playerUid = UUID.randomUUID();
+        dataStore.insertDiscovery(new Discovery("Beta", playerUid));
+        Assertions.assertEquals(Set.of("Beta"), dataStore.selectDiscoveredKeys(playerUid));
+        Assertions.assertTrue(dataStore.deleteDiscovery("beta", playerUid));
+        Assertions.assertFalse(dataStore.deleteDiscovery("beta", playerUid));
+    }
+
+    @Test
+    @Order(8)
+    @DisplayName("deleting a graveyard deletes its discoveries.")
+    void deleteGraveyardCascade() {
+        UUID playerUid = UUID.randomUUID();
+        dataStore.insertDiscoveries(List.of(new Discovery("Alpha_One", playerUid)));
+        Assertions.assertTrue(dataStore.deleteGraveyard("Alpha One").isPresent());
+
+        // wait for delete on writer thread by running an empty insert after it
+        dataStore.insertDiscoveries(Collections.emptyList());
+        Assertions.assertTrue(dataStore.selectGraveyard("alpha_one").isEmpty());
+        Assertions.assertTrue(dataStore.selectDiscoveredKeys(playerUid).isEmpty());
+    }
+
+    @Test
+    @Order(9)
+    @DisplayName("shared database is never deleted.")
+    void neverDeleted() {
+        Assertions.assertFalse(dataStore.delete());
+        Assertions.assertEquals(2, dataStore.selectGraveyardCount());
+    }
+
+    @Test
+    @Order(10)
+    @DisplayName("existing SQLite datastore is converted.")
+    void convertFromSQLite() throws Exception {
+
+        // add records to plugin SQLite datastore, then close it
+        plugin.dataStore.insertGraveyards(List.of(graveyard("Sqlite One", true), graveyard("Sqlite Two", false)));
+        plugin.dataStore.close();
+
+        plugin.getConfig().set("jdbc-url", "jdbc:h2:mem:converted;DB_CLOSE_DELAY=-1");
+        DataStoreJDBC converted = new DataStoreJDBC(plugin);
+        converted.initialize();
+        DataStore conversion = DataStoreType.convertAllAsync(plugin, converted);
+
+        // wait for conversion to finish in the background
+        server.getScheduler().waitAsyncTasksFinished();
+
+        Assertions.assertTrue(conversion.getStatus().get("Conversion").startsWith("to " + converted + " complete"));
+        Assertions.assertTrue(converted.selectGraveyard("sqlite_two").isPresent());
+        Assertions.assertEquals(2, converted.selectGraveyardCount());
+        Assertions.assertFalse(new File(plugin.getDataFolder(), DataStoreType.SQLITE.getStorageName()).exists());
+
+        // plugin datastore is closed on disable
+        plugin.dataStore = conversion;
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.winterhavenmc.savagegraveyards.storage;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.WorldMock;
+import com.winterhavenmc.savagegraveyards.PluginMain;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStoreLogTests {
+
+    private ServerMock server;
+    private PluginMain plugin;
+    private WorldMock world;
+    private DataStoreLog dataStore;
+    private final UUID playerUid = UUID.randomUUID();
+
+
+    @BeforeAll
+    public void setUp() throws Exception {
+
+        // Start the mock server
+        server = MockBukkit.mock();
+
+        // create mock world
+        world = server.addSimpleWorld("world");
+
+        // start the mock plugin
+        plugin = MockBukkit.load(PluginMain.class);
+
+        // replace plugin datastore with uncached log datastore; plugin datastore is closed on disable
+        plugin.dataStore.close();
+        dataStore = new DataStoreLog(plugin);
+        dataStore.initialize();
+        plugin.dataStore = dataStore;
+    }
+
+    @AfterAll
+    public void tearDown() {
+
+        // cancel all tasks
+        server.getScheduler().cancelTasks(plugin);
+
+        // Stop the mock server
+        MockBukkit.unmock();
+    }
+
+
+    private Graveyard graveyard(String displayName) {
+        return new Graveyard.Builder(plugin)
+                .displayName(displayName)
+                .enabled(true)
+                .hidden(true)
+                .location(world.getSpawnLocation())
+                .build();
+    }
+
+    private void reopen() throws IOException {
+        dataStore.close();
+        dataStore = new DataStoreLog(plugin);
+        dataStore.initialize();
+        plugin.dataStore = dataStore;
+    }
+
+    private File logFile() {
+        return new File(plugin.getDataFolder(), DataStoreType.LOG.getStorageName());
+    }
+
+
+    @Test
+    @Order(1)
+    @DisplayName("records are replayed when log is reopened.")
+    void writeAndReplay() throws IOException {
+        Assertions.assertEquals(2, dataStore.insertGraveyards(List.of(graveyard("Alpha One"), graveyard("Beta"))));
+        Assertions.assertEquals(1, dataStore.insertDiscoveries(List.of(new Discovery("alpha_one", playerUid),
+                new Discovery("no_such_graveyard", playerUid))));
+        int primaryKey = dataStore.selectGraveyard("Beta").orElseThrow().getPrimaryKey();
+
+        reopen();
+
+        Assertions.assertEquals(2, dataStore.selectGraveyardCount());
+        Assertions.assertEquals(primaryKey, dataStore.selectGraveyard("beta").orElseThrow().getPrimaryKey());
+        Assertions.assertEquals(Set.of("Alpha_One"), dataStore.selectDiscoveredKeys(playerUid));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("torn final entry is discarded and earlier entries kept.")
+    void tornTail() throws IOException {
+        dataStore.insertGraveyards(List.of(graveyard("Torn")));
+        dataStore.close();
+
+        // corrupt last written byte, in final entry
+        try (RandomAccessFile file = new RandomAccessFile(logFile(), "rw")) {
+            long position = file.length() - 1;
+            file.seek(position);
+            while (position > 0 && file.read() == 0) {
+                file.seek(--position);
+            }
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+
+        dataStore = new DataStoreLog(plugin);
+        dataStore.initialize();
+        plugin.dataStore = dataStore;
+
+        Assertions.assertTrue(dataStore.selectGraveyard("Torn").isEmpty());
+        Assertions.assertEquals(2, dataStore.selectGraveyardCount());
+        Assertions.assertEquals(1, dataStore.insertGraveyards(List.of(graveyard("Gamma"))));
+
+        reopen();
+        Assertions.assertTrue(dataStore.selectGraveyard("gamma").isPresent());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("compaction does not reuse primary keys of deleted graveyards.")
+    void compactionKeepsNextKey() throws IOException {
+        dataStore.insertGraveyards(List.of(graveyard("Deleted")));
+        int deletedKey = dataStore.selectGraveyard("Deleted").orElseThrow().getPrimaryKey();
+        Assertions.assertTrue(dataStore.deleteGraveyard("Deleted").isPresent());
+
+        // add entries without adding records, so that compaction is due when log is reopened
+        for (int i = 0; i < 1000; i++) {
+            dataStore.insertDiscovery(new Discovery("Beta", playerUid));
+            dataStore.deleteDiscovery("Beta", playerUid);
+        }
+
+        reopen();
+        Assertions.assertEquals("1", dataStore.getStatus().get("Log compactions"));
+
+        reopen();
+        dataStore.insertGraveyards(List.of(graveyard("Delta")));
+        Assertions.assertTrue(dataStore.selectGraveyard("Delta").orElseThrow().getPrimaryKey() > deletedKey);
+        Assertions.assertEquals(Set.of("Alpha_One"), dataStore.selectDiscoveredKeys(playerUid));
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("rename onto name of another graveyard is rejected.")
+    void renameCollision() throws IOException {
+        Graveyard beta = dataStore.selectGraveyard("Beta").orElseThrow();
+        Graveyard alpha = dataStore.selectGraveyard("Alpha One").orElseThrow();
+
+        dataStore.updateGraveyard(new Graveyard.Builder(beta).displayName("ALPHA ONE").build());
+
+        Assertions.assertEquals(alpha.getPrimaryKey(), dataStore.selectGraveyard("alpha_one").orElseThrow().getPrimaryKey());
+        Assertions.assertTrue(dataStore.selectGraveyard("Beta").isPresent());
+
+        reopen();
+        Assertions.assertEquals(alpha.getPrimaryKey(), dataStore.selectGraveyard("alpha_one").orElseThrow().getPrimaryKey());
+        Assertions.assertTrue(dataStore.selectGraveyard("Beta").isPresent());
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.winterhavenmc.savagegraveyards.storage;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.WorldMock;
+import com.winterhavenmc.savagegraveyards.PluginMain;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStoreSQLiteTests {
+
+    private ServerMock server;
+    private PluginMain plugin;
+    private WorldMock world;
+    private DataStoreSQLite dataStore;
+
+
+    @BeforeAll
+    public void setUp() throws Exception {
+
+        // Start the mock server
+        server = MockBukkit.mock();
+
+        // create mock world
+        world = server.addSimpleWorld("world");
+
+        // start the mock plugin
+        plugin = MockBukkit.load(PluginMain.class);
+
+        // replace plugin datastore with uncached SQLite datastore; plugin datastore is closed on disable
+        plugin.getConfig().set("discovery-storage", "rows");
+        plugin.dataStore.close();
+        dataStore = new DataStoreSQLite(plugin);
+        dataStore.initialize();
+        plugin.dataStore = dataStore;
+    }
+
+    @AfterAll
+    public void tearDown() {
+
+        // cancel all tasks
+        server.getScheduler().cancelTasks(plugin);
+
+        // Stop the mock server
+        MockBukkit.unmock();
+    }
+
+
+    private Graveyard graveyard(String displayName) {
+        return new Graveyard.Builder(plugin)
+                .displayName(displayName)
+                .enabled(true)
+                .hidden(true)
+                .location(world.getSpawnLocation())
+                .build();
+    }
+
+
+    @Test
+    @Order(1)
+    @DisplayName("discovery of a missing graveyard fails and is not counted.")
+    void insertMissingGraveyard() {
+        dataStore.insertGraveyards(List.of(graveyard("Alpha One"), graveyard("Beta")));
+        UUID playerUid = UUID.randomUUID();
+        Assertions.assertEquals(0, dataStore.insertDiscoveries(List.of(new Discovery("no_such_graveyard", playerUid))));
+        Assertions.assertEquals(1, dataStore.insertDiscoveries(List.of(new Discovery("alpha_one", playerUid),
+                new Discovery("no_such_graveyard", playerUid))));
+        Assertions.assertEquals(Set.of("Alpha_One"), dataStore.selectDiscoveredKeys(playerUid));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("discovery of a missing graveyard rolls back batch when requested.")
+    void insertMissingGraveyardRollback() {
+        UUID playerUid = UUID.randomUUID();
+        Assertions.assertEquals(0, dataStore.insertDiscoveries(List.of(new Discovery("Beta", playerUid),
+                new Discovery("no_such_graveyard", playerUid)), true));
+        Assertions.assertTrue(dataStore.selectDiscoveredKeys(playerUid).isEmpty());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("duplicate discovery is ignored.")
+    void insertDuplicate() {
+        UUID playerUid = UUID.randomUUID();
+        Assertions.assertEquals(1, dataStore.insertDiscoveries(List.of(new Discovery("Beta", playerUid),
+                new Discovery("beta", playerUid))));
+        Assertions.assertEquals(0, dataStore.insertDiscoveries(List.of(new Discovery("Beta", playerUid))));
+        Assertions.assertEquals(Set.of("Beta"), dataStore.selectDiscoveredKeys(playerUid));
+    }
+
+}
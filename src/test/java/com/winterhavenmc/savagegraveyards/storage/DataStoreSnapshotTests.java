@@ -0,0 +1,121 @@
+package com.winterhavenmc.savagegraveyards.storage;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.WorldMock;
+import com.winterhavenmc.savagegraveyards.PluginMain;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStoreSnapshotTests {
+
+    private ServerMock server;
+    private PluginMain plugin;
+    private WorldMock world;
+    private DataStoreLog importStore;
+    private final UUID playerUid = UUID.randomUUID();
+
+
+    @BeforeAll
+    public void setUp() {
+
+        // Start the mock server
+        server = MockBukkit.mock();
+
+        // create mock world
+        world = server.addSimpleWorld("world");
+
+        // start the mock plugin
+        plugin = MockBukkit.load(PluginMain.class);
+
+        // populate plugin datastore, which is exported
+        plugin.dataStore.insertGraveyards(List.of(graveyard("Alpha One", true), graveyard("Beta", false)));
+        plugin.dataStore.insertDiscoveries(List.of(new Discovery("Alpha_One", playerUid), new Discovery("Beta", playerUid)));
+    }
+
+    @AfterAll
+    public void tearDown() {
+
+        // close import datastore
+        if (importStore != null) {
+            importStore.close();
+        }
+
+        // cancel all tasks
+        server.getScheduler().cancelTasks(plugin);
+
+        // Stop the mock server
+        MockBukkit.unmock();
+    }
+
+
+    private Graveyard graveyard(String displayName, boolean hidden) {
+        return new Graveyard.Builder(plugin)
+                .displayName(displayName)
+                .enabled(true)
+                .hidden(hidden)
+                .location(world.getSpawnLocation())
+                .build();
+    }
+
+
+    @Test
+    @Order(1)
+    @DisplayName("snapshot export writes all records.")
+    void exportSnapshot() throws Exception {
+        DataStoreSnapshot snapshot = new DataStoreSnapshot(plugin, "roundtrip");
+        Assertions.assertTrue(plugin.dataStore.exportSnapshotAsync(snapshot).get());
+        Assertions.assertTrue(snapshot.getFile().isFile());
+        Assertions.assertEquals(2, snapshot.getGraveyardCount());
+        Assertions.assertEquals(2, snapshot.getDiscoveryCount());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("truncated snapshot is rejected without importing records.")
+    void truncatedSnapshot() throws Exception {
+        byte[] bytes = Files.readAllBytes(new DataStoreSnapshot(plugin, "roundtrip").getFile().toPath());
+        DataStoreSnapshot truncated = new DataStoreSnapshot(plugin, "truncated");
+        Files.write(truncated.getFile().toPath(), Arrays.copyOf(bytes, bytes.length - 8));
+
+        importStore = new DataStoreLog(plugin);
+        importStore.initialize();
+
+        Assertions.assertFalse(importStore.importSnapshotAsync(truncated).get());
+        Assertions.assertEquals(0, importStore.selectGraveyardCount());
+        Assertions.assertTrue(importStore.selectDiscoveredKeys(playerUid).isEmpty());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("snapshot import restores all records.")
+    void importSnapshot() throws Exception {
+        DataStoreSnapshot snapshot = new DataStoreSnapshot(plugin, "roundtrip");
+        Assertions.assertTrue(importStore.importSnapshotAsync(snapshot).get());
+        Assertions.assertEquals(2, snapshot.getGraveyardCount());
+        Assertions.assertEquals(2, snapshot.getDiscoveryCount());
+
+        for (Graveyard expected : plugin.dataStore.selectAllGraveyards()) {
+            Graveyard actual = importStore.selectGraveyard(expected.getSearchKey()).orElseThrow();
+            Assertions.assertEquals(expected.getDisplayName(), actual.getDisplayName());
+            Assertions.assertEquals(expected.isHidden(), actual.isHidden());
+            Assertions.assertEquals(expected.getLocation(), actual.getLocation());
+        }
+        Assertions.assertEquals(Set.of("Alpha_One", "Beta"), Set.copyOf(importStore.selectDiscoveredKeys(playerUid)));
+
+        // importing again skips existing records
+        Assertions.assertTrue(importStore.importSnapshotAsync(snapshot).get());
+        Assertions.assertEquals(0, snapshot.getGraveyardCount());
+        Assertions.assertEquals(2, importStore.selectGraveyardCount());
+    }
+
+}
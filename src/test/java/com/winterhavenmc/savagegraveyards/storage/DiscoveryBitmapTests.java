@@ -0,0 +1,68 @@
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+
+public class DiscoveryBitmapTests {
+
+    @Test
+    @DisplayName("bitmap survives encoding round trip.")
+    void roundTrip() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            DiscoveryBitmap bitmap = new DiscoveryBitmap();
+            TreeSet<Integer> keys = new TreeSet<>();
+            int range = 1 + random.nextInt(i % 2 == 0 ? 500 : 1_000_000);
+            for (int j = random.nextInt(200); j > 0; j--) {
+                int key = random.nextInt(range);
+                bitmap.add(key);
+                keys.add(key);
+            }
+            Assertions.assertArrayEquals(keys.stream().mapToInt(Integer::intValue).toArray(),
+                    DiscoveryBitmap.fromByteArray(bitmap.toByteArray()).keys().toArray());
+        }
+    }
+
+    @Test
+    @DisplayName("dense and sparse bitmaps are encoded compactly.")
+    void compactEncoding() {
+        DiscoveryBitmap dense = new DiscoveryBitmap();
+        for (int key = 1; key <= 1000; key++) {
+            dense.add(key);
+        }
+        Assertions.assertTrue(dense.toByteArray().length <= 127);
+
+        DiscoveryBitmap sparse = new DiscoveryBitmap();
+        sparse.add(5);
+        sparse.add(900_000);
+        Assertions.assertTrue(sparse.toByteArray().length <= 5);
+    }
+
+    @Test
+    @DisplayName("andNot returns keys not in other bitmap.")
+    void andNot() {
+        DiscoveryBitmap hidden = new DiscoveryBitmap();
+        hidden.add(1);
+        hidden.add(2);
+        hidden.add(3);
+        DiscoveryBitmap discovered = new DiscoveryBitmap();
+        discovered.add(2);
+        discovered.add(9);
+        Assertions.assertArrayEquals(new int[] {1, 3}, hidden.andNot(discovered).keys().toArray());
+        Assertions.assertEquals(3, hidden.size());
+    }
+
+    @Test
+    @DisplayName("invalid encodings are rejected.")
+    void invalidEncoding() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DiscoveryBitmap.fromByteArray(new byte[] {1, (byte) 0x80}));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DiscoveryBitmap.fromByteArray(new byte[] {7}));
+        Assertions.assertTrue(DiscoveryBitmap.fromByteArray(null).isEmpty());
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.winterhavenmc.savagegraveyards.storage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+
+public class LatencyHistogramTests {
+
+    @Test
+    @DisplayName("each latency falls within its bucket bounds.")
+    void bucketBounds() {
+        for (long latency : new long[] {1, 3, 4, 7, 8, 1000, 123_456_789L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(latency);
+            long lower = (index == 0) ? 0 : LatencyHistogram.bucketUpperBound(index - 1) + 1;
+            Assertions.assertTrue(latency >= lower && latency <= LatencyHistogram.bucketUpperBound(index));
+        }
+    }
+
+    @Test
+    @DisplayName("percentiles are reported within bucket precision.")
+    void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram("selectGraveyard", "SelectGraveyard");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L, i % 100 == 0);
+        }
+        Assertions.assertEquals(1000, histogram.getCount());
+        Assertions.assertEquals(10, histogram.getErrorCount());
+        Assertions.assertEquals(1_000_000, histogram.getMax());
+        Assertions.assertEquals(500_000, histogram.getPercentile(50), 125_000);
+        Assertions.assertEquals(1_000_000, histogram.getPercentile(100));
+    }
+
+    @Test
+    @DisplayName("reset clears all counts.")
+    void reset() {
+        LatencyHistogram histogram = new LatencyHistogram("selectGraveyard", "SelectGraveyard");
+        histogram.record(5000L, true);
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.getCount());
+        Assertions.assertEquals(0, histogram.getErrorCount());
+        Assertions.assertEquals(0, histogram.getPercentile(99));
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.winterhavenmc.savagegraveyards.storage;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.WorldMock;
+import com.winterhavenmc.savagegraveyards.PluginMain;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.UUID;
+
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class SchemaMigrationTests {
+
+    private ServerMock server;
+    private PluginMain plugin;
+    private WorldMock world;
+    private DataStoreSQLite dataStore;
+    private String url;
+    private final UUID playerUid = UUID.randomUUID();
+
+
+    @BeforeAll
+    public void setUp() throws Exception {
+
+        // Start the mock server
+        server = MockBukkit.mock();
+
+        // create mock world
+        world = server.addSimpleWorld("world");
+
+        // start the mock plugin
+        plugin = MockBukkit.load(PluginMain.class);
+
+        // replace plugin database with database of original schema
+        plugin.dataStore.close();
+        File file = new File(plugin.getDataFolder(), DataStoreType.SQLITE.getStorageName());
+        for (String suffix : new String[] { "", "-wal", "-shm" }) {
+            new File(file.getPath() + suffix).delete();
+        }
+        url = "jdbc:sqlite:" + file.getPath();
+        createOriginalDatabase();
+
+        // migrate database
+        dataStore = new DataStoreSQLite(plugin);
+        dataStore.initialize();
+        plugin.dataStore = dataStore;
+    }
+
+    @AfterAll
+    public void tearDown() {
+
+        // cancel all tasks
+        server.getScheduler().cancelTasks(plugin);
+
+        // Stop the mock server
+        MockBukkit.unmock();
+    }
+
+
+    private void createOriginalDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE Graveyards (Id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "SearchKey VARCHAR UNIQUE NOT NULL, DisplayName VARCHAR NOT NULL, Enabled BOOLEAN, "
+                    + "Hidden BOOLEAN, DiscoveryRange INTEGER, DiscoveryMessage VARCHAR, RespawnMessage VARCHAR, "
+                    + "GroupName VARCHAR, SafetyRange INTEGER, SafetyTime BIGINT, WorldName VARCHAR NOT NULL, "
+                    + "X DOUBLE, Y DOUBLE, Z DOUBLE, Yaw FLOAT, Pitch FLOAT)");
+            statement.executeUpdate("CREATE TABLE Discovered (Id INTEGER PRIMARY KEY, "
+                    + "SpawnId INTEGER NOT NULL REFERENCES Graveyards(Id) ON DELETE CASCADE, "
+                    + "PlayerUuid VARCHAR NOT NULL, UNIQUE (SpawnId, PlayerUuid))");
+            statement.executeUpdate("INSERT INTO Graveyards (Id, SearchKey, DisplayName, Enabled, Hidden, "
+                    + "DiscoveryMessage, WorldName, X, Y, Z) "
+                    + "VALUES (5, 'Old_One', 'Old One', 1, 1, 'hello', 'world', 1, 2, 3)");
+            statement.executeUpdate("INSERT INTO Graveyards (Id, SearchKey, DisplayName, Enabled, Hidden, "
+                    + "WorldName, X, Y, Z) VALUES (9, 'Lost', 'Lost', 1, 0, 'no_such_world', 1, 2, 3)");
+            statement.executeUpdate("INSERT INTO Discovered (SpawnId, PlayerUuid) VALUES (5, '" + playerUid + "')");
+            statement.executeUpdate("INSERT INTO Discovered (SpawnId, PlayerUuid) VALUES (9, '" + playerUid + "')");
+            statement.executeUpdate("INSERT INTO Discovered (SpawnId, PlayerUuid) VALUES (5, 'not-a-uuid')");
+        }
+    }
+
+
+    @Test
+    @Order(1)
+    @DisplayName("schema version is updated to latest version.")
+    void schemaVersion() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+             ResultSet resultSet = connection.createStatement().executeQuery("PRAGMA user_version")) {
+            Assertions.assertTrue(resultSet.next());
+            Assertions.assertEquals(SchemaMigration.getLatestVersion(), resultSet.getInt(1));
+        }
+        Assertions.assertEquals(5, SchemaMigration.getLatestVersion());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("graveyard records are migrated with primary keys and world uids.")
+    void graveyardsMigrated() {
+        Assertions.assertEquals(2, dataStore.selectGraveyardCount());
+
+        Graveyard graveyard = dataStore.selectGraveyard("old one").orElseThrow();
+        Assertions.assertEquals(5, graveyard.getPrimaryKey());
+        Assertions.assertEquals("Old One", graveyard.getDisplayName());
+        Assertions.assertEquals("hello", graveyard.getDiscoveryMessage());
+        Assertions.assertEquals(world.getUID(), graveyard.getWorldUid());
+        Assertions.assertTrue(graveyard.isHidden());
+
+        // record of unknown world is kept
+        Graveyard lost = dataStore.selectGraveyard("Lost").orElseThrow();
+        Assertions.assertEquals(9, lost.getPrimaryKey());
+        Assertions.assertEquals("no_such_world", lost.getWorldName());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("discovery records are migrated, skipping invalid player uids.")
+    void discoveriesMigrated() throws SQLException {
+        Assertions.assertEquals(Set.of("Old_One", "Lost"), Set.copyOf(dataStore.selectDiscoveredKeys(playerUid)));
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM Players")) {
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals(1, resultSet.getInt(1));
+            }
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM Discovered")) {
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals(2, resultSet.getInt(1));
+            }
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM sqlite_master "
+                    + "WHERE name IN ('GraveyardsV0', 'DiscoveredV0', 'DiscoveredV4', 'DiscoveryBitmapsV4')")) {
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals(0, resultSet.getInt(1));
+            }
+        }
+    }
+
+}